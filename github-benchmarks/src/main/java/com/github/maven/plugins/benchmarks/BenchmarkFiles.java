@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * File utilities of the benchmarks
+ */
+public class BenchmarkFiles {
+
+	/**
+	 * Create a new temporary directory
+	 *
+	 * @return directory
+	 * @throws IOException
+	 */
+	public static File createDirectory() throws IOException {
+		File directory = File.createTempFile("github-benchmark", "");
+		if (!directory.delete() || !directory.mkdirs())
+			throw new IOException("Unable to create directory " + directory);
+		return directory;
+	}
+
+	/**
+	 * Write the given number of random bytes to the given file
+	 *
+	 * @param file
+	 * @param size
+	 * @param random
+	 * @throws IOException
+	 */
+	public static void write(File file, long size, Random random)
+			throws IOException {
+		byte[] buffer = new byte[64 * 1024];
+		OutputStream output = new FileOutputStream(file);
+		try {
+			for (long remaining = size; remaining > 0; remaining -= buffer.length) {
+				random.nextBytes(buffer);
+				output.write(buffer, 0, (int) Math.min(buffer.length, remaining));
+			}
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Delete the given file or directory and everything below it
+	 *
+	 * @param file
+	 */
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+	/**
+	 * Stream counting and discarding all bytes written to it
+	 */
+	public static class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+
+		/**
+		 * @return number of bytes written
+		 */
+		public long getCount() {
+			return count;
+		}
+	}
+}
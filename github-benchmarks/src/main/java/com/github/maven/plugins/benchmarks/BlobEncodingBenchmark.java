@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.benchmarks;
+
+import com.github.maven.plugins.benchmarks.BenchmarkFiles.CountingOutputStream;
+import com.github.maven.plugins.core.BlobHasher;
+import com.github.maven.plugins.core.BlobHasher.HashedBlob;
+import com.github.maven.plugins.core.egit.BlobEntity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of reading, hashing and base64 encoding a file the way the site
+ * goal creates a blob, writing the request body to a stream that discards it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class BlobEncodingBenchmark {
+
+	/**
+	 * Size of the file in bytes
+	 */
+	@Param({ "1024", "65536", "1048576", "10485760", "104857600" })
+	public long size;
+
+	private File directory;
+
+	private File file;
+
+	private byte[] content;
+
+	private final BlobHasher hasher = new BlobHasher();
+
+	/**
+	 * Write a file of random content
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void createFile() throws IOException {
+		directory = BenchmarkFiles.createDirectory();
+		file = new File(directory, "blob");
+		BenchmarkFiles.write(file, size, new Random(size));
+		content = new BlobHasher(Integer.MAX_VALUE).hash(file, true)
+				.getContent();
+	}
+
+	/**
+	 * Delete the file
+	 */
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		BenchmarkFiles.delete(directory);
+	}
+
+	/**
+	 * Compute the blob SHA-1 of the file
+	 *
+	 * @return SHA-1
+	 * @throws IOException
+	 */
+	@Benchmark
+	public String hash() throws IOException {
+		return hasher.hash(file, false).getSha();
+	}
+
+	/**
+	 * Encode the request body of the file, reading it while encoding
+	 *
+	 * @return bytes written
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long encodeFile() throws IOException {
+		CountingOutputStream output = new CountingOutputStream();
+		new BlobEntity(file).writeTo(output);
+		return output.getCount();
+	}
+
+	/**
+	 * Encode the request body of content already in memory
+	 *
+	 * @return bytes written
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long encodeContent() throws IOException {
+		CountingOutputStream output = new CountingOutputStream();
+		new BlobEntity(content).writeTo(output);
+		return output.getCount();
+	}
+
+	/**
+	 * Hash the file and encode its request body as a blob that does not
+	 * exist yet is uploaded, from the content kept by the hasher if the file
+	 * is small enough and else from the file
+	 *
+	 * @return bytes written
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long hashAndEncode() throws IOException {
+		HashedBlob blob = hasher.hash(file, true);
+		CountingOutputStream output = new CountingOutputStream();
+		if (blob.getContent() != null)
+			new BlobEntity(blob.getContent()).writeTo(output);
+		else
+			new BlobEntity(file).writeTo(output);
+		return output.getCount();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.benchmarks;
+
+import com.github.maven.plugins.core.GitHubProjectMojo;
+import com.github.maven.plugins.core.ProxyRoutes;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.settings.Proxy;
+import org.apache.maven.settings.Settings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of matching a host against long non-proxy host lists
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MatchNonProxyBenchmark {
+
+	private static class Mojo extends GitHubProjectMojo {
+
+		public boolean matchNonProxy(Proxy proxy, String hostname) {
+			return super.matchNonProxy(proxy, hostname);
+		}
+
+		public void execute() throws MojoExecutionException {
+			// Intentionally left blank
+		}
+	}
+
+	/**
+	 * Number of non-proxy hosts
+	 */
+	@Param({ "10", "100", "1000" })
+	public int hosts;
+
+	private final Mojo mojo = new Mojo();
+
+	private Proxy proxy;
+
+	private Settings settings;
+
+	private String lastHost;
+
+	/**
+	 * Create a list of exact, prefix, suffix and infix patterns
+	 */
+	@Setup(Level.Trial)
+	public void createProxy() {
+		StringBuilder nonProxyHosts = new StringBuilder();
+		for (int i = 0; i < hosts; i++) {
+			if (i > 0)
+				nonProxyHosts.append('|');
+			switch (i % 4) {
+			case 0:
+				nonProxyHosts.append("host").append(i).append(".example.com");
+				break;
+			case 1:
+				nonProxyHosts.append("*.internal").append(i).append(".example.com");
+				break;
+			case 2:
+				nonProxyHosts.append("build").append(i).append(".*");
+				break;
+			default:
+				nonProxyHosts.append("ci").append(i).append("*.example.com");
+			}
+		}
+		int last = hosts - 1 - (hosts - 1) % 4;
+		lastHost = "host" + last + ".example.com";
+		proxy = new Proxy();
+		proxy.setHost("proxy.example.com");
+		proxy.setPort(8080);
+		proxy.setNonProxyHosts(nonProxyHosts.toString());
+		settings = new Settings();
+		settings.addProxy(proxy);
+	}
+
+	/**
+	 * Match a host that is not in the list, checking every pattern
+	 *
+	 * @return false
+	 */
+	@Benchmark
+	public boolean miss() {
+		return mojo.matchNonProxy(proxy, "api.github.com");
+	}
+
+	/**
+	 * Match the host of the last exact pattern
+	 *
+	 * @return true
+	 */
+	@Benchmark
+	public boolean hitLast() {
+		return mojo.matchNonProxy(proxy, lastHost);
+	}
+
+	/**
+	 * Look up the proxy of a host through the routing table of the settings,
+	 * as every client of a reactor does
+	 *
+	 * @return proxy
+	 */
+	@Benchmark
+	public Proxy routes() {
+		return ProxyRoutes.get(settings).getProxy(null, "api.github.com");
+	}
+}
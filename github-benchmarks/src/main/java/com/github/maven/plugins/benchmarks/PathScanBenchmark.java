@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.benchmarks;
+
+import com.github.maven.plugins.core.PathUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of {@link PathUtils#getMatchingPaths(String[], String[], String)}
+ * on generated site trees
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathScanBenchmark {
+
+	private static final String[] EXTENSIONS = { ".html", ".css", ".js",
+			".png", ".xml" };
+
+	/**
+	 * Number of files in the generated tree
+	 */
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int files;
+
+	/**
+	 * Number of files per directory
+	 */
+	@Param({ "100" })
+	public int filesPerDirectory;
+
+	private File baseDir;
+
+	private final String[] includes = { "**/*.html", "**/*.css", "**/*.js",
+			"**/*.png" };
+
+	private final String[] excludes = { "**/apidocs/**", "**/*.xml" };
+
+	/**
+	 * Generate a tree of empty files, every tenth directory is an excluded
+	 * apidocs directory
+	 *
+	 * @throws IOException
+	 */
+	@Setup(Level.Trial)
+	public void createTree() throws IOException {
+		baseDir = BenchmarkFiles.createDirectory();
+		int directories = (files + filesPerDirectory - 1) / filesPerDirectory;
+		int created = 0;
+		for (int d = 0; d < directories; d++) {
+			File directory = new File(baseDir, "module" + d / 100
+					+ (d % 10 == 0 ? "/apidocs/" : "/pages/") + d);
+			if (!directory.mkdirs())
+				throw new IOException("Unable to create directory "
+						+ directory);
+			for (int f = 0; f < filesPerDirectory && created < files; f++, created++)
+				if (!new File(directory, "file" + f
+						+ EXTENSIONS[f % EXTENSIONS.length]).createNewFile())
+					throw new IOException("Unable to create file in "
+							+ directory);
+		}
+	}
+
+	/**
+	 * Delete the generated tree
+	 */
+	@TearDown(Level.Trial)
+	public void deleteTree() {
+		BenchmarkFiles.delete(baseDir);
+	}
+
+	/**
+	 * Scan with the default number of threads
+	 *
+	 * @return matching paths
+	 */
+	@Benchmark
+	public String[] scan() {
+		return PathUtils.getMatchingPaths(includes, excludes,
+				baseDir.getAbsolutePath());
+	}
+
+	/**
+	 * Scan on a single thread
+	 *
+	 * @return matching paths
+	 */
+	@Benchmark
+	public String[] scanSingleThread() {
+		return PathUtils.getMatchingPaths(includes, excludes,
+				baseDir.getAbsolutePath(), 1);
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.benchmarks;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+
+import com.github.maven.plugins.benchmarks.BenchmarkFiles.CountingOutputStream;
+import com.github.maven.plugins.core.BlobUtils;
+import com.github.maven.plugins.core.TreeUtils;
+import com.github.maven.plugins.core.egit.DataServiceEgit;
+import com.github.maven.plugins.core.egit.JsonEntity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.GsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of building and serializing create tree request bodies and of
+ * computing the tree SHA-1s used to skip unchanged directories
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreePayloadBenchmark {
+
+	/**
+	 * Number of tree entries
+	 */
+	@Param({ "1000", "10000", "100000" })
+	public int entries;
+
+	private List<TreeEntry> tree;
+
+	/**
+	 * Create blob entries spread over directories of 100 entries each
+	 */
+	@Setup(Level.Trial)
+	public void createEntries() {
+		tree = new ArrayList<TreeEntry>(entries);
+		for (int i = 0; i < entries; i++) {
+			TreeEntry entry = new TreeEntry();
+			entry.setPath("module" + i / 10000 + "/dir" + i / 100 + "/page"
+					+ i + ".html");
+			entry.setType(TYPE_BLOB);
+			entry.setMode(MODE_BLOB);
+			entry.setSha(BlobUtils.computeSha(Integer.toString(i).getBytes()));
+			tree.add(entry);
+		}
+	}
+
+	/**
+	 * Serialize the entries the way the client does for trees without
+	 * deleted entries
+	 *
+	 * @return JSON
+	 */
+	@Benchmark
+	public String serializeEntries() {
+		return GsonUtils.toJson(tree);
+	}
+
+	/**
+	 * Build and serialize the request body sent for trees with deleted
+	 * entries, writing it to a stream that discards it
+	 *
+	 * @return bytes written
+	 * @throws IOException
+	 */
+	@Benchmark
+	public long writeJsonEntity() throws IOException {
+		Map<String, Object> params = DataServiceEgit.getTreeParams(tree,
+				"base");
+		CountingOutputStream output = new CountingOutputStream();
+		new JsonEntity(params, true).writeTo(output);
+		return output.getCount();
+	}
+
+	/**
+	 * Compute the SHA-1s of all directories of the tree
+	 *
+	 * @return map of directory paths to tree SHA-1s
+	 */
+	@Benchmark
+	public Map<String, String> computeTreeShas() {
+		return TreeUtils.computeTreeShas(tree);
+	}
+}
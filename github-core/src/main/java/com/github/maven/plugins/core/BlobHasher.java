@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+
+/**
+ * Hasher of files into Git blob SHA-1s that reads every file once. Digests
+ * and read buffers are reused per thread so files can be hashed concurrently
+ * on all cores.
+ * <p>
+ * The content of files up to a configurable size is kept with the SHA-1 so
+ * that it can be uploaded without reading the file again.
+ */
+public class BlobHasher {
+
+	/**
+	 * Default number of files hashed concurrently
+	 */
+	public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime()
+			.availableProcessors());
+
+	/**
+	 * Default maximum size of a file whose content is kept
+	 */
+	public static final int DEFAULT_MAX_CONTENT = 1024 * 1024;
+
+	/**
+	 * Size of the direct buffers files too large to keep are read with
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final ThreadLocal<MessageDigest> DIGESTS = new ThreadLocal<MessageDigest>() {
+
+		protected MessageDigest initialValue() {
+			return BlobUtils.createDigest();
+		}
+	};
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+
+	/**
+	 * Hashed file
+	 */
+	public static class HashedBlob {
+
+		private final File file;
+
+		private final long size;
+
+		private final String sha;
+
+		private final byte[] content;
+
+		/**
+		 * Create hashed blob
+		 *
+		 * @param file
+		 * @param size
+		 * @param sha
+		 * @param content
+		 *            may be null
+		 */
+		public HashedBlob(File file, long size, String sha, byte[] content) {
+			this.file = file;
+			this.size = size;
+			this.sha = sha;
+			this.content = content;
+		}
+
+		/**
+		 * @return file
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		/**
+		 * @return size in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return blob SHA-1
+		 */
+		public String getSha() {
+			return sha;
+		}
+
+		/**
+		 * @return content or null if the file was too large to keep it
+		 */
+		public byte[] getContent() {
+			return content;
+		}
+	}
+
+	private final int maxContent;
+
+	/**
+	 * Create hasher keeping the content of files up to the default size
+	 */
+	public BlobHasher() {
+		this(DEFAULT_MAX_CONTENT);
+	}
+
+	/**
+	 * Create hasher keeping the content of files up to the given size
+	 *
+	 * @param maxContent
+	 *            maximum size in bytes, zero or less to never keep content
+	 */
+	public BlobHasher(final int maxContent) {
+		this.maxContent = maxContent;
+	}
+
+	/**
+	 * Hash the given file
+	 *
+	 * @param file
+	 * @param keepContent
+	 *            true to keep the content if the file is small enough
+	 * @return hashed blob
+	 * @throws IOException
+	 */
+	public HashedBlob hash(final File file, final boolean keepContent)
+			throws IOException {
+		final long size = file.length();
+		final MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		digest.update(BlobUtils.getHeader(size));
+		byte[] content = null;
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			long read = 0;
+			if (keepContent && size <= maxContent) {
+				content = new byte[(int) size];
+				final ByteBuffer buffer = ByteBuffer.wrap(content);
+				int count;
+				while (buffer.hasRemaining()
+						&& (count = channel.read(buffer)) != -1)
+					read += count;
+				digest.update(content, 0, (int) read);
+			} else {
+				final ByteBuffer buffer = BUFFERS.get();
+				int count;
+				buffer.clear();
+				while ((count = channel.read(buffer)) != -1) {
+					read += count;
+					buffer.flip();
+					digest.update(buffer);
+					buffer.clear();
+				}
+			}
+			if (read != size || channel.size() != size)
+				throw new IOException(MessageFormat.format(
+						"File {0} changed while being read",
+						file.getAbsolutePath()));
+		} finally {
+			stream.close();
+		}
+		return new HashedBlob(file, size, BlobUtils.toHex(digest.digest()),
+				content);
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Registry of the blobs written to a repository during a Maven session. Files
+ * with the same content, in the same module or in different modules, share a
+ * single blob that is only written once.
+ */
+public class BlobRegistry {
+
+	private static final Map<Object, Map<String, BlobRegistry>> REGISTRIES = new WeakHashMap<Object, Map<String, BlobRegistry>>();
+
+	/**
+	 * Get the registry of the given repository in the given session
+	 *
+	 * @param session
+	 * @param repository
+	 * @return non-null registry
+	 */
+	public static BlobRegistry get(MavenSession session, String repository) {
+		Object key = session.getRequest();
+		return get(key != null ? key : session, repository);
+	}
+
+	/**
+	 * Get the registry of the given repository for the given key
+	 *
+	 * @param key
+	 * @param repository
+	 * @return non-null registry
+	 */
+	static BlobRegistry get(Object key, String repository) {
+		synchronized (REGISTRIES) {
+			Map<String, BlobRegistry> registries = REGISTRIES.get(key);
+			if (registries == null) {
+				registries = new HashMap<String, BlobRegistry>();
+				REGISTRIES.put(key, registries);
+			}
+			BlobRegistry registry = registries.get(repository);
+			if (registry == null) {
+				registry = new BlobRegistry();
+				registries.put(repository, registry);
+			}
+			return registry;
+		}
+	}
+
+	private final ConcurrentMap<String, FutureTask<String>> blobs = new ConcurrentHashMap<String, FutureTask<String>>();
+
+	/**
+	 * Write the blob with the given SHA-1 unless it has already been written
+	 * or is being written by another thread, in which case that write is
+	 * waited for
+	 * <p>
+	 * Failed writes are not registered so that a later write is attempted
+	 * again.
+	 *
+	 * @param sha
+	 *            SHA-1 of the blob content
+	 * @param writer
+	 *            writer returning the SHA-1 of the written blob
+	 * @return SHA-1 of the written blob
+	 * @throws Exception
+	 *             thrown by the writer
+	 */
+	public String write(String sha, Callable<String> writer) throws Exception {
+		FutureTask<String> task = new FutureTask<String>(writer);
+		FutureTask<String> existing = blobs.putIfAbsent(sha, task);
+		if (existing == null) {
+			existing = task;
+			task.run();
+		}
+		try {
+			return existing.get();
+		} catch (ExecutionException e) {
+			blobs.remove(sha, existing);
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw (Error) cause;
+		}
+	}
+
+	/**
+	 * Has the blob with the given SHA-1 been written?
+	 *
+	 * @param sha
+	 * @return true if written, false otherwise
+	 */
+	public boolean isWritten(String sha) {
+		FutureTask<String> task = blobs.get(sha);
+		if (task == null || !task.isDone())
+			return false;
+		try {
+			task.get();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Get number of blobs registered
+	 *
+	 * @return count
+	 */
+	public int size() {
+		return blobs.size();
+	}
+}
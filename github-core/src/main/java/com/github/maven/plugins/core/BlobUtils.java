@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Blob utilities
+ */
+public class BlobUtils {
+
+	/**
+	 * SHA-1 of the empty blob
+	 */
+	public static final String EMPTY_BLOB_SHA = "e69de29bb2d1d6434b8b29ae775ad8c2e48c5391";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+
+	/**
+	 * Create a new SHA-1 digest
+	 *
+	 * @return digest
+	 */
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get header that prefixes the content of a blob of given length when
+	 * hashed
+	 *
+	 * @param length
+	 * @return header bytes
+	 */
+	public static byte[] getHeader(final long length) {
+		return ("blob " + length + '\0').getBytes(ASCII);
+	}
+
+	/**
+	 * Encode digest as lower case hexadecimal string
+	 *
+	 * @param digest
+	 * @return hex string
+	 */
+	public static String toHex(final byte[] digest) {
+		final char[] chars = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			chars[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+			chars[i * 2 + 1] = HEX[digest[i] & 0xf];
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Compute the Git blob SHA-1 of the given content
+	 *
+	 * @param content
+	 * @return SHA-1
+	 */
+	public static String computeSha(final byte[] content) {
+		final MessageDigest digest = createDigest();
+		digest.update(getHeader(content.length));
+		digest.update(content);
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Compute the Git blob SHA-1 of the given file
+	 *
+	 * @param file
+	 * @return SHA-1
+	 * @throws IOException
+	 */
+	public static String computeSha(final File file) throws IOException {
+		final MessageDigest digest = createDigest();
+		digest.update(getHeader(file.length()));
+		final InputStream stream = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} finally {
+			stream.close();
+		}
+		return toHex(digest.digest());
+	}
+}
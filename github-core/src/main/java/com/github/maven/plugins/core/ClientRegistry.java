@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.egit.github.core.CommitUser;
+import org.eclipse.egit.github.core.client.GitHubClient;
+
+/**
+ * Registry of the clients and decrypted settings of a Maven session. Mojo
+ * executions that connect to the same host with the same credentials and
+ * proxy share a single client, and so also share its rate limiter and the
+ * kept-alive connections of its proxy.
+ */
+public class ClientRegistry {
+
+	private static final Map<Object, ClientRegistry> REGISTRIES = new WeakHashMap<Object, ClientRegistry>();
+
+	/**
+	 * Get the registry of the given session
+	 * <p>
+	 * Sessions cloned for the projects of a parallel build share their
+	 * execution request and so also share a registry.
+	 *
+	 * @param session
+	 * @return non-null registry
+	 */
+	public static ClientRegistry get(MavenSession session) {
+		Object key = session.getRequest();
+		return get(key != null ? key : session);
+	}
+
+	/**
+	 * Get the registry of the given key
+	 *
+	 * @param key
+	 * @return non-null registry
+	 */
+	static ClientRegistry get(Object key) {
+		synchronized (REGISTRIES) {
+			ClientRegistry registry = REGISTRIES.get(key);
+			if (registry == null) {
+				registry = new ClientRegistry();
+				REGISTRIES.put(key, registry);
+			}
+			return registry;
+		}
+	}
+
+	/**
+	 * Get a key for the given client settings. Settings are hashed so that
+	 * credentials are not kept in the registry.
+	 *
+	 * @param settings
+	 * @return hex encoded key
+	 */
+	public static String getKey(String... settings) {
+		MessageDigest digest = BlobUtils.createDigest();
+		try {
+			for (String setting : settings) {
+				if (setting != null) {
+					digest.update((byte) 1);
+					digest.update(setting.getBytes("UTF-8"));
+				}
+				digest.update((byte) 0);
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		return BlobUtils.toHex(digest.digest());
+	}
+
+	private final Map<String, GitHubClient> clients = new HashMap<String, GitHubClient>();
+
+	private final Map<Object, Object> decrypted = new IdentityHashMap<Object, Object>();
+
+	private final Map<String, Future<CommitUser>> identities = new HashMap<String, Future<CommitUser>>();
+
+	/**
+	 * Get the client registered with the given key
+	 *
+	 * @param key
+	 * @return client or null if none registered
+	 */
+	public synchronized GitHubClient getClient(String key) {
+		return clients.get(key);
+	}
+
+	/**
+	 * Register the given client unless a client was already registered with
+	 * the given key
+	 *
+	 * @param key
+	 * @param client
+	 * @return registered client
+	 */
+	public synchronized GitHubClient putClient(String key, GitHubClient client) {
+		GitHubClient existing = clients.get(key);
+		if (existing != null)
+			return existing;
+		clients.put(key, client);
+		return client;
+	}
+
+	/**
+	 * Get the decrypted copy of the given settings object
+	 *
+	 * @param original
+	 * @return decrypted object or null if not decrypted yet
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T getDecrypted(T original) {
+		return (T) decrypted.get(original);
+	}
+
+	/**
+	 * Remember the decrypted copy of the given settings object
+	 *
+	 * @param original
+	 * @param copy
+	 */
+	public synchronized <T> void putDecrypted(T original, T copy) {
+		decrypted.put(original, copy);
+	}
+
+	/**
+	 * Register the given identity lookup unless a lookup was already
+	 * registered for the given credentials key
+	 *
+	 * @param key
+	 * @param identity
+	 * @return registered lookup
+	 */
+	public synchronized Future<CommitUser> putIdentity(String key,
+			Future<CommitUser> identity) {
+		Future<CommitUser> existing = identities.get(key);
+		if (existing != null)
+			return existing;
+		identities.put(key, identity);
+		return identity;
+	}
+}
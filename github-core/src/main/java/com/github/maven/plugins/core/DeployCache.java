@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk index of the blob SHA-1s of previously deployed files keyed by
+ * repository, branch and path.
+ * <p>
+ * A file whose size and modification time match the cached values does not
+ * need to be read again to know its blob SHA-1. The file is always replaced
+ * by renaming a fully written temporary file so an interrupted build cannot
+ * leave a partially written index behind.
+ */
+public class DeployCache {
+
+	private static final String HEADER = "# github-maven-plugins deploy cache v1";
+
+	private static final String UTF8 = "UTF-8";
+
+	/**
+	 * Cached state of a single path
+	 */
+	public static class CacheEntry {
+
+		private final long size;
+
+		private final long modified;
+
+		private final String sha;
+
+		private final boolean confirmed;
+
+		/**
+		 * @param size
+		 * @param modified
+		 * @param sha
+		 * @param confirmed
+		 */
+		public CacheEntry(long size, long modified, String sha,
+				boolean confirmed) {
+			this.size = size;
+			this.modified = modified;
+			this.sha = sha;
+			this.confirmed = confirmed;
+		}
+
+		/**
+		 * @return file size in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return file modification time
+		 */
+		public long getModified() {
+			return modified;
+		}
+
+		/**
+		 * @return blob SHA-1
+		 */
+		public String getSha() {
+			return sha;
+		}
+
+		/**
+		 * @return true if the blob is known to exist in the repository
+		 */
+		public boolean isConfirmed() {
+			return confirmed;
+		}
+	}
+
+	private final File file;
+
+	private final String key;
+
+	private final Map<String, Map<String, String>> sections = new LinkedHashMap<String, Map<String, String>>();
+
+	private final Map<String, CacheEntry> previous = new ConcurrentHashMap<String, CacheEntry>();
+
+	private final Map<String, CacheEntry> current = new ConcurrentHashMap<String, CacheEntry>();
+
+	/**
+	 * Create cache stored in given file for given repository and branch
+	 *
+	 * @param file
+	 * @param repository
+	 * @param branch
+	 */
+	public DeployCache(File file, String repository, String branch) {
+		this.file = file;
+		this.key = repository + ' ' + branch;
+	}
+
+	/**
+	 * Get file the cache is stored in
+	 *
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Load the cache from disk, a missing file results in an empty cache
+	 *
+	 * @return this cache
+	 * @throws IOException
+	 */
+	public DeployCache load() throws IOException {
+		sections.clear();
+		previous.clear();
+		BufferedReader reader;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), UTF8));
+		} catch (FileNotFoundException e) {
+			return this;
+		}
+		try {
+			if (!HEADER.equals(reader.readLine()))
+				return this;
+			Map<String, String> section = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("[") && line.endsWith("]")) {
+					section = new LinkedHashMap<String, String>();
+					sections.put(line.substring(1, line.length() - 1), section);
+					continue;
+				}
+				int tab = line.indexOf('\t');
+				if (section != null && tab > 0)
+					section.put(line.substring(0, tab),
+							line.substring(tab + 1));
+			}
+		} finally {
+			reader.close();
+		}
+
+		Map<String, String> own = sections.get(key);
+		if (own != null)
+			for (Entry<String, String> entry : own.entrySet()) {
+				CacheEntry parsed = parse(entry.getValue());
+				if (parsed != null)
+					previous.put(entry.getKey(), parsed);
+			}
+		return this;
+	}
+
+	private static CacheEntry parse(String value) {
+		String[] fields = value.split("\t");
+		if (fields.length != 4)
+			return null;
+		try {
+			return new CacheEntry(Long.parseLong(fields[0]),
+					Long.parseLong(fields[1]), fields[2],
+					"1".equals(fields[3]));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private static String format(CacheEntry entry) {
+		return entry.getSize() + "\t" + entry.getModified() + '\t'
+				+ entry.getSha() + '\t' + (entry.isConfirmed() ? '1' : '0');
+	}
+
+	/**
+	 * Get cached entry for path if the given size and modification time still
+	 * match the cached values
+	 *
+	 * @param path
+	 * @param size
+	 * @param modified
+	 * @return entry or null if not cached or changed
+	 */
+	public CacheEntry get(String path, long size, long modified) {
+		CacheEntry entry = current.get(path);
+		if (entry == null)
+			entry = previous.get(path);
+		if (entry == null || entry.getSize() != size
+				|| entry.getModified() != modified)
+			return null;
+		return entry;
+	}
+
+	/**
+	 * Record the state of a path seen in the current deploy. Only recorded
+	 * paths are written when the cache is saved.
+	 *
+	 * @param path
+	 * @param size
+	 * @param modified
+	 * @param sha
+	 * @param confirmed
+	 */
+	public void put(String path, long size, long modified, String sha,
+			boolean confirmed) {
+		if (sha == null || path.indexOf('\t') != -1
+				|| path.indexOf('\n') != -1 || path.indexOf('\r') != -1)
+			return;
+		current.put(path, new CacheEntry(size, modified, sha, confirmed));
+	}
+
+	/**
+	 * Mark all recorded blobs as no longer known to exist remotely
+	 */
+	public void clearConfirmed() {
+		for (Entry<String, CacheEntry> entry : current.entrySet()) {
+			CacheEntry value = entry.getValue();
+			entry.setValue(new CacheEntry(value.getSize(), value
+					.getModified(), value.getSha(), false));
+		}
+		previous.clear();
+	}
+
+	/**
+	 * Atomically write the cache to disk
+	 *
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		Map<String, String> own = new LinkedHashMap<String, String>();
+		for (Entry<String, CacheEntry> entry : current.entrySet())
+			own.put(entry.getKey(), format(entry.getValue()));
+		sections.put(key, own);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException(MessageFormat.format(
+					"Unable to create directory {0}", parent));
+		// Unique so that concurrent builds never write the same temporary file
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		boolean replaced = false;
+		try {
+			write(temp);
+			replace(temp, file);
+			replaced = true;
+		} finally {
+			if (!replaced)
+				temp.delete();
+		}
+	}
+
+	private void write(File temp) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(temp), UTF8));
+		try {
+			writer.write(HEADER);
+			writer.write('\n');
+			for (Entry<String, Map<String, String>> section : sections
+					.entrySet()) {
+				writer.write('[');
+				writer.write(section.getKey());
+				writer.write("]\n");
+				for (Entry<String, String> entry : section.getValue()
+						.entrySet()) {
+					writer.write(entry.getKey());
+					writer.write('\t');
+					writer.write(entry.getValue());
+					writer.write('\n');
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Replace target file with source file
+	 *
+	 * @param source
+	 * @param target
+	 * @throws IOException
+	 */
+	static void replace(File source, File target) throws IOException {
+		if (source.renameTo(target))
+			return;
+		// Renaming over an existing file fails on some platforms
+		if (target.delete() && source.renameTo(target))
+			return;
+		throw new IOException(MessageFormat.format(
+				"Unable to rename {0} to {1}", source, target));
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.egit.github.core.TreeEntry;
+
+/**
+ * Append-only record of the blobs and trees created by a deploy of a
+ * repository branch that has not updated its reference yet.
+ * <p>
+ * Every object is appended and flushed as soon as it is created so that a
+ * deploy that is interrupted can be run again without creating the objects
+ * recorded before the interruption. A partially written last line is ignored
+ * when the journal is loaded.
+ */
+public class DeployJournal {
+
+	private static final String HEADER = "# github-maven-plugins deploy journal v1";
+
+	private static final String UTF8 = "UTF-8";
+
+	private static final String BLOB = "blob";
+
+	private static final String TREE = "tree";
+
+	/**
+	 * Get key identifying a tree created from the given entries on top of the
+	 * given base tree
+	 *
+	 * @param entries
+	 * @param baseTree
+	 *            may be null
+	 * @return SHA-1 hex string
+	 */
+	public static String getTreeKey(Collection<TreeEntry> entries,
+			String baseTree) {
+		List<TreeEntry> sorted = new ArrayList<TreeEntry>(entries);
+		Collections.sort(sorted, new Comparator<TreeEntry>() {
+
+			public int compare(TreeEntry e1, TreeEntry e2) {
+				return e1.getPath().compareTo(e2.getPath());
+			}
+		});
+		StringBuilder content = new StringBuilder();
+		content.append(baseTree).append('\n');
+		for (TreeEntry entry : sorted)
+			content.append(entry.getPath()).append('\0')
+					.append(entry.getMode()).append(' ')
+					.append(entry.getType()).append(' ')
+					.append(entry.getSha()).append('\n');
+		MessageDigest digest = BlobUtils.createDigest();
+		return BlobUtils.toHex(digest.digest(content.toString().getBytes(
+				Charset.forName(UTF8))));
+	}
+
+	private static boolean isSha(String value) {
+		if (value.length() != 40)
+			return false;
+		for (int i = 0; i < value.length(); i++)
+			if (Character.digit(value.charAt(i), 16) == -1)
+				return false;
+		return true;
+	}
+
+	private final File file;
+
+	private final String key;
+
+	private final Set<String> blobs = Collections
+			.synchronizedSet(new HashSet<String>());
+
+	private final Map<String, String> trees = new HashMap<String, String>();
+
+	private boolean valid;
+
+	private Writer writer;
+
+	/**
+	 * Create journal stored in given file for given repository and branch
+	 *
+	 * @param file
+	 * @param repository
+	 * @param branch
+	 */
+	public DeployJournal(File file, String repository, String branch) {
+		this.file = file;
+		this.key = repository + ' ' + branch;
+	}
+
+	/**
+	 * Get file the journal is stored in
+	 *
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Load the objects recorded by a previous deploy of the same repository
+	 * branch, a missing file or a journal of another branch results in an
+	 * empty journal
+	 *
+	 * @return this journal
+	 * @throws IOException
+	 */
+	public synchronized DeployJournal load() throws IOException {
+		blobs.clear();
+		trees.clear();
+		valid = false;
+		BufferedReader reader;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), UTF8));
+		} catch (FileNotFoundException e) {
+			return this;
+		}
+		try {
+			if (!HEADER.equals(reader.readLine())
+					|| !('[' + key + ']').equals(reader.readLine()))
+				return this;
+			valid = true;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (fields.length == 2 && BLOB.equals(fields[0])
+						&& isSha(fields[1]))
+					blobs.add(fields[1]);
+				else if (fields.length == 3 && TREE.equals(fields[0])
+						&& isSha(fields[2]))
+					trees.put(fields[1], fields[2]);
+			}
+		} finally {
+			reader.close();
+		}
+		return this;
+	}
+
+	/**
+	 * Get the SHA-1s of the recorded blobs
+	 *
+	 * @return non-null set
+	 */
+	public Set<String> getBlobs() {
+		synchronized (blobs) {
+			return new HashSet<String>(blobs);
+		}
+	}
+
+	/**
+	 * Get the SHA-1 of the recorded tree with the given key
+	 *
+	 * @param treeKey
+	 * @return SHA-1 or null if not recorded
+	 * @see #getTreeKey(Collection, String)
+	 */
+	public synchronized String getTree(String treeKey) {
+		return trees.get(treeKey);
+	}
+
+	/**
+	 * Does the journal record any objects?
+	 *
+	 * @return true if empty, false otherwise
+	 */
+	public synchronized boolean isEmpty() {
+		return blobs.isEmpty() && trees.isEmpty();
+	}
+
+	/**
+	 * Record a created blob
+	 *
+	 * @param sha
+	 * @throws IOException
+	 */
+	public void addBlob(String sha) throws IOException {
+		if (blobs.add(sha))
+			append(BLOB + '\t' + sha);
+	}
+
+	/**
+	 * Record a created tree
+	 *
+	 * @param treeKey
+	 * @param sha
+	 * @throws IOException
+	 * @see #getTreeKey(Collection, String)
+	 */
+	public synchronized void addTree(String treeKey, String sha)
+			throws IOException {
+		if (!sha.equals(trees.put(treeKey, sha)))
+			append(TREE + '\t' + treeKey + '\t' + sha);
+	}
+
+	private synchronized void append(String line) throws IOException {
+		if (writer == null) {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+				throw new IOException(MessageFormat.format(
+						"Unable to create directory {0}", parent));
+			// A journal of another branch or version is started over
+			writer = new OutputStreamWriter(new FileOutputStream(file, valid),
+					UTF8);
+			if (valid)
+				// Ends a line left incomplete by an interrupted deploy
+				writer.write('\n');
+			else {
+				writer.write(HEADER + '\n' + '[' + key + "]\n");
+				valid = true;
+			}
+		}
+		writer.write(line);
+		writer.write('\n');
+		writer.flush();
+	}
+
+	/**
+	 * Close the file the journal is appended to
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close() throws IOException {
+		if (writer != null)
+			try {
+				writer.close();
+			} finally {
+				writer = null;
+			}
+	}
+
+	/**
+	 * Delete the journal once the deploy updated its reference or its objects
+	 * can no longer be trusted
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void delete() throws IOException {
+		close();
+		blobs.clear();
+		trees.clear();
+		valid = false;
+		if (file.exists() && !file.delete())
+			throw new IOException(MessageFormat.format(
+					"Unable to delete {0}", file));
+	}
+}
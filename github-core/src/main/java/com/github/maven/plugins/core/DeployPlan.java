@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+
+/**
+ * Changes and requests a deploy would make, with an estimate of the time it
+ * would take under the rate limits of the client
+ */
+public class DeployPlan {
+
+	private static final long MINUTE = 60 * 1000L;
+
+	private static final long HOUR = 60 * MINUTE;
+
+	/**
+	 * Format the given duration as hours, minutes and seconds
+	 *
+	 * @param millis
+	 * @return formatted duration
+	 */
+	public static String formatTime(long millis) {
+		long seconds = (millis + 999) / 1000;
+		StringBuilder formatted = new StringBuilder();
+		if (seconds >= 3600)
+			formatted.append(seconds / 3600).append("h ");
+		if (seconds >= 60)
+			formatted.append(seconds / 60 % 60).append("m ");
+		return formatted.append(seconds % 60).append('s').toString();
+	}
+
+	private static long getWindowTime(int requests, int permits, long window) {
+		if (permits <= 0 || requests <= permits)
+			return 0;
+		return ((requests + permits - 1) / permits - 1) * window;
+	}
+
+	private final List<String> added = new ArrayList<String>();
+
+	private final List<String> changed = new ArrayList<String>();
+
+	private final List<String> unchanged = new ArrayList<String>();
+
+	private final List<String> removed = new ArrayList<String>();
+
+	private int blobRequests;
+
+	private int treeRequests;
+
+	private int commitRequests;
+
+	private int referenceRequests;
+
+	/**
+	 * Compare the given blob entries with the given current tree
+	 *
+	 * @param entries
+	 *            entries of the new tree, entries without a SHA-1 delete
+	 *            their path
+	 * @param current
+	 *            recursive tree the deploy replaces or merges with, may be
+	 *            null
+	 * @param merge
+	 *            true if the entries are merged with the current tree, false
+	 *            if they replace it
+	 * @return this plan
+	 */
+	public DeployPlan setEntries(Collection<TreeEntry> entries, Tree current,
+			boolean merge) {
+		added.clear();
+		changed.clear();
+		unchanged.clear();
+		removed.clear();
+		Map<String, String> existing = TreeUtils.getShas(current, TYPE_BLOB);
+		for (TreeEntry entry : entries) {
+			if (!TYPE_BLOB.equals(entry.getType()))
+				continue;
+			String sha = existing.remove(entry.getPath());
+			if (entry.getSha() == null) {
+				if (sha != null)
+					removed.add(entry.getPath());
+			} else if (sha == null)
+				added.add(entry.getPath());
+			else if (sha.equals(entry.getSha()))
+				unchanged.add(entry.getPath());
+			else
+				changed.add(entry.getPath());
+		}
+		// Paths not part of a new tree that is not merged are removed
+		if (!merge)
+			removed.addAll(existing.keySet());
+		Collections.sort(added);
+		Collections.sort(changed);
+		Collections.sort(unchanged);
+		Collections.sort(removed);
+		return this;
+	}
+
+	/**
+	 * Set the number of requests of each kind the deploy would send
+	 *
+	 * @param blobs
+	 * @param trees
+	 * @param commits
+	 * @param references
+	 * @return this plan
+	 */
+	public DeployPlan setRequests(int blobs, int trees, int commits,
+			int references) {
+		blobRequests = blobs;
+		treeRequests = trees;
+		commitRequests = commits;
+		referenceRequests = references;
+		return this;
+	}
+
+	/**
+	 * @return sorted paths added
+	 */
+	public List<String> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return sorted paths whose content changes
+	 */
+	public List<String> getChanged() {
+		return changed;
+	}
+
+	/**
+	 * @return sorted paths whose content stays the same
+	 */
+	public List<String> getUnchanged() {
+		return unchanged;
+	}
+
+	/**
+	 * @return sorted paths removed
+	 */
+	public List<String> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return number of blob requests
+	 */
+	public int getBlobRequests() {
+		return blobRequests;
+	}
+
+	/**
+	 * @return number of tree requests
+	 */
+	public int getTreeRequests() {
+		return treeRequests;
+	}
+
+	/**
+	 * @return number of commit requests
+	 */
+	public int getCommitRequests() {
+		return commitRequests;
+	}
+
+	/**
+	 * @return number of reference requests
+	 */
+	public int getReferenceRequests() {
+		return referenceRequests;
+	}
+
+	/**
+	 * Get number of content-creating requests
+	 *
+	 * @return count
+	 */
+	public int getRequests() {
+		return blobRequests + treeRequests + commitRequests
+				+ referenceRequests;
+	}
+
+	/**
+	 * Estimate the time the requests of the plan take. The estimate is the
+	 * longest of the time the requests take at the given latency and the
+	 * time the rate limits make them wait.
+	 *
+	 * @param latency
+	 *            milliseconds a request takes
+	 * @param threads
+	 *            number of blobs created concurrently
+	 * @param perMinute
+	 *            content-creating requests allowed per minute, zero or less
+	 *            for no limit
+	 * @param perHour
+	 *            content-creating requests allowed per hour, zero or less for
+	 *            no limit
+	 * @param limit
+	 *            requests allowed per hour by the host, negative if unknown
+	 * @param remaining
+	 *            requests left until the reset, negative if unknown
+	 * @param resetIn
+	 *            milliseconds until the host resets the remaining requests
+	 * @return estimated milliseconds
+	 */
+	public long estimateTime(long latency, int threads, int perMinute,
+			int perHour, long limit, long remaining, long resetIn) {
+		int requests = getRequests();
+		long time = ((blobRequests + Math.max(1, threads) - 1) / Math.max(1,
+				threads))
+				* latency
+				+ (treeRequests + commitRequests + referenceRequests)
+				* latency;
+		time = Math.max(time, getWindowTime(requests, perMinute, MINUTE));
+		time = Math.max(time, getWindowTime(requests, perHour, HOUR));
+		if (limit > 0 && remaining >= 0 && requests > remaining)
+			time = Math.max(time, Math.max(0, resetIn)
+					+ getWindowTime((int) (requests - remaining), (int) limit,
+							HOUR));
+		return time;
+	}
+}
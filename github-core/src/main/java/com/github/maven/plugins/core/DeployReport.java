@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GsonUtils;
+
+/**
+ * Timings and counts of a single deploy written as JSON or in the Prometheus
+ * text exposition format read by the node exporter textfile collector.
+ * <p>
+ * Request counts, bytes sent and rate limit waits are taken from the client
+ * and only include the requests sent between {@link #start(GitHubClient)} and
+ * {@link #finish()}.
+ */
+public class DeployReport {
+
+	/**
+	 * Prefix of the names of all Prometheus metrics
+	 */
+	public static final String METRIC_PREFIX = "github_site_deploy_";
+
+	private static final String UTF8 = "UTF-8";
+
+	private final Map<String, String> labels = new LinkedHashMap<String, String>();
+
+	private final Map<String, Long> times = new LinkedHashMap<String, Long>();
+
+	private final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+
+	private final Map<String, Long> requests = new TreeMap<String, Long>();
+
+	private final long started = System.currentTimeMillis();
+
+	private long duration;
+
+	private long bytesSent;
+
+	private long rateLimitWait;
+
+	private String phase;
+
+	private long phaseStarted;
+
+	private GitHubClient client;
+
+	private Map<String, Long> initialRequests;
+
+	private long initialBytesSent;
+
+	private long initialRateLimitWait;
+
+	private boolean success;
+
+	private Map<String, Long> planned;
+
+	private long estimate;
+
+	/**
+	 * Set a label identifying the deploy, such as its repository or branch
+	 *
+	 * @param name
+	 * @param value
+	 * @return this report
+	 */
+	public synchronized DeployReport setLabel(String name, String value) {
+		labels.put(name, value != null ? value : "");
+		return this;
+	}
+
+	/**
+	 * Start collecting the requests sent by the given client
+	 *
+	 * @param client
+	 * @return this report
+	 */
+	public synchronized DeployReport start(GitHubClient client) {
+		this.client = client;
+		if (client instanceof GitHubClientEgit) {
+			GitHubClientEgit egit = (GitHubClientEgit) client;
+			initialRequests = egit.getRequestCounts();
+			initialBytesSent = egit.getBytesSent();
+		}
+		if (client instanceof RateLimitedGitHubClient)
+			initialRateLimitWait = ((RateLimitedGitHubClient) client)
+					.getRateLimiter().getWaitTime();
+		return this;
+	}
+
+	/**
+	 * Start the given phase, ending the current phase if any
+	 *
+	 * @param name
+	 * @return this report
+	 */
+	public synchronized DeployReport startPhase(String name) {
+		long now = System.currentTimeMillis();
+		if (phase != null)
+			addTime(phase, now - phaseStarted);
+		phase = name;
+		phaseStarted = now;
+		return this;
+	}
+
+	/**
+	 * Add time spent on the given phase or task. Times added from multiple
+	 * threads are summed.
+	 *
+	 * @param name
+	 * @param millis
+	 * @return this report
+	 */
+	public synchronized DeployReport addTime(String name, long millis) {
+		Long time = times.get(name);
+		times.put(name, time != null ? time + millis : millis);
+		return this;
+	}
+
+	/**
+	 * Set the given count
+	 *
+	 * @param name
+	 * @param count
+	 * @return this report
+	 */
+	public synchronized DeployReport setCount(String name, long count) {
+		counts.put(name, count);
+		return this;
+	}
+
+	/**
+	 * Set the requests the given plan would send and the time they are
+	 * estimated to take
+	 *
+	 * @param plan
+	 * @param estimate
+	 *            milliseconds
+	 * @return this report
+	 */
+	public synchronized DeployReport setPlan(DeployPlan plan, long estimate) {
+		planned = new LinkedHashMap<String, Long>();
+		planned.put("blob", (long) plan.getBlobRequests());
+		planned.put("tree", (long) plan.getTreeRequests());
+		planned.put("commit", (long) plan.getCommitRequests());
+		planned.put("ref", (long) plan.getReferenceRequests());
+		this.estimate = estimate;
+		return this;
+	}
+
+	/**
+	 * Mark the deploy as successful
+	 *
+	 * @return this report
+	 */
+	public synchronized DeployReport setSuccess() {
+		success = true;
+		return this;
+	}
+
+	/**
+	 * End the current phase and collect the requests sent by the client
+	 *
+	 * @return this report
+	 */
+	public synchronized DeployReport finish() {
+		startPhase(null);
+		duration = System.currentTimeMillis() - started;
+		if (client instanceof GitHubClientEgit) {
+			GitHubClientEgit egit = (GitHubClientEgit) client;
+			requests.clear();
+			for (Entry<String, Long> entry : egit.getRequestCounts()
+					.entrySet()) {
+				Long initial = initialRequests.get(entry.getKey());
+				long count = entry.getValue()
+						- (initial != null ? initial : 0);
+				if (count > 0)
+					requests.put(entry.getKey(), count);
+			}
+			bytesSent = egit.getBytesSent() - initialBytesSent;
+		}
+		if (client instanceof RateLimitedGitHubClient)
+			rateLimitWait = ((RateLimitedGitHubClient) client)
+					.getRateLimiter().getWaitTime()
+					- initialRateLimitWait;
+		return this;
+	}
+
+	/**
+	 * Get time spent on the given phase
+	 *
+	 * @param name
+	 * @return milliseconds
+	 */
+	public synchronized long getTime(String name) {
+		Long time = times.get(name);
+		return time != null ? time : 0;
+	}
+
+	/**
+	 * Get the given count
+	 *
+	 * @param name
+	 * @return count
+	 */
+	public synchronized long getCount(String name) {
+		Long count = counts.get(name);
+		return count != null ? count : 0;
+	}
+
+	/**
+	 * Get the number of requests sent with each HTTP method
+	 *
+	 * @return map of methods to counts
+	 */
+	public synchronized Map<String, Long> getRequests() {
+		return new TreeMap<String, Long>(requests);
+	}
+
+	/**
+	 * Get the number of request body bytes sent
+	 *
+	 * @return bytes
+	 */
+	public synchronized long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * Get time requests waited on the rate limiter
+	 *
+	 * @return milliseconds
+	 */
+	public synchronized long getRateLimitWait() {
+		return rateLimitWait;
+	}
+
+	/**
+	 * Format the report as a JSON object
+	 *
+	 * @return JSON
+	 */
+	public synchronized String toJson() {
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.putAll(labels);
+		report.put("success", success);
+		report.put("durationMillis", duration);
+		report.put("phaseMillis", times);
+		report.put("files", counts);
+		report.put("requests", requests);
+		report.put("bytesSent", bytesSent);
+		report.put("rateLimitWaitMillis", rateLimitWait);
+		if (planned != null) {
+			report.put("plannedRequests", planned);
+			report.put("estimatedMillis", estimate);
+		}
+		return GsonUtils.toJson(report, false);
+	}
+
+	/**
+	 * Format the report in the Prometheus text exposition format
+	 *
+	 * @return metrics
+	 */
+	public synchronized String toPrometheus() {
+		StringBuilder metrics = new StringBuilder();
+		String labels = formatLabels(null, null);
+		metric(metrics, "success", "Whether the deploy succeeded", "gauge");
+		metrics.append(METRIC_PREFIX).append("success").append(labels)
+				.append(' ').append(success ? 1 : 0).append('\n');
+		metric(metrics, "timestamp_seconds",
+				"Time the deploy started at in seconds since the epoch",
+				"gauge");
+		metrics.append(METRIC_PREFIX).append("timestamp_seconds")
+				.append(labels).append(' ').append(toSeconds(started))
+				.append('\n');
+		metric(metrics, "duration_seconds", "Duration of the deploy",
+				"gauge");
+		metrics.append(METRIC_PREFIX).append("duration_seconds")
+				.append(labels).append(' ').append(toSeconds(duration))
+				.append('\n');
+		metric(metrics, "phase_seconds",
+				"Time spent on each phase, summed over threads for hash and upload",
+				"gauge");
+		for (Entry<String, Long> time : times.entrySet())
+			metrics.append(METRIC_PREFIX).append("phase_seconds")
+					.append(formatLabels("phase", time.getKey())).append(' ')
+					.append(toSeconds(time.getValue())).append('\n');
+		metric(metrics, "files", "Number of files in each state", "gauge");
+		for (Entry<String, Long> count : counts.entrySet())
+			metrics.append(METRIC_PREFIX).append("files")
+					.append(formatLabels("state", count.getKey())).append(' ')
+					.append(count.getValue()).append('\n');
+		metric(metrics, "requests", "Number of API requests by HTTP method",
+				"gauge");
+		for (Entry<String, Long> count : requests.entrySet())
+			metrics.append(METRIC_PREFIX).append("requests")
+					.append(formatLabels("method", count.getKey()))
+					.append(' ').append(count.getValue()).append('\n');
+		metric(metrics, "sent_bytes", "Number of request body bytes sent",
+				"gauge");
+		metrics.append(METRIC_PREFIX).append("sent_bytes").append(labels)
+				.append(' ').append(bytesSent).append('\n');
+		metric(metrics, "rate_limit_wait_seconds",
+				"Time requests waited on the rate limiter", "gauge");
+		metrics.append(METRIC_PREFIX).append("rate_limit_wait_seconds")
+				.append(labels).append(' ').append(toSeconds(rateLimitWait))
+				.append('\n');
+		if (planned != null) {
+			metric(metrics, "planned_requests",
+					"Number of content-creating requests a deploy would send",
+					"gauge");
+			for (Entry<String, Long> count : planned.entrySet())
+				metrics.append(METRIC_PREFIX).append("planned_requests")
+						.append(formatLabels("kind", count.getKey()))
+						.append(' ').append(count.getValue()).append('\n');
+			metric(metrics, "estimated_duration_seconds",
+					"Estimated duration of the planned requests", "gauge");
+			metrics.append(METRIC_PREFIX).append("estimated_duration_seconds")
+					.append(labels).append(' ').append(toSeconds(estimate))
+					.append('\n');
+		}
+		return metrics.toString();
+	}
+
+	private static void metric(StringBuilder metrics, String name,
+			String help, String type) {
+		metrics.append("# HELP ").append(METRIC_PREFIX).append(name)
+				.append(' ').append(help).append('\n');
+		metrics.append("# TYPE ").append(METRIC_PREFIX).append(name)
+				.append(' ').append(type).append('\n');
+	}
+
+	private static String toSeconds(long millis) {
+		return Double.toString(millis / 1000.0);
+	}
+
+	private String formatLabels(String name, String value) {
+		Map<String, String> all = new LinkedHashMap<String, String>(labels);
+		if (name != null)
+			all.put(name, value);
+		if (all.isEmpty())
+			return "";
+		StringBuilder formatted = new StringBuilder("{");
+		for (Entry<String, String> label : all.entrySet()) {
+			if (formatted.length() > 1)
+				formatted.append(',');
+			formatted.append(label.getKey()).append("=\"");
+			String labelValue = label.getValue();
+			for (int i = 0; i < labelValue.length(); i++) {
+				char c = labelValue.charAt(i);
+				if (c == '\\' || c == '"')
+					formatted.append('\\').append(c);
+				else if (c == '\n')
+					formatted.append("\\n");
+				else
+					formatted.append(c);
+			}
+			formatted.append('"');
+		}
+		return formatted.append('}').toString();
+	}
+
+	/**
+	 * Write the report to the given file, replacing it atomically so that a
+	 * collector never reads a partially written file
+	 *
+	 * @param file
+	 * @param prometheus
+	 *            true for the Prometheus format, false for JSON
+	 * @throws IOException
+	 */
+	public void write(File file, boolean prometheus) throws IOException {
+		String content = prometheus ? toPrometheus() : toJson() + '\n';
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException(MessageFormat.format(
+					"Unable to create directory {0}", parent));
+		// Unique so that concurrent builds never write the same temporary file
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		boolean replaced = false;
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(temp), UTF8));
+			try {
+				writer.write(content);
+			} finally {
+				writer.close();
+			}
+			DeployCache.replace(temp, file);
+			replaced = true;
+		} finally {
+			if (!replaced)
+				temp.delete();
+		}
+	}
+}
@@ -49,7 +49,6 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.List;
-import org.eclipse.egit.github.core.client.IGitHubConstants;
 
 /**
  * Base GitHub Mojo class to be extended.
@@ -134,6 +133,29 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 			log.info(message, throwable);
 	}
 
+	/**
+	 * Log given message at warn level
+	 *
+	 * @param message
+	 */
+	protected void warn(String message) {
+		final Log log = getLog();
+		if (log != null)
+			log.warn(message);
+	}
+
+	/**
+	 * Log given message and throwable at warn level
+	 *
+	 * @param message
+	 * @param throwable
+	 */
+	protected void warn(String message, Throwable throwable) {
+		final Log log = getLog();
+		if (log != null)
+			log.warn(message, throwable);
+	}
+
 	/**
 	 * Create client
 	 *
@@ -151,6 +173,23 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 			String password, String oauth2Token, String serverId,
 			Settings settings, MavenSession session)
 			throws MojoExecutionException {
+		// Reuse the client of an earlier execution in the same session
+		ClientRegistry registry = null;
+		String key = null;
+		if (session != null) {
+			registry = ClientRegistry.get(session);
+			Proxy configured = getProxy(settings, serverId, host);
+			key = ClientRegistry.getKey(host, userName, password, oauth2Token,
+					serverId, configured != null ? configured.getHost() + ':'
+							+ configured.getPort() : null);
+			GitHubClient existing = registry.getClient(key);
+			if (existing != null) {
+				if (isDebug())
+					debug("Reusing client created earlier in this session");
+				return existing;
+			}
+		}
+
 		GitHubClient client;
 		if (!StringUtils.isEmpty(host)) {
 			if (isDebug())
@@ -162,19 +201,7 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 		{
 			Proxy proxy = getProxy( settings, serverId, host );
 			if ( null != proxy )
-			{
-				try
-				{
-					SettingsDecrypter settingsDecrypter = container.lookup( SettingsDecrypter.class );
-					SettingsDecryptionResult result =
-						settingsDecrypter.decrypt( new DefaultSettingsDecryptionRequest( proxy ) );
-					proxy = result.getProxy();
-				}
-				catch ( ComponentLookupException cle )
-				{
-					throw new MojoExecutionException( "Unable to lookup SettingsDecrypter: " + cle.getMessage(), cle );
-				}
-			}
+				proxy = decrypt( proxy, registry );
 
 			if ( null != proxy ){
 				java.net.Proxy javaProxy = new java.net.Proxy(java.net.Proxy.Type.HTTP, new InetSocketAddress( proxy.getHost(), proxy.getPort()));
@@ -193,14 +220,91 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 			}
 		}
 
-		if (configureUsernamePassword(client, userName, password)
-				|| configureOAuth2Token(client, oauth2Token)
-				|| configureServerCredentials(client, serverId, settings,
+		if (!configureUsernamePassword(client, userName, password)
+				&& !configureOAuth2Token(client, oauth2Token)
+				&& !configureServerCredentials(client, serverId, settings,
 						session))
-			return client;
-		else
 			throw new MojoExecutionException(
 					"No authentication credentials configured");
+		configureClient(client);
+		return registry != null ? registry.putClient(key, client) : client;
+	}
+
+	/**
+	 * Configure a newly created client before later executions in the same
+	 * session reuse it
+	 * <p>
+	 * Subclasses can override to configure the rate limits and transport of
+	 * the client
+	 *
+	 * @param client
+	 */
+	protected void configureClient(GitHubClient client) {
+	}
+
+	/**
+	 * Get the settings decrypter
+	 *
+	 * @return non-null decrypter
+	 * @throws MojoExecutionException
+	 */
+	protected SettingsDecrypter getSettingsDecrypter()
+			throws MojoExecutionException {
+		try {
+			return container.lookup(SettingsDecrypter.class);
+		} catch (ComponentLookupException cle) {
+			throw new MojoExecutionException(
+					"Unable to lookup SettingsDecrypter: " + cle.getMessage(),
+					cle);
+		}
+	}
+
+	/**
+	 * Decrypt the given proxy, reusing the result of an earlier execution in
+	 * the same session
+	 *
+	 * @param proxy
+	 * @param registry
+	 *            may be null
+	 * @return decrypted proxy
+	 * @throws MojoExecutionException
+	 */
+	protected Proxy decrypt(final Proxy proxy, final ClientRegistry registry)
+			throws MojoExecutionException {
+		Proxy decrypted = registry != null ? registry.getDecrypted(proxy)
+				: null;
+		if (decrypted == null) {
+			SettingsDecryptionResult result = getSettingsDecrypter().decrypt(
+					new DefaultSettingsDecryptionRequest(proxy));
+			decrypted = result.getProxy();
+			if (registry != null)
+				registry.putDecrypted(proxy, decrypted);
+		}
+		return decrypted;
+	}
+
+	/**
+	 * Decrypt the given server, reusing the result of an earlier execution in
+	 * the same session
+	 *
+	 * @param server
+	 * @param registry
+	 *            may be null
+	 * @return decrypted server
+	 * @throws MojoExecutionException
+	 */
+	protected Server decrypt(final Server server, final ClientRegistry registry)
+			throws MojoExecutionException {
+		Server decrypted = registry != null ? registry.getDecrypted(server)
+				: null;
+		if (decrypted == null) {
+			SettingsDecryptionResult result = getSettingsDecrypter().decrypt(
+					new DefaultSettingsDecryptionRequest(server));
+			decrypted = result.getServer();
+			if (registry != null)
+				registry.putDecrypted(server, decrypted);
+		}
+		return decrypted;
 	}
 
 	/**
@@ -320,19 +424,8 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 				debug(MessageFormat.format("Using ''{0}'' server credentials",
 						serverId));
 
-			{
-				try
-				{
-					SettingsDecrypter settingsDecrypter = container.lookup( SettingsDecrypter.class );
-					SettingsDecryptionResult result =
-						settingsDecrypter.decrypt( new DefaultSettingsDecryptionRequest( server ) );
-					server = result.getServer();
-				}
-				catch ( ComponentLookupException cle )
-				{
-					throw new MojoExecutionException( "Unable to lookup SettingsDecrypter: " + cle.getMessage(), cle );
-				}
-			}
+			server = decrypt(server, session != null ? ClientRegistry
+					.get(session) : null);
 
 			serverUsername = server.getUsername();
 			serverPassword = server.getPassword();
@@ -414,55 +507,7 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 	 */
 	protected boolean matchNonProxy( final Proxy proxy, final String hostname )
 	{
-		String host = hostname;
-
-		if ( null == hostname )
-			host = IGitHubConstants.HOST_DEFAULT; // IGitHubConstants.HOST_API;
-
-		// code from org.apache.maven.plugins.site.AbstractDeployMojo#getProxyInfo
-		final String nonProxyHosts = proxy.getNonProxyHosts();
-		if ( null != nonProxyHosts )
-		{
-			final String[] nonProxies = nonProxyHosts.split( "(,)|(;)|(\\|)" );
-			if ( null != nonProxies )
-			{
-				for ( final String nonProxyHost : nonProxies )
-				{
-					//if ( StringUtils.contains( nonProxyHost, "*" ) )
-					if ( null != nonProxyHost && nonProxyHost.contains( "*" ) )
-					{
-						// Handle wildcard at the end, beginning or middle of the nonProxyHost
-						final int pos = nonProxyHost.indexOf( '*' );
-						String nonProxyHostPrefix = nonProxyHost.substring( 0, pos );
-						String nonProxyHostSuffix = nonProxyHost.substring( pos + 1 );
-						// prefix*
-						if ( !StringUtils.isEmpty( nonProxyHostPrefix ) && host.startsWith( nonProxyHostPrefix )
-							&& StringUtils.isEmpty( nonProxyHostSuffix ) )
-						{
-							return true;
-						}
-						// *suffix
-						if ( StringUtils.isEmpty( nonProxyHostPrefix ) && !StringUtils.isEmpty( nonProxyHostSuffix )
-							&& host.endsWith( nonProxyHostSuffix ) )
-						{
-							return true;
-						}
-						// prefix*suffix
-						if ( !StringUtils.isEmpty( nonProxyHostPrefix ) && host.startsWith( nonProxyHostPrefix )
-							&& !StringUtils.isEmpty( nonProxyHostSuffix ) && host.endsWith( nonProxyHostSuffix ) )
-						{
-							return true;
-						}
-					}
-					else if ( host.equals( nonProxyHost ) )
-					{
-						return true;
-					}
-				}
-			}
-		}
-
-		return false;
+		return ProxyRoutes.isNonProxyHost( proxy.getNonProxyHosts(), hostname );
 	}
 
 	/**
@@ -474,46 +519,12 @@ public abstract class GitHubProjectMojo extends AbstractMojo implements Contextu
 	 * @param host
 	 *            hostname
 	 * @return proxy or null if none matching
+	 * @see ProxyRoutes#getProxy(String, String)
 	 */
 	protected Proxy getProxy(final Settings settings, final String serverId, final String host) {
 		if (settings == null)
 			return null;
-		List<Proxy> proxies = settings.getProxies();
-		if (proxies == null || proxies.isEmpty())
-			return null;
-
-		// search id match first
-		if ( serverId != null && !serverId.isEmpty() ) {
-			for (Proxy proxy : proxies) {
-				if ( proxy.isActive() ) {
-					final String proxyId = proxy.getId();
-					if ( proxyId != null && !proxyId.isEmpty() ) {
-						if ( proxyId.equalsIgnoreCase(serverId) ) {
-							if ( ( "http".equalsIgnoreCase( proxy.getProtocol() ) || "https".equalsIgnoreCase( proxy.getProtocol() ) ) ) {
-								if ( matchNonProxy( proxy, host ) )
-									return null;
-								else
-									return proxy;
-							}
-						}
-					}
-				}
-			}
-		}
-
-		// search active proxy
-		for (Proxy proxy : proxies)
-			if ( proxy.isActive() &&
-					( "http".equalsIgnoreCase( proxy.getProtocol() ) || "https".equalsIgnoreCase( proxy.getProtocol() ) )
-					)
-			{
-				if ( matchNonProxy( proxy, host ) )
-					return null;
-				else
-					return proxy;
-			}
-
-		return null;
+		return ProxyRoutes.get(settings).getProxy(serverId, host);
 	}
 
 	@Requirement
@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.LinkedList;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limiter for GitHub API requests driven by the rate limit headers of
+ * the responses.
+ * <p>
+ * Content-creating requests are limited to a number of requests per minute and
+ * per hour. Both windows allow a burst up to their full size. All requests are
+ * paused when a response asks to retry later or the primary rate limit is
+ * exhausted, and are spread evenly over the rest of the rate limit window once
+ * few requests remain. The limiter disables itself when the host does not
+ * send rate limit headers, as GitHub Enterprise does with rate limiting
+ * turned off.
+ */
+public class GitHubRateLimiter {
+
+	/**
+	 * Default content-creating requests per minute, as per
+	 * https://github.com/octokit/octokit.net/issues/638#issuecomment-67795998
+	 */
+	public static final int DEFAULT_PER_MINUTE = 20;
+
+	/**
+	 * Default content-creating requests per hour, zero for no hourly limit
+	 */
+	public static final int DEFAULT_PER_HOUR = 0;
+
+	/**
+	 * HEADER_LIMIT
+	 */
+	public static final String HEADER_LIMIT = "X-RateLimit-Limit";
+
+	/**
+	 * HEADER_REMAINING
+	 */
+	public static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+
+	/**
+	 * HEADER_RESET
+	 */
+	public static final String HEADER_RESET = "X-RateLimit-Reset";
+
+	/**
+	 * HEADER_RETRY_AFTER
+	 */
+	public static final String HEADER_RETRY_AFTER = "Retry-After";
+
+	/**
+	 * Limit of the number of permits in any window of a fixed length
+	 */
+	private static class Window {
+
+		private final int permits;
+
+		private final long length;
+
+		private final LinkedList<Long> issued = new LinkedList<Long>();
+
+		Window(int permits, long length, Window previous) {
+			this.permits = permits;
+			this.length = length;
+			if (previous != null)
+				synchronized (previous) {
+					issued.addAll(previous.issued);
+				}
+		}
+
+		/**
+		 * Take a permit, sleeping without holding the lock of this window
+		 * until the oldest permit of a full window expires
+		 *
+		 * @param deadline
+		 *            time in milliseconds the permit must be taken by
+		 * @throws InterruptedException
+		 * @throws RateLimitExceededException
+		 *             if no permit is available before the deadline
+		 */
+		void acquire(long deadline) throws InterruptedException,
+				RateLimitExceededException {
+			if (permits <= 0)
+				return;
+			while (true) {
+				long wait;
+				synchronized (this) {
+					long now = System.currentTimeMillis();
+					while (!issued.isEmpty()
+							&& issued.getFirst() + length <= now)
+						issued.removeFirst();
+					if (issued.size() < permits) {
+						issued.addLast(now);
+						return;
+					}
+					long available = issued.getFirst() + length;
+					if (available > deadline)
+						throw new RateLimitExceededException(available);
+					wait = available - now;
+				}
+				Thread.sleep(wait);
+			}
+		}
+	}
+
+	private volatile boolean enabled = true;
+
+	private volatile boolean detected;
+
+	private volatile long pausedUntil;
+
+	private volatile long maxWait = Long.MAX_VALUE;
+
+	private volatile RateLimiter primary;
+
+	private volatile Window perMinute;
+
+	private volatile Window perHour;
+
+	private final AtomicLong waitTime = new AtomicLong();
+
+	private volatile long limit = -1;
+
+	private volatile long remaining = -1;
+
+	private volatile long reset;
+
+	/**
+	 * Create limiter with the default content-creating limits
+	 */
+	public GitHubRateLimiter() {
+		setContentLimits(DEFAULT_PER_MINUTE, DEFAULT_PER_HOUR);
+	}
+
+	/**
+	 * Set limits of content-creating requests, values of zero or less remove
+	 * the limit. Requests already issued count against the new limits.
+	 *
+	 * @param requestsPerMinute
+	 * @param requestsPerHour
+	 * @return this limiter
+	 */
+	public synchronized GitHubRateLimiter setContentLimits(
+			int requestsPerMinute, int requestsPerHour) {
+		// Requests issued under the previous limits still count so that
+		// changing the limits never grants a fresh allowance
+		perMinute = new Window(requestsPerMinute, 60 * 1000L, perMinute);
+		perHour = new Window(requestsPerHour, 60 * 60 * 1000L, perHour);
+		return this;
+	}
+
+	/**
+	 * Enable or disable the limiter
+	 *
+	 * @param enabled
+	 * @return this limiter
+	 */
+	public GitHubRateLimiter setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		return this;
+	}
+
+	/**
+	 * Is the limiter enabled?
+	 *
+	 * @return true if enabled, false otherwise
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Get time at which paused requests resume
+	 *
+	 * @return time in milliseconds, in the past if not paused
+	 */
+	public long getPausedUntil() {
+		return pausedUntil;
+	}
+
+	/**
+	 * Set the longest time a request that is not given its own maximum waits
+	 * for paused requests to resume, for its turn while the remaining
+	 * requests are spread over the rest of the window, or for a permit of the
+	 * content limits. Requests that would wait longer fail with a
+	 * {@link RateLimitExceededException} instead.
+	 *
+	 * @param maxWait
+	 *            milliseconds
+	 * @return this limiter
+	 */
+	public GitHubRateLimiter setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+		return this;
+	}
+
+	/**
+	 * Pause all requests until the given time
+	 *
+	 * @param time
+	 *            in milliseconds
+	 */
+	public void pauseUntil(long time) {
+		if (time > pausedUntil)
+			pausedUntil = time;
+	}
+
+	/**
+	 * Block until a request may be sent
+	 *
+	 * @param contentCreating
+	 *            true for requests that create content
+	 * @throws IOException
+	 *             if interrupted while waiting
+	 * @throws RateLimitExceededException
+	 *             if requests are paused for longer than the maximum wait
+	 */
+	public void acquire(boolean contentCreating) throws IOException {
+		acquire(contentCreating, maxWait);
+	}
+
+	/**
+	 * Block until a request may be sent, waiting at most the given time
+	 *
+	 * @param contentCreating
+	 *            true for requests that create content
+	 * @param maxWait
+	 *            milliseconds, overrides the maximum wait of this limiter
+	 * @throws IOException
+	 *             if interrupted while waiting
+	 * @throws RateLimitExceededException
+	 *             if requests are paused for longer than the maximum wait or
+	 *             the content limits allow no request within it
+	 */
+	public void acquire(boolean contentCreating, long maxWait)
+			throws IOException {
+		if (!enabled)
+			return;
+		long start = System.currentTimeMillis();
+		long deadline = maxWait < Long.MAX_VALUE - start ? start + maxWait
+				: Long.MAX_VALUE;
+		try {
+			long wait;
+			while ((wait = pausedUntil - System.currentTimeMillis()) > 0) {
+				if (wait > maxWait)
+					throw new RateLimitExceededException(pausedUntil);
+				Thread.sleep(wait);
+			}
+			RateLimiter limiter = primary;
+			if (limiter != null) {
+				// An unbounded timeout would overflow in the limiter
+				if (deadline == Long.MAX_VALUE)
+					limiter.acquire();
+				else if (!limiter.tryAcquire(1,
+						Math.max(0, deadline - System.currentTimeMillis()),
+						TimeUnit.MILLISECONDS))
+					throw new RateLimitExceededException(reset);
+			}
+			if (contentCreating) {
+				perMinute.acquire(deadline);
+				perHour.acquire(deadline);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+					"Interrupted waiting for GitHub rate limit");
+		} finally {
+			waitTime.addAndGet(System.currentTimeMillis() - start);
+		}
+	}
+
+	/**
+	 * Get total time requests waited on this limiter
+	 *
+	 * @return milliseconds
+	 */
+	public long getWaitTime() {
+		return waitTime.get();
+	}
+
+	/**
+	 * Get the number of requests per window last reported by the host
+	 *
+	 * @return limit, -1 if unknown
+	 */
+	public long getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Get the number of requests left in the current window last reported by
+	 * the host
+	 *
+	 * @return remaining requests, -1 if unknown
+	 */
+	public long getRemaining() {
+		return remaining;
+	}
+
+	/**
+	 * Get time at which the host resets the remaining requests
+	 *
+	 * @return time in milliseconds, zero if unknown
+	 */
+	public long getReset() {
+		return reset;
+	}
+
+	/**
+	 * Update the limiter from the headers of the given response
+	 *
+	 * @param response
+	 */
+	public void update(HttpURLConnection response) {
+		final long now = System.currentTimeMillis();
+		final long retryAfter = parseRetryAfter(
+				response.getHeaderField(HEADER_RETRY_AFTER), now);
+		if (retryAfter > now)
+			pauseUntil(retryAfter);
+
+		final long limit = parseLong(response.getHeaderField(HEADER_LIMIT));
+		if (limit < 0) {
+			// Hosts with rate limiting turned off never send the headers
+			if (!detected)
+				enabled = false;
+			return;
+		}
+		if (!detected) {
+			detected = true;
+			enabled = true;
+		}
+
+		final long remaining = parseLong(response
+				.getHeaderField(HEADER_REMAINING));
+		final long reset = parseLong(response.getHeaderField(HEADER_RESET)) * 1000L;
+		this.limit = limit;
+		this.remaining = remaining;
+		this.reset = reset;
+		if (remaining < 0 || reset <= now) {
+			primary = null;
+			return;
+		}
+		if (remaining == 0) {
+			pauseUntil(reset);
+			return;
+		}
+		// Spread the remaining requests over the rest of the window once
+		// less than a tenth of the limit is left
+		if (remaining > Math.max(1, limit / 10)) {
+			primary = null;
+			return;
+		}
+		final double rate = remaining * 1000.0 / (reset - now);
+		RateLimiter limiter = primary;
+		if (limiter == null)
+			primary = RateLimiter.create(rate);
+		else
+			limiter.setRate(rate);
+	}
+
+	/**
+	 * Parse the value of a Retry-After header, either a number of seconds or
+	 * an HTTP date
+	 *
+	 * @param value
+	 * @param now
+	 *            time in milliseconds the response was received
+	 * @return time in milliseconds to retry at, -1 if absent or invalid
+	 */
+	static long parseRetryAfter(String value, long now) {
+		if (value == null)
+			return -1;
+		long seconds = parseLong(value);
+		if (seconds >= 0)
+			return now + seconds * 1000L;
+		SimpleDateFormat format = new SimpleDateFormat(
+				"EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		try {
+			return format.parse(value.trim()).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+	private static long parseLong(String value) {
+		if (value == null)
+			return -1;
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
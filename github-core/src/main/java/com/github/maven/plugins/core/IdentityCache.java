@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.egit.github.core.CommitUser;
+
+/**
+ * On-disk cache of the commit identities of the users authenticated by
+ * previous builds. Identities are keyed by a hash of the host and credentials
+ * so that the credentials themselves are never written and expire after a
+ * configurable time.
+ */
+public class IdentityCache {
+
+	/**
+	 * Default time identities are cached for, one day
+	 */
+	public static final long DEFAULT_TTL = 24 * 60 * 60 * 1000L;
+
+	private static final String HEADER = "# github-maven-plugins identity cache v1";
+
+	private static final String UTF8 = "UTF-8";
+
+	private final File file;
+
+	private final long ttl;
+
+	private final Map<String, String[]> identities = new LinkedHashMap<String, String[]>();
+
+	/**
+	 * Create cache stored in given file
+	 *
+	 * @param file
+	 * @param ttl
+	 *            milliseconds identities are valid for
+	 */
+	public IdentityCache(File file, long ttl) {
+		this.file = file;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Get file the cache is stored in
+	 *
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Load the cache from disk, a missing file results in an empty cache
+	 *
+	 * @return this cache
+	 * @throws IOException
+	 */
+	public synchronized IdentityCache load() throws IOException {
+		identities.clear();
+		BufferedReader reader;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file), UTF8));
+		} catch (FileNotFoundException e) {
+			return this;
+		}
+		try {
+			if (!HEADER.equals(reader.readLine()))
+				return this;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				if (fields.length == 4)
+					identities.put(fields[0], fields);
+			}
+		} finally {
+			reader.close();
+		}
+		return this;
+	}
+
+	/**
+	 * Get the identity cached for the given key unless it has expired
+	 *
+	 * @param key
+	 * @return identity or null if not cached or expired
+	 */
+	public synchronized CommitUser get(String key) {
+		String[] fields = identities.get(key);
+		if (fields == null)
+			return null;
+		long resolved;
+		try {
+			resolved = Long.parseLong(fields[3]);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		long now = System.currentTimeMillis();
+		if (resolved > now || now - resolved >= ttl)
+			return null;
+		return new CommitUser().setName(fields[1]).setEmail(fields[2]);
+	}
+
+	/**
+	 * Cache the given identity for the given key
+	 *
+	 * @param key
+	 * @param identity
+	 */
+	public synchronized void put(String key, CommitUser identity) {
+		String name = identity.getName();
+		String email = identity.getEmail();
+		if (name == null || email == null || !isValid(name)
+				|| !isValid(email))
+			return;
+		identities.remove(key);
+		identities.put(key, new String[] { key, name, email,
+				Long.toString(System.currentTimeMillis()) });
+	}
+
+	private static boolean isValid(String value) {
+		return value.indexOf('\t') == -1 && value.indexOf('\n') == -1
+				&& value.indexOf('\r') == -1;
+	}
+
+	/**
+	 * Atomically write the cache to disk, dropping expired identities
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void save() throws IOException {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs())
+			throw new IOException(MessageFormat.format(
+					"Unable to create directory {0}", parent));
+		// Unique so that concurrent builds never write the same temporary file
+		File temp = File.createTempFile(file.getName(), ".tmp", parent);
+		boolean replaced = false;
+		try {
+			write(temp);
+			DeployCache.replace(temp, file);
+			replaced = true;
+		} finally {
+			if (!replaced)
+				temp.delete();
+		}
+	}
+
+	private void write(File temp) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(temp), UTF8));
+		try {
+			writer.write(HEADER);
+			writer.write('\n');
+			for (Entry<String, String[]> entry : identities.entrySet()) {
+				if (get(entry.getKey()) == null)
+					continue;
+				String[] fields = entry.getValue();
+				for (int i = 0; i < fields.length; i++) {
+					if (i > 0)
+						writer.write('\t');
+					writer.write(fields[i]);
+				}
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.eclipse.egit.github.core.CommitUser;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.UserService;
+
+/**
+ * Resolver of the commit identity of the user a client is authenticated as.
+ * <p>
+ * Lookups run in the background so that they overlap with scanning and
+ * uploading, and are shared by all executions in a session that use the same
+ * credentials.
+ */
+public class IdentityResolver {
+
+	/**
+	 * Domain of the e-mail address used when the user has no visible e-mail
+	 */
+	public static final String NOREPLY_DOMAIN = "users.noreply.github.com";
+
+	/**
+	 * Look up the identity of the user the given client is authenticated as
+	 * <p>
+	 * Tokens without the <code>user:email</code> scope cannot list e-mail
+	 * addresses, in which case the public e-mail address of the user or a
+	 * no-reply address is used.
+	 *
+	 * @param client
+	 * @return identity without a date
+	 * @throws IOException
+	 */
+	public static CommitUser lookup(GitHubClient client) throws IOException {
+		UserService service = new UserService(client);
+		User user = service.getUser();
+		String email = null;
+		try {
+			List<String> emails = service.getEmails();
+			if (emails != null && !emails.isEmpty())
+				email = emails.get(0);
+		} catch (RequestException e) {
+			email = null;
+		}
+		if (StringUtils.isEmpty(email))
+			email = user.getEmail();
+		if (StringUtils.isEmpty(email))
+			email = user.getLogin() + '@' + NOREPLY_DOMAIN;
+		String name = user.getName();
+		if (StringUtils.isEmpty(name))
+			name = user.getLogin();
+		return new CommitUser().setName(name).setEmail(email);
+	}
+
+	/**
+	 * Start resolving the identity of the user the given client is
+	 * authenticated as
+	 *
+	 * @param client
+	 * @param registry
+	 *            registry of the session, may be null
+	 * @param cache
+	 *            on-disk cache, may be null, only used for clients
+	 *            authenticated with a token
+	 * @return future identity
+	 */
+	public static Future<CommitUser> resolve(final GitHubClient client,
+			final ClientRegistry registry, final IdentityCache cache) {
+		final String key;
+		final String storableKey;
+		if (client instanceof GitHubClientEgit) {
+			key = ((GitHubClientEgit) client).getCredentialsKey();
+			storableKey = ((GitHubClientEgit) client)
+					.getStorableCredentialsKey();
+		} else {
+			key = null;
+			storableKey = null;
+		}
+		final CommitUser cached = storableKey != null && cache != null ? cache
+				.get(storableKey) : null;
+		FutureTask<CommitUser> task = new FutureTask<CommitUser>(
+				new Callable<CommitUser>() {
+
+					public CommitUser call() throws Exception {
+						if (cached != null)
+							return cached;
+						CommitUser identity = lookup(client);
+						if (storableKey != null && cache != null) {
+							cache.put(storableKey, identity);
+							try {
+								cache.save();
+							} catch (IOException ignored) {
+								// Resolved again by the next build
+							}
+						}
+						return identity;
+					}
+				});
+		if (key != null && registry != null) {
+			Future<CommitUser> registered = registry.putIdentity(key, task);
+			if (registered != task)
+				return registered;
+		}
+		if (cached != null)
+			task.run();
+		else {
+			Thread thread = new Thread(task, "github-identity-lookup");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		return task;
+	}
+}
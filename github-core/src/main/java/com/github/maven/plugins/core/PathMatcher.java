@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Include and exclude patterns compiled once and matched against paths
+ * relative to a base directory.
+ * <p>
+ * Paths match exactly like plexus <code>DirectoryScanner</code> matches them
+ * without default excludes. Patterns are split into segments once instead of
+ * on every match, segments without wildcards are compared directly, and
+ * directories whose every descendant is excluded can be skipped without being
+ * listed.
+ */
+public class PathMatcher {
+
+	private static final String REGEX_PREFIX = "%regex[";
+
+	private static final String ANT_PREFIX = "%ant[";
+
+	private static final String SUFFIX = "]";
+
+	private static final String ANY_PATH = "**";
+
+	private static final Map<List<List<String>>, PathMatcher> MATCHERS = new ConcurrentHashMap<List<List<String>>, PathMatcher>();
+
+	/**
+	 * Get the compiled matcher for the given patterns. Matchers are immutable
+	 * and shared by all callers using the same patterns.
+	 *
+	 * @param includes
+	 *            patterns to include, all paths if null or empty
+	 * @param excludes
+	 *            patterns to exclude, may be null
+	 * @return matcher
+	 */
+	public static PathMatcher compile(final String[] includes,
+			final String[] excludes) {
+		List<List<String>> key = new ArrayList<List<String>>(2);
+		key.add(includes != null ? new ArrayList<String>(Arrays
+				.asList(includes)) : new ArrayList<String>());
+		key.add(excludes != null ? new ArrayList<String>(Arrays
+				.asList(excludes)) : new ArrayList<String>());
+		PathMatcher matcher = MATCHERS.get(key);
+		if (matcher == null) {
+			matcher = new PathMatcher(includes, excludes);
+			MATCHERS.put(key, matcher);
+		}
+		return matcher;
+	}
+
+	/**
+	 * Normalize pattern the same way plexus <code>AbstractScanner</code> does
+	 *
+	 * @param pattern
+	 * @return normalized pattern
+	 */
+	static String normalizePattern(String pattern) {
+		pattern = pattern.trim();
+		if (pattern.startsWith(REGEX_PREFIX)) {
+			if (File.separatorChar == '\\')
+				return pattern.replace("/", "\\\\");
+			else
+				return pattern.replace("\\\\", "/");
+		}
+		pattern = pattern.replace(File.separatorChar == '/' ? '\\' : '/',
+				File.separatorChar);
+		if (pattern.endsWith(File.separator))
+			pattern += ANY_PATH;
+		return pattern;
+	}
+
+	private static boolean isHandler(String pattern, String prefix) {
+		return pattern.length() > prefix.length() + SUFFIX.length()
+				&& pattern.startsWith(prefix) && pattern.endsWith(SUFFIX);
+	}
+
+	private static String[] tokenize(String path) {
+		StringTokenizer tokenizer = new StringTokenizer(path, File.separator);
+		String[] tokens = new String[tokenizer.countTokens()];
+		for (int i = 0; i < tokens.length; i++)
+			tokens[i] = tokenizer.nextToken();
+		return tokens;
+	}
+
+	/**
+	 * Single compiled pattern
+	 */
+	private static class CompiledPattern {
+
+		final String source;
+
+		final Pattern regex;
+
+		final boolean absolute;
+
+		final String[] segments;
+
+		final boolean[] literal;
+
+		CompiledPattern(String source) {
+			this.source = source;
+			if (isHandler(source, REGEX_PREFIX)) {
+				regex = Pattern.compile(source.substring(
+						REGEX_PREFIX.length(),
+						source.length() - SUFFIX.length()));
+				absolute = false;
+				segments = null;
+				literal = null;
+				return;
+			}
+			regex = null;
+			String pattern = source;
+			if (isHandler(pattern, ANT_PREFIX))
+				pattern = pattern.substring(ANT_PREFIX.length(),
+						pattern.length() - SUFFIX.length());
+			absolute = pattern.startsWith(File.separator);
+			segments = tokenize(pattern);
+			literal = new boolean[segments.length];
+			for (int i = 0; i < segments.length; i++)
+				literal[i] = segments[i].indexOf('*') == -1
+						&& segments[i].indexOf('?') == -1;
+		}
+
+		boolean endsWithAnyPath() {
+			return segments != null && segments.length > 0
+					&& ANY_PATH.equals(segments[segments.length - 1]);
+		}
+
+		private boolean match(int segment, String token) {
+			if (literal[segment])
+				return segments[segment].equals(token);
+			return SelectorUtils.match(segments[segment], token, true);
+		}
+
+		private boolean isAnyPath(int segment) {
+			return ANY_PATH.equals(segments[segment]);
+		}
+
+		/**
+		 * Match the complete path, mirrors plexus
+		 * <code>SelectorUtils.matchPath</code>
+		 */
+		boolean matchPath(String path, boolean absolutePath, String[] tokens) {
+			if (regex != null)
+				return regex.matcher(path).matches();
+			if (absolute != absolutePath)
+				return false;
+
+			int patStart = 0;
+			int patEnd = segments.length - 1;
+			int strStart = 0;
+			int strEnd = tokens.length - 1;
+
+			// Up to the first **
+			while (patStart <= patEnd && strStart <= strEnd) {
+				if (isAnyPath(patStart))
+					break;
+				if (!match(patStart, tokens[strStart]))
+					return false;
+				patStart++;
+				strStart++;
+			}
+			if (strStart > strEnd)
+				return onlyAnyPath(patStart, patEnd);
+			if (patStart > patEnd)
+				return false;
+
+			// Up to the last **
+			while (patStart <= patEnd && strStart <= strEnd) {
+				if (isAnyPath(patEnd))
+					break;
+				if (!match(patEnd, tokens[strEnd]))
+					return false;
+				patEnd--;
+				strEnd--;
+			}
+			if (strStart > strEnd)
+				return onlyAnyPath(patStart, patEnd);
+
+			// Segments between pairs of **
+			while (patStart != patEnd && strStart <= strEnd) {
+				int patNext = -1;
+				for (int i = patStart + 1; i <= patEnd; i++)
+					if (isAnyPath(i)) {
+						patNext = i;
+						break;
+					}
+				if (patNext == patStart + 1) {
+					patStart++;
+					continue;
+				}
+				int patLength = patNext - patStart - 1;
+				int strLength = strEnd - strStart + 1;
+				int found = -1;
+				search: for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++)
+						if (!match(patStart + j + 1, tokens[strStart + i + j]))
+							continue search;
+					found = strStart + i;
+					break;
+				}
+				if (found == -1)
+					return false;
+				patStart = patNext;
+				strStart = found + patLength;
+			}
+			return onlyAnyPath(patStart, patEnd);
+		}
+
+		private boolean onlyAnyPath(int start, int end) {
+			for (int i = start; i <= end; i++)
+				if (!isAnyPath(i))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Could the pattern match a path below the given directory, mirrors
+		 * plexus <code>SelectorUtils.matchPatternStart</code>
+		 */
+		boolean matchPatternStart(String path, boolean absolutePath,
+				String[] tokens) {
+			if (regex != null)
+				return true;
+			// Paths are also matched with backslashes replaced by forward
+			// slashes, only the plexus implementation handles that
+			if (File.separatorChar == '\\' || path.indexOf('\\') != -1)
+				return SelectorUtils.matchPatternStart(source, path, true);
+			if (absolute != absolutePath)
+				return false;
+			int patStart = 0;
+			int strStart = 0;
+			while (patStart < segments.length && strStart < tokens.length) {
+				if (isAnyPath(patStart))
+					break;
+				if (!match(patStart, tokens[strStart]))
+					return false;
+				patStart++;
+				strStart++;
+			}
+			return strStart >= tokens.length || patStart < segments.length;
+		}
+	}
+
+	private final CompiledPattern[] includes;
+
+	private final CompiledPattern[] excludes;
+
+	private final CompiledPattern[] subtreeExcludes;
+
+	private PathMatcher(final String[] includes, final String[] excludes) {
+		this.includes = includes != null && includes.length > 0 ? compilePatterns(includes)
+				: new CompiledPattern[] { new CompiledPattern(ANY_PATH) };
+		this.excludes = compilePatterns(excludes);
+		List<CompiledPattern> subtree = new ArrayList<CompiledPattern>();
+		for (CompiledPattern exclude : this.excludes)
+			if (exclude.endsWithAnyPath())
+				subtree.add(exclude);
+		subtreeExcludes = subtree.toArray(new CompiledPattern[subtree.size()]);
+	}
+
+	private static CompiledPattern[] compilePatterns(String[] patterns) {
+		List<CompiledPattern> compiled = new ArrayList<CompiledPattern>();
+		if (patterns != null)
+			for (String pattern : patterns)
+				if (pattern != null)
+					compiled.add(new CompiledPattern(normalizePattern(pattern)));
+		return compiled.toArray(new CompiledPattern[compiled.size()]);
+	}
+
+	private static boolean matchAny(CompiledPattern[] patterns, String path,
+			String[] tokens) {
+		boolean absolute = path.startsWith(File.separator);
+		for (CompiledPattern pattern : patterns)
+			if (pattern.matchPath(path, absolute, tokens))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Is the given path matched by an include pattern?
+	 *
+	 * @param path
+	 * @return true if included, false otherwise
+	 */
+	public boolean isIncluded(String path) {
+		return matchAny(includes, path, tokenize(path));
+	}
+
+	/**
+	 * Is the given path matched by an exclude pattern?
+	 *
+	 * @param path
+	 * @return true if excluded, false otherwise
+	 */
+	public boolean isExcluded(String path) {
+		return matchAny(excludes, path, tokenize(path));
+	}
+
+	/**
+	 * Is the given file path included and not excluded?
+	 *
+	 * @param path
+	 * @return true if matching, false otherwise
+	 */
+	public boolean matches(String path) {
+		String[] tokens = tokenize(path);
+		return matchAny(includes, path, tokens)
+				&& !matchAny(excludes, path, tokens);
+	}
+
+	/**
+	 * Could an include pattern match a path below the given directory?
+	 *
+	 * @param directory
+	 * @return true if possible, false otherwise
+	 */
+	public boolean couldHoldIncluded(String directory) {
+		String[] tokens = tokenize(directory);
+		boolean absolute = directory.startsWith(File.separator);
+		for (CompiledPattern include : includes)
+			if (include.matchPatternStart(directory, absolute, tokens))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Is every path below the given directory excluded? This is the case when
+	 * the directory matches an exclude pattern ending with <code>**</code>.
+	 *
+	 * @param directory
+	 * @return true if excluded, false otherwise
+	 */
+	public boolean isSubtreeExcluded(String directory) {
+		return matchAny(subtreeExcludes, directory, tokenize(directory));
+	}
+
+	/**
+	 * Does the given directory need to be listed to find all matching paths?
+	 *
+	 * @param directory
+	 * @return true to list, false to skip
+	 */
+	public boolean isScanned(String directory) {
+		if (isSubtreeExcluded(directory))
+			return false;
+		String[] tokens = tokenize(directory);
+		if (matchAny(includes, directory, tokens)
+				&& !matchAny(excludes, directory, tokens))
+			return true;
+		return couldHoldIncluded(directory);
+	}
+}
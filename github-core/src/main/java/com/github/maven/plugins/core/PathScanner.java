@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scanner of the files below a base directory matching include and exclude
+ * patterns. Directories are listed in parallel and matching paths are handed
+ * out as soon as they are found. Listing pauses while
+ * {@link #MAX_QUEUED} found paths wait to be handed out.
+ * <p>
+ * Paths are matched by a {@link PathMatcher} and so are the same paths plexus
+ * <code>DirectoryScanner</code> finds without default excludes. They are
+ * relative to the base directory and use the platform separator. Directories
+ * whose every path is excluded are not listed.
+ */
+public class PathScanner {
+
+	/**
+	 * Default number of directories listed concurrently
+	 */
+	public static final int DEFAULT_THREADS = Math.max(1, Math.min(8, Runtime
+			.getRuntime().availableProcessors()));
+
+	/**
+	 * Maximum number of found paths waiting to be handed out
+	 */
+	public static final int MAX_QUEUED = 4096;
+
+	/**
+	 * Marker queued once the last directory has been listed
+	 */
+	private static final String END = new String();
+
+	private static final AtomicInteger SCANNERS = new AtomicInteger();
+
+	private final File baseDir;
+
+	private final PathMatcher matcher;
+
+	private final int threads;
+
+	/**
+	 * Create scanner
+	 *
+	 * @param baseDir
+	 * @param includes
+	 *            patterns to include, all files if null or empty
+	 * @param excludes
+	 *            patterns to exclude, may be null
+	 * @param threads
+	 *            number of directories to list concurrently
+	 */
+	public PathScanner(final String baseDir, final String[] includes,
+			final String[] excludes, final int threads) {
+		this(baseDir, PathMatcher.compile(includes, excludes), threads);
+	}
+
+	/**
+	 * Create scanner
+	 *
+	 * @param baseDir
+	 * @param matcher
+	 * @param threads
+	 *            number of directories to list concurrently
+	 */
+	public PathScanner(final String baseDir, final PathMatcher matcher,
+			final int threads) {
+		this.baseDir = new File(baseDir);
+		this.matcher = matcher;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Start scanning the base directory
+	 *
+	 * @return iterator over the matching paths in no particular order, blocks
+	 *         until the next path is found or the scan completes. Close it
+	 *         to stop a scan that is not iterated to the end.
+	 * @throws IllegalStateException
+	 *             if the base directory does not exist or is not a directory
+	 */
+	public Scan scan() {
+		if (!baseDir.exists())
+			throw new IllegalStateException("basedir " + baseDir
+					+ " does not exist");
+		if (!baseDir.isDirectory())
+			throw new IllegalStateException("basedir " + baseDir
+					+ " is not a directory");
+		return new Scan().start();
+	}
+
+	/**
+	 * Scan the base directory and return all matching paths sorted
+	 *
+	 * @return non-null but possibly empty array of paths
+	 */
+	public String[] getMatchingPaths() {
+		List<String> paths = new ArrayList<String>();
+		Scan scan = scan();
+		try {
+			while (scan.hasNext())
+				paths.add(scan.next());
+		} finally {
+			scan.close();
+		}
+		Collections.sort(paths);
+		return paths.toArray(new String[paths.size()]);
+	}
+
+	/**
+	 * Single scan of the base directory
+	 */
+	public class Scan implements Iterator<String>, Closeable {
+
+		private final BlockingQueue<String> found = new ArrayBlockingQueue<String>(
+				MAX_QUEUED);
+
+		private final AtomicInteger pending = new AtomicInteger();
+
+		private final ExecutorService executor;
+
+		private volatile RuntimeException failure;
+
+		private volatile boolean closed;
+
+		private String next;
+
+		private boolean done;
+
+		private Scan() {
+			final String prefix = "github-scanner-"
+					+ SCANNERS.incrementAndGet() + '-';
+			final AtomicInteger count = new AtomicInteger();
+			executor = Executors.newFixedThreadPool(threads,
+					new ThreadFactory() {
+
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, prefix
+									+ count.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+
+		Scan start() {
+			submit(baseDir, "");
+			return this;
+		}
+
+		private void submit(final File directory, final String relative) {
+			pending.incrementAndGet();
+			try {
+				executor.execute(new Runnable() {
+
+					public void run() {
+						try {
+							if (failure == null && !closed)
+								list(directory, relative);
+						} catch (InterruptedException e) {
+							// Closed while waiting for the paths to be taken
+						} catch (RuntimeException e) {
+							failure = e;
+						} catch (Error e) {
+							failure = new IllegalStateException(e);
+						} finally {
+							if (pending.decrementAndGet() == 0) {
+								executor.shutdown();
+								if (!closed)
+									try {
+										found.put(END);
+									} catch (InterruptedException e) {
+										// Closed, nothing takes the end
+									}
+							}
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// Closed while listing
+				pending.decrementAndGet();
+			}
+		}
+
+		private void list(File directory, String relative)
+				throws InterruptedException {
+			String[] names = directory.list();
+			if (names == null)
+				return;
+			for (String name : names) {
+				if (closed)
+					return;
+				String path = relative + name;
+				File file = new File(directory, name);
+				if (file.isDirectory()) {
+					if (matcher.isScanned(path))
+						submit(file, path + File.separator);
+				} else if (file.isFile() && matcher.matches(path))
+					found.put(path);
+			}
+		}
+
+		/**
+		 * Stop the scan, interrupting the threads listing directories or
+		 * waiting for paths to be taken. No more paths are handed out.
+		 */
+		public void close() {
+			closed = true;
+			done = true;
+			next = null;
+			executor.shutdownNow();
+			found.clear();
+		}
+
+		public boolean hasNext() {
+			if (next != null)
+				return true;
+			if (done)
+				return false;
+			String path;
+			try {
+				path = found.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new IllegalStateException("Interrupted scanning "
+						+ baseDir, e);
+			}
+			if (path == END) {
+				done = true;
+				if (failure != null)
+					throw failure;
+				return false;
+			}
+			next = path;
+			return true;
+		}
+
+		public String next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			String path = next;
+			next = null;
+			return path;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -21,8 +21,6 @@
  */
 package com.github.maven.plugins.core;
 
-import org.codehaus.plexus.util.DirectoryScanner;
-
 /**
  * Path utilities
  *
@@ -41,13 +39,24 @@ public class PathUtils {
 	 */
 	public static String[] getMatchingPaths(final String[] includes,
 			final String[] excludes, final String baseDir) {
-		final DirectoryScanner scanner = new DirectoryScanner();
-		scanner.setBasedir(baseDir);
-		if (includes != null && includes.length > 0)
-			scanner.setIncludes(includes);
-		if (excludes != null && excludes.length > 0)
-			scanner.setExcludes(excludes);
-		scanner.scan();
-		return scanner.getIncludedFiles();
+		return getMatchingPaths(includes, excludes, baseDir,
+				PathScanner.DEFAULT_THREADS);
+	}
+
+	/**
+	 * Get matching paths found in given base directory listing the given
+	 * number of directories concurrently
+	 *
+	 * @param includes
+	 * @param excludes
+	 * @param baseDir
+	 * @param threads
+	 * @return non-null but possibly empty array of string paths relative to the
+	 *         base directory, sorted
+	 */
+	public static String[] getMatchingPaths(final String[] includes,
+			final String[] excludes, final String baseDir, final int threads) {
+		return new PathScanner(baseDir, includes, excludes, threads)
+				.getMatchingPaths();
 	}
 }
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.settings.Proxy;
+import org.apache.maven.settings.Settings;
+import org.eclipse.egit.github.core.client.IGitHubConstants;
+
+/**
+ * Immutable routing table compiled from the proxies of Maven settings.
+ * <p>
+ * The {@code nonProxyHosts} of every proxy are parsed once into patterns that
+ * may contain any number of {@code *} wildcards and match host names ignoring
+ * case. The proxy selected for a server and host is cached so repeated
+ * lookups by the clients of a reactor do no matching at all.
+ */
+public class ProxyRoutes {
+
+	private static final Map<Settings, ProxyRoutes> ROUTES = new WeakHashMap<Settings, ProxyRoutes>();
+
+	private static final ConcurrentMap<String, HostPattern[]> PATTERNS = new ConcurrentHashMap<String, HostPattern[]>();
+
+	/**
+	 * Cached result of a lookup that selected no proxy
+	 */
+	private static final Proxy DIRECT = new Proxy();
+
+	/**
+	 * Get the routing table of the given settings, compiling it on first use
+	 *
+	 * @param settings
+	 * @return non-null routing table
+	 */
+	public static ProxyRoutes get(Settings settings) {
+		synchronized (ROUTES) {
+			ProxyRoutes routes = ROUTES.get(settings);
+			if (routes == null) {
+				routes = new ProxyRoutes(settings.getProxies());
+				ROUTES.put(settings, routes);
+			}
+			return routes;
+		}
+	}
+
+	/**
+	 * Does the given host match the given {@code nonProxyHosts} value?
+	 *
+	 * @param nonProxyHosts
+	 *            host patterns separated by {@code |}, {@code ,} or {@code ;},
+	 *            may be null
+	 * @param host
+	 * @return true if matching, false otherwise
+	 */
+	public static boolean isNonProxyHost(String nonProxyHosts, String host) {
+		if (nonProxyHosts == null)
+			return false;
+		return matches(compile(nonProxyHosts), host);
+	}
+
+	private static HostPattern[] compile(String nonProxyHosts) {
+		HostPattern[] compiled = PATTERNS.get(nonProxyHosts);
+		if (compiled != null)
+			return compiled;
+		List<HostPattern> patterns = new ArrayList<HostPattern>();
+		for (String pattern : nonProxyHosts.split("[,;|]")) {
+			pattern = pattern.trim();
+			if (pattern.length() > 0)
+				patterns.add(new HostPattern(pattern));
+		}
+		compiled = patterns.toArray(new HostPattern[patterns.size()]);
+		HostPattern[] existing = PATTERNS.putIfAbsent(nonProxyHosts, compiled);
+		return existing != null ? existing : compiled;
+	}
+
+	private static boolean matches(HostPattern[] patterns, String host) {
+		if (patterns.length == 0)
+			return false;
+		String normalized = (host != null ? host
+				: IGitHubConstants.HOST_DEFAULT).toLowerCase(Locale.ENGLISH);
+		for (HostPattern pattern : patterns)
+			if (pattern.matches(normalized))
+				return true;
+		return false;
+	}
+
+	private static boolean isHttp(Proxy proxy) {
+		return "http".equalsIgnoreCase(proxy.getProtocol())
+				|| "https".equalsIgnoreCase(proxy.getProtocol());
+	}
+
+	/**
+	 * Host name pattern whose {@code *} wildcards match any characters
+	 */
+	static class HostPattern {
+
+		private final String[] parts;
+
+		HostPattern(String pattern) {
+			parts = pattern.toLowerCase(Locale.ENGLISH).split("\\*", -1);
+		}
+
+		/**
+		 * @param host
+		 *            lower case host name
+		 * @return true if matching, false otherwise
+		 */
+		boolean matches(String host) {
+			if (parts.length == 1)
+				return host.equals(parts[0]);
+			String last = parts[parts.length - 1];
+			if (!host.startsWith(parts[0]) || !host.endsWith(last))
+				return false;
+			int start = parts[0].length();
+			int end = host.length() - last.length();
+			if (start > end)
+				return false;
+			for (int i = 1; i < parts.length - 1; i++) {
+				int found = host.indexOf(parts[i], start);
+				if (found == -1 || found + parts[i].length() > end)
+					return false;
+				start = found + parts[i].length();
+			}
+			return true;
+		}
+	}
+
+	private final List<Proxy> proxies = new ArrayList<Proxy>();
+
+	private final List<HostPattern[]> nonProxyHosts = new ArrayList<HostPattern[]>();
+
+	private final ConcurrentMap<String, Proxy> selected = new ConcurrentHashMap<String, Proxy>();
+
+	/**
+	 * Compile the active HTTP and HTTPS proxies of the given list
+	 *
+	 * @param proxies
+	 *            may be null
+	 */
+	public ProxyRoutes(List<Proxy> proxies) {
+		if (proxies != null)
+			for (Proxy proxy : proxies)
+				if (proxy.isActive() && isHttp(proxy)) {
+					String hosts = proxy.getNonProxyHosts();
+					this.proxies.add(proxy);
+					this.nonProxyHosts.add(hosts != null ? compile(hosts)
+							: new HostPattern[0]);
+				}
+	}
+
+	/**
+	 * Get the proxy to connect to the given host through. The first proxy
+	 * whose id matches the server id is used, or else the first proxy, unless
+	 * the host matches the non-proxy hosts of that proxy.
+	 *
+	 * @param serverId
+	 *            may be null
+	 * @param host
+	 *            host name, null for the default GitHub host
+	 * @return proxy or null if none
+	 */
+	public Proxy getProxy(String serverId, String host) {
+		String key = serverId + '\n' + host;
+		Proxy proxy = selected.get(key);
+		if (proxy == null) {
+			proxy = select(serverId, host);
+			selected.putIfAbsent(key, proxy != null ? proxy : DIRECT);
+		} else if (proxy == DIRECT)
+			proxy = null;
+		return proxy;
+	}
+
+	private Proxy select(String serverId, String host) {
+		int index = -1;
+		if (serverId != null && serverId.length() > 0)
+			for (int i = 0; i < proxies.size(); i++)
+				if (serverId.equalsIgnoreCase(proxies.get(i).getId())) {
+					index = i;
+					break;
+				}
+		if (index == -1 && !proxies.isEmpty())
+			index = 0;
+		if (index == -1 || matches(nonProxyHosts.get(index), host))
+			return null;
+		return proxies.get(index);
+	}
+
+	/**
+	 * Get a selector routing connections of the given server through this
+	 * table, for transports that select proxies by URI
+	 *
+	 * @param serverId
+	 *            may be null
+	 * @return non-null selector
+	 */
+	public ProxySelector getSelector(final String serverId) {
+		return new ProxySelector() {
+
+			public List<java.net.Proxy> select(URI uri) {
+				Proxy proxy = getProxy(serverId, uri.getHost());
+				if (proxy == null)
+					return Collections.singletonList(java.net.Proxy.NO_PROXY);
+				return Collections.singletonList(new java.net.Proxy(
+						java.net.Proxy.Type.HTTP, InetSocketAddress
+								.createUnresolved(proxy.getHost(),
+										proxy.getPort())));
+			}
+
+			public void connectFailed(URI uri, SocketAddress address,
+					IOException e) {
+				// Routes are static, there is no other proxy to fall back to
+			}
+		};
+	}
+}
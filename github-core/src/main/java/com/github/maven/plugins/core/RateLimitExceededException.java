@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Date;
+
+/**
+ * Exception thrown instead of waiting for a rate limit that resets later
+ * than a request is allowed to wait
+ */
+public class RateLimitExceededException extends IOException {
+
+	private static final long serialVersionUID = -3166364521346815744L;
+
+	private final long reset;
+
+	/**
+	 * Create exception for a rate limit that resets at the given time
+	 *
+	 * @param reset
+	 *            time in milliseconds
+	 */
+	public RateLimitExceededException(long reset) {
+		super(MessageFormat.format("GitHub rate limit exhausted until {0}",
+				new Date(reset)));
+		this.reset = reset;
+	}
+
+	/**
+	 * Get time at which requests may be sent again
+	 *
+	 * @return time in milliseconds
+	 */
+	public long getReset() {
+		return reset;
+	}
+}
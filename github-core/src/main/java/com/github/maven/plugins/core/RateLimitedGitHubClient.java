@@ -1,52 +1,387 @@
 package com.github.maven.plugins.core;
 
+import com.github.maven.plugins.core.RetryPolicy.Request;
 import com.github.maven.plugins.core.egit.GitHubClientEgit;
-import com.google.common.util.concurrent.RateLimiter;
+import com.github.maven.plugins.core.egit.HttpTransport;
+import com.github.maven.plugins.core.egit.RequestEntity;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
 
 public class RateLimitedGitHubClient extends GitHubClientEgit {
 
     /**
-     * AS per https://github.com/octokit/octokit.net/issues/638#issuecomment-67795998,
-     * it seems that GitHub only allow 20 API calls per 1-minute period
+     * Limiter shared by all requests sent through this client and updated from
+     * the rate limit headers of every response
+     */
+    private final GitHubRateLimiter rateLimiter;
+
+    /**
+     * Response of the last request sent on the current thread, used to decide
+     * whether a failed request can be retried
+     */
+    private final ThreadLocal<HttpURLConnection> responses = new ThreadLocal<HttpURLConnection>();
+
+    /**
+     * Retry policy of the deploy whose request is sent on the current thread
      */
-    private RateLimiter rateLimiter = RateLimiter.create(20.0/60.0);
+    private final ThreadLocal<RetryPolicy> policies = new ThreadLocal<RetryPolicy>();
+
+    /**
+     * Client sending the requests of this client, null if this client sends
+     * its own requests
+     */
+    private final RateLimitedGitHubClient shared;
+
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
 
     public RateLimitedGitHubClient() {
         super();
+        rateLimiter = new GitHubRateLimiter();
+        shared = null;
     }
 
     public RateLimitedGitHubClient(String hostname) {
         super(hostname);
+        rateLimiter = new GitHubRateLimiter();
+        shared = null;
     }
 
     public RateLimitedGitHubClient(String hostname, int port, String scheme) {
         super(hostname, port, scheme);
+        rateLimiter = new GitHubRateLimiter();
+        shared = null;
+    }
+
+    private RateLimitedGitHubClient(RateLimitedGitHubClient shared,
+            RetryPolicy retryPolicy) {
+        super();
+        this.rateLimiter = shared.rateLimiter;
+        this.shared = shared;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Create a client for a single deploy that sends its requests through
+     * this client, and so shares its rate limiter, transport, and counters,
+     * but retries them and waits for rate limits with the given policy. Deploys
+     * sharing this client never change each other's policy.
+     *
+     * @param retryPolicy
+     * @return client
+     */
+    public RateLimitedGitHubClient forDeploy(RetryPolicy retryPolicy) {
+        return new RateLimitedGitHubClient(shared != null ? shared : this,
+                retryPolicy);
+    }
+
+    /**
+     * Execute the given request on the current thread with the given policy
+     *
+     * @param policy
+     * @param request
+     * @return response
+     * @throws IOException
+     */
+    private <V> V execute(RetryPolicy policy, Request<V> request)
+            throws IOException {
+        RetryPolicy previous = policies.get();
+        policies.set(policy);
+        try {
+            return request.execute();
+        } finally {
+            if (previous != null)
+                policies.set(previous);
+            else
+                policies.remove();
+        }
+    }
+
+    /**
+     * Get the retry policy of the request sent on the current thread
+     *
+     * @return policy
+     */
+    private RetryPolicy getPolicy() {
+        RetryPolicy policy = policies.get();
+        return policy != null ? policy : retryPolicy;
+    }
+
+    /**
+     * Acquire a permit for a request sent on the current thread
+     *
+     * @param contentCreating
+     * @throws IOException
+     */
+    private void acquire(boolean contentCreating) throws IOException {
+        RetryPolicy policy = policies.get();
+        if (policy != null)
+            rateLimiter.acquire(contentCreating, policy.getMaxResetWait());
+        else
+            rateLimiter.acquire(contentCreating);
+    }
+
+    /**
+     * Get the rate limiter of this client
+     *
+     * @return rate limiter
+     */
+    public GitHubRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Get the retry policy of this client
+     *
+     * @return retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the retry policy of the requests of this client that are not sent
+     * for a deploy
+     *
+     * @param retryPolicy
+     * @return this client
+     */
+    public RateLimitedGitHubClient setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Is a POST to the given URI safe to repeat? Blobs and trees are content
+     * addressed so creating them again yields the same object.
+     *
+     * @param uri
+     * @return true if idempotent, false otherwise
+     */
+    protected boolean isIdempotentPost(String uri) {
+        return uri.endsWith("/git/blobs") || uri.endsWith("/git/trees");
+    }
+
+    @Override
+    public GitHubResponse get(final GitHubRequest request) throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<GitHubResponse>() {
+
+                public GitHubResponse execute() throws IOException {
+                    return shared.get(request);
+                }
+            });
+        return getPolicy().execute(new Request<GitHubResponse>() {
+
+            public GitHubResponse execute() throws IOException {
+                return RateLimitedGitHubClient.super.get(request);
+            }
+        }, responses);
+    }
+
+    @Override
+    public InputStream getStream(final GitHubRequest request)
+            throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<InputStream>() {
+
+                public InputStream execute() throws IOException {
+                    return shared.getStream(request);
+                }
+            });
+        return super.getStream(request);
+    }
+
+    @Override
+    public void post(final String uri) throws IOException {
+        if (shared != null)
+            shared.execute(retryPolicy, new Request<Void>() {
+
+                public Void execute() throws IOException {
+                    shared.post(uri);
+                    return null;
+                }
+            });
+        else
+            super.post(uri);
+    }
+
+    @Override
+    public <V> V post(final String uri, final Object params, final Type type)
+            throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<V>() {
+
+                public V execute() throws IOException {
+                    return shared.<V> post(uri, params, type);
+                }
+            });
+        if (!isIdempotentPost(uri))
+            return super.post(uri, params, type);
+        return getPolicy().execute(new Request<V>() {
+
+            public V execute() throws IOException {
+                return RateLimitedGitHubClient.super.<V> post(uri, params, type);
+            }
+        }, responses);
+    }
+
+    @Override
+    public InputStream postStream(final String uri, final Object params)
+            throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<InputStream>() {
+
+                public InputStream execute() throws IOException {
+                    return shared.postStream(uri, params);
+                }
+            });
+        return super.postStream(uri, params);
+    }
+
+    @Override
+    public <V> V postEntity(final String uri, final RequestEntity entity,
+            final Type type) throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<V>() {
+
+                public V execute() throws IOException {
+                    return shared.<V> postEntity(uri, entity, type);
+                }
+            });
+        if (!isIdempotentPost(uri))
+            return super.postEntity(uri, entity, type);
+        return getPolicy().execute(new Request<V>() {
+
+            public V execute() throws IOException {
+                return RateLimitedGitHubClient.super.<V> postEntity(uri, entity,
+                        type);
+            }
+        }, responses);
+    }
+
+    @Override
+    public void put(final String uri) throws IOException {
+        if (shared != null)
+            shared.execute(retryPolicy, new Request<Void>() {
+
+                public Void execute() throws IOException {
+                    shared.put(uri);
+                    return null;
+                }
+            });
+        else
+            super.put(uri);
+    }
+
+    @Override
+    public <V> V put(final String uri, final Object params, final Type type)
+            throws IOException {
+        if (shared != null)
+            return shared.execute(retryPolicy, new Request<V>() {
+
+                public V execute() throws IOException {
+                    return shared.<V> put(uri, params, type);
+                }
+            });
+        return super.put(uri, params, type);
+    }
+
+    @Override
+    public void delete(final String uri, final Object params)
+            throws IOException {
+        if (shared != null)
+            shared.execute(retryPolicy, new Request<Void>() {
+
+                public Void execute() throws IOException {
+                    shared.delete(uri, params);
+                    return null;
+                }
+            });
+        else
+            super.delete(uri, params);
+    }
+
+    @Override
+    public String getUser() {
+        return shared != null ? shared.getUser() : super.getUser();
+    }
+
+    @Override
+    public int getRemainingRequests() {
+        return shared != null ? shared.getRemainingRequests() : super
+                .getRemainingRequests();
+    }
+
+    @Override
+    public int getRequestLimit() {
+        return shared != null ? shared.getRequestLimit() : super
+                .getRequestLimit();
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        return shared != null ? shared.getRequestCounts() : super
+                .getRequestCounts();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return shared != null ? shared.getBytesSent() : super.getBytesSent();
+    }
+
+    @Override
+    public HttpTransport getTransport() {
+        return shared != null ? shared.getTransport() : super.getTransport();
+    }
+
+    @Override
+    public String getCredentialsKey() {
+        return shared != null ? shared.getCredentialsKey() : super
+                .getCredentialsKey();
+    }
+
+    @Override
+    public String getStorableCredentialsKey() {
+        return shared != null ? shared.getStorableCredentialsKey() : super
+                .getStorableCredentialsKey();
     }
 
     @Override
     protected HttpURLConnection createDelete(String uri) throws IOException {
-        //rateLimiter.acquire();
+        acquire(false);
         return super.createDelete(uri);
     }
 
     @Override
     protected HttpURLConnection createGet(String uri) throws IOException {
-        //rateLimiter.acquire();
+        acquire(false);
         return super.createGet(uri);
     }
 
     @Override
     protected HttpURLConnection createPost(String uri) throws IOException {
-        rateLimiter.acquire();
+        acquire(true);
         return super.createPost(uri);
     }
 
     @Override
     protected HttpURLConnection createPut(String uri) throws IOException {
-        rateLimiter.acquire();
+        acquire(true);
         return super.createPut(uri);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        responses.set(request);
+        rateLimiter.update(request);
+        return super.updateRateLimits(request);
+    }
+}
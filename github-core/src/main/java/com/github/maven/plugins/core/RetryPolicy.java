@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static com.github.maven.plugins.core.GitHubRateLimiter.HEADER_REMAINING;
+import static com.github.maven.plugins.core.GitHubRateLimiter.HEADER_RESET;
+import static com.github.maven.plugins.core.GitHubRateLimiter.HEADER_RETRY_AFTER;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retry policy for idempotent GitHub API requests that failed with a transient
+ * error. Retries are delayed with exponential backoff and jitter and are
+ * limited both per request and by a budget shared by all requests of a
+ * deploy.
+ */
+public class RetryPolicy {
+
+	/**
+	 * Default number of retries of a single request
+	 */
+	public static final int DEFAULT_RETRIES = 3;
+
+	/**
+	 * Default number of retries shared by all requests
+	 */
+	public static final int DEFAULT_BUDGET = 100;
+
+	/**
+	 * Default delay before the first retry in milliseconds
+	 */
+	public static final long DEFAULT_INITIAL_DELAY = 1000L;
+
+	/**
+	 * Default maximum delay between retries in milliseconds
+	 */
+	public static final long DEFAULT_MAX_DELAY = 60 * 1000L;
+
+	/**
+	 * Request that can be retried
+	 *
+	 * @param <V>
+	 */
+	public interface Request<V> {
+
+		/**
+		 * Execute request
+		 *
+		 * @return response
+		 * @throws IOException
+		 */
+		V execute() throws IOException;
+	}
+
+	private final int retries;
+
+	private final AtomicInteger budget;
+
+	private final long initialDelay;
+
+	private final long maxDelay;
+
+	private volatile long maxResetWait;
+
+	private final AtomicInteger retried = new AtomicInteger();
+
+	private final Random random = new Random();
+
+	/**
+	 * Create policy with default settings
+	 */
+	public RetryPolicy() {
+		this(DEFAULT_RETRIES, DEFAULT_BUDGET, DEFAULT_INITIAL_DELAY,
+				DEFAULT_MAX_DELAY);
+	}
+
+	/**
+	 * Create policy
+	 *
+	 * @param retries
+	 *            maximum retries of a single request
+	 * @param budget
+	 *            maximum retries of all requests
+	 * @param initialDelay
+	 *            delay before the first retry in milliseconds
+	 * @param maxDelay
+	 *            maximum delay between retries in milliseconds
+	 */
+	public RetryPolicy(int retries, int budget, long initialDelay,
+			long maxDelay) {
+		this.retries = retries;
+		this.budget = new AtomicInteger(budget);
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+		this.maxResetWait = maxDelay;
+	}
+
+	/**
+	 * Set the longest time to wait for an exhausted primary rate limit to
+	 * reset before a request is retried, the maximum delay between retries by
+	 * default. Requests sent by a client for a deploy also wait at most this
+	 * long for the rate limiter before they are sent.
+	 *
+	 * @param maxResetWait
+	 *            milliseconds
+	 * @return this policy
+	 */
+	public RetryPolicy setMaxResetWait(long maxResetWait) {
+		this.maxResetWait = maxResetWait;
+		return this;
+	}
+
+	/**
+	 * Get the longest time to wait for an exhausted primary rate limit to
+	 * reset
+	 *
+	 * @return milliseconds
+	 */
+	public long getMaxResetWait() {
+		return maxResetWait;
+	}
+
+	/**
+	 * Get number of retries performed so far
+	 *
+	 * @return retry count
+	 */
+	public int getRetried() {
+		return retried.get();
+	}
+
+	/**
+	 * Execute request and retry it while it fails with a retryable error
+	 *
+	 * @param request
+	 * @param responses
+	 *            holds the response of the last attempt on the current thread
+	 * @return response
+	 * @throws IOException
+	 */
+	public <V> V execute(Request<V> request,
+			ThreadLocal<HttpURLConnection> responses) throws IOException {
+		for (int attempt = 0;; attempt++) {
+			responses.remove();
+			try {
+				return request.execute();
+			} catch (IOException e) {
+				HttpURLConnection response = responses.get();
+				responses.remove();
+				if (attempt >= retries || !isRetryable(e, response)
+						|| budget.getAndDecrement() <= 0)
+					throw e;
+				retried.incrementAndGet();
+				sleep(getDelay(attempt));
+			}
+		}
+	}
+
+	/**
+	 * Get delay before the retry following the given attempt
+	 *
+	 * @param attempt
+	 *            zero-based number of the failed attempt
+	 * @return delay in milliseconds
+	 */
+	protected long getDelay(int attempt) {
+		long delay = Math.min(maxDelay, initialDelay << Math.min(attempt, 20));
+		long half = delay / 2;
+		synchronized (random) {
+			return half + (long) (random.nextDouble() * (delay - half));
+		}
+	}
+
+	/**
+	 * Is the failure retryable?
+	 *
+	 * @param exception
+	 * @param response
+	 *            response that caused the failure, null if none was received
+	 * @return true if retryable, false otherwise
+	 */
+	protected boolean isRetryable(IOException exception,
+			HttpURLConnection response) {
+		if (response == null)
+			return exception instanceof SocketTimeoutException
+					|| exception instanceof SocketException;
+
+		final int status;
+		try {
+			status = response.getResponseCode();
+		} catch (IOException e) {
+			return false;
+		}
+		switch (status) {
+		case 429:
+		case HttpURLConnection.HTTP_INTERNAL_ERROR:
+		case HttpURLConnection.HTTP_BAD_GATEWAY:
+		case HttpURLConnection.HTTP_UNAVAILABLE:
+		case HttpURLConnection.HTTP_GATEWAY_TIMEOUT:
+			return true;
+		case HttpURLConnection.HTTP_FORBIDDEN:
+			// Secondary rate limits ask to retry after a delay
+			if (response.getHeaderField(HEADER_RETRY_AFTER) != null)
+				return true;
+			// Only wait for an exhausted primary rate limit if it resets soon
+			// enough
+			if ("0".equals(response.getHeaderField(HEADER_REMAINING))) {
+				String reset = response.getHeaderField(HEADER_RESET);
+				try {
+					return reset != null
+							&& Long.parseLong(reset) * 1000L
+									- System.currentTimeMillis()
+									<= maxResetWait;
+				} catch (NumberFormatException e) {
+					return false;
+				}
+			}
+			String message = exception.getMessage();
+			return message != null
+					&& (message.contains("secondary rate limit") || message
+							.contains("abuse"));
+		default:
+			return false;
+		}
+	}
+
+	private static void sleep(long delay) throws InterruptedIOException {
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted before retrying");
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_DIRECTORY;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_TREE;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+
+/**
+ * Tree utilities
+ */
+public class TreeUtils {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Mode of a tree entry as written in a Git tree object
+	 */
+	private static final String TREE_OBJECT_MODE = "40000";
+
+	/**
+	 * Unsigned byte order of entry names
+	 */
+	private static final Comparator<byte[]> GIT_ORDER = new Comparator<byte[]>() {
+
+		public int compare(byte[] a, byte[] b) {
+			int length = Math.min(a.length, b.length);
+			for (int i = 0; i < length; i++) {
+				int diff = (a[i] & 0xff) - (b[i] & 0xff);
+				if (diff != 0)
+					return diff;
+			}
+			return a.length - b.length;
+		}
+	};
+
+	/**
+	 * Directory of blobs and sub-directories sorted in Git tree order
+	 */
+	private static class Directory {
+
+		final String path;
+
+		final Map<byte[], Object> children = new TreeMap<byte[], Object>(
+				GIT_ORDER);
+
+		final Map<String, Directory> directories = new HashMap<String, Directory>();
+
+		String sha;
+
+		Directory(String path) {
+			this.path = path;
+		}
+
+		Directory getDirectory(String name) {
+			Directory directory = directories.get(name);
+			if (directory == null) {
+				directory = new Directory(path.length() > 0 ? path + '/'
+						+ name : name);
+				directories.put(name, directory);
+				// Git sorts trees as if their name ended with a slash
+				children.put((name + '/').getBytes(UTF8), directory);
+			}
+			return directory;
+		}
+	}
+
+	private static Directory build(Collection<TreeEntry> entries) {
+		Directory root = new Directory("");
+		for (TreeEntry entry : entries) {
+			String[] segments = entry.getPath().split("/");
+			Directory parent = root;
+			for (int i = 0; i < segments.length - 1; i++)
+				parent = parent.getDirectory(segments[i]);
+			parent.children.put(
+					segments[segments.length - 1].getBytes(UTF8), entry);
+		}
+		return root;
+	}
+
+	private static byte[] toBytes(String sha) {
+		byte[] bytes = new byte[sha.length() / 2];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) Integer.parseInt(
+					sha.substring(i * 2, i * 2 + 2), 16);
+		return bytes;
+	}
+
+	private static void write(ByteArrayOutputStream output, byte[] bytes,
+			int length) {
+		output.write(bytes, 0, length);
+	}
+
+	private static String hash(Directory directory, Map<String, String> shas) {
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		for (Entry<byte[], Object> child : directory.children.entrySet()) {
+			byte[] name = child.getKey();
+			String mode;
+			String sha;
+			int nameLength = name.length;
+			if (child.getValue() instanceof Directory) {
+				mode = TREE_OBJECT_MODE;
+				sha = hash((Directory) child.getValue(), shas);
+				// Drop the trailing slash only used for sorting
+				nameLength--;
+			} else {
+				TreeEntry entry = (TreeEntry) child.getValue();
+				mode = entry.getMode();
+				sha = entry.getSha();
+			}
+			byte[] modeBytes = mode.getBytes(UTF8);
+			write(content, modeBytes, modeBytes.length);
+			content.write(' ');
+			write(content, name, nameLength);
+			content.write(0);
+			byte[] shaBytes = toBytes(sha);
+			write(content, shaBytes, shaBytes.length);
+		}
+		MessageDigest digest = BlobUtils.createDigest();
+		digest.update(("tree " + content.size() + '\0').getBytes(UTF8));
+		digest.update(content.toByteArray());
+		directory.sha = BlobUtils.toHex(digest.digest());
+		shas.put(directory.path, directory.sha);
+		return directory.sha;
+	}
+
+	/**
+	 * Compute the SHA-1 of every directory of the tree made up of the given
+	 * blob entries
+	 *
+	 * @param entries
+	 *            blob entries with full paths and SHA-1s
+	 * @return map of directory paths to tree SHA-1s, the root tree has an
+	 *         empty path
+	 */
+	public static Map<String, String> computeTreeShas(
+			Collection<TreeEntry> entries) {
+		Map<String, String> shas = new HashMap<String, String>();
+		hash(build(entries), shas);
+		return shas;
+	}
+
+	/**
+	 * Get SHA-1s of the entries of the given type in the given recursive tree
+	 *
+	 * @param tree
+	 * @param type
+	 *            {@link TreeEntry#TYPE_BLOB} or {@link TreeEntry#TYPE_TREE}
+	 * @return map of paths to SHA-1s, trees include the root tree with an
+	 *         empty path
+	 */
+	public static Map<String, String> getShas(Tree tree, String type) {
+		Map<String, String> shas = new HashMap<String, String>();
+		if (tree == null)
+			return shas;
+		if (TYPE_TREE.equals(type) && tree.getSha() != null)
+			shas.put("", tree.getSha());
+		if (tree.getTree() != null)
+			for (TreeEntry entry : tree.getTree())
+				if (type.equals(entry.getType()))
+					shas.put(entry.getPath(), entry.getSha());
+		return shas;
+	}
+
+	/**
+	 * Replace all entries below directories whose computed SHA-1 matches the
+	 * existing tree at the same path with a single tree entry
+	 *
+	 * @param entries
+	 *            blob entries making up the complete new tree
+	 * @param existing
+	 *            recursive tree the new tree replaces, may be null
+	 * @return entries to send when creating the new tree, null if the whole
+	 *         tree is unchanged and empty if the new tree has no entries
+	 */
+	public static List<TreeEntry> compact(Collection<TreeEntry> entries,
+			Tree existing) {
+		Map<String, String> existingTrees = getShas(existing, TYPE_TREE);
+		Directory root = build(entries);
+		hash(root, new HashMap<String, String>());
+		if (root.sha.equals(existingTrees.get("")))
+			return null;
+		List<TreeEntry> compacted = new ArrayList<TreeEntry>();
+		compact(root, existingTrees, compacted);
+		return compacted;
+	}
+
+	private static void compact(Directory directory,
+			Map<String, String> existingTrees, List<TreeEntry> compacted) {
+		for (Object child : directory.children.values())
+			if (child instanceof Directory) {
+				Directory subdirectory = (Directory) child;
+				if (subdirectory.sha.equals(existingTrees
+						.get(subdirectory.path))) {
+					TreeEntry entry = new TreeEntry();
+					entry.setPath(subdirectory.path);
+					entry.setType(TYPE_TREE);
+					entry.setMode(MODE_DIRECTORY);
+					entry.setSha(subdirectory.sha);
+					compacted.add(entry);
+				} else
+					compact(subdirectory, existingTrees, compacted);
+			} else
+				compacted.add((TreeEntry) child);
+	}
+
+	/**
+	 * Remove the blob entries that already exist with the same SHA-1 at the
+	 * same path of the given base tree
+	 *
+	 * @param entries
+	 * @param base
+	 *            recursive tree the entries are applied to, may be null
+	 * @return entries that change the base tree
+	 */
+	public static List<TreeEntry> removeUnchanged(
+			Collection<TreeEntry> entries, Tree base) {
+		Map<String, String> existingBlobs = getShas(base, TYPE_BLOB);
+		List<TreeEntry> changed = new ArrayList<TreeEntry>(entries.size());
+		for (TreeEntry entry : entries)
+			if (!TYPE_BLOB.equals(entry.getType())
+					|| entry.getSha() == null
+					|| !entry.getSha().equals(
+							existingBlobs.get(entry.getPath())))
+				changed.add(entry);
+		return changed;
+	}
+
+	/**
+	 * Get entries deleting the blobs of the given base tree below the given
+	 * prefix that are not part of the given entries
+	 *
+	 * @param base
+	 *            recursive tree the entries are applied to, may be null
+	 * @param prefix
+	 *            empty or a path ending with a slash
+	 * @param entries
+	 * @return blob entries without a SHA-1, sorted by path
+	 */
+	public static List<TreeEntry> getRemoved(Tree base, String prefix,
+			Collection<TreeEntry> entries) {
+		List<TreeEntry> removed = new ArrayList<TreeEntry>();
+		if (base == null || base.getTree() == null)
+			return removed;
+		Set<String> paths = new HashSet<String>(entries.size());
+		for (TreeEntry entry : entries)
+			paths.add(entry.getPath());
+		for (TreeEntry existing : base.getTree())
+			if (TYPE_BLOB.equals(existing.getType())
+					&& existing.getPath().startsWith(prefix)
+					&& !paths.contains(existing.getPath())) {
+				TreeEntry entry = new TreeEntry();
+				entry.setPath(existing.getPath());
+				entry.setType(TYPE_BLOB);
+				entry.setMode(existing.getMode());
+				removed.add(entry);
+			}
+		Collections.sort(removed, new Comparator<TreeEntry>() {
+
+			public int compare(TreeEntry e1, TreeEntry e2) {
+				return e1.getPath().compareTo(e2.getPath());
+			}
+		});
+		return removed;
+	}
+}
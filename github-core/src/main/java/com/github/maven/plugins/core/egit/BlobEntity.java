@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.CHARSET_UTF8;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.CONTENT_TYPE_JSON;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+
+/**
+ * Blob request entity that base64 encodes the content of a file in fixed size
+ * chunks while it is written so that memory use does not depend on the size
+ * of the file. Content already read into memory is encoded the same way.
+ */
+public class BlobEntity implements RequestEntity {
+
+	/**
+	 * Number of bytes read and encoded at a time, must be a multiple of 3
+	 */
+	public static final int CHUNK_SIZE = 3 * 16 * 1024;
+
+	private static final byte[] PREFIX = "{\"encoding\":\"base64\",\"content\":\""
+			.getBytes();
+
+	private static final byte[] SUFFIX = "\"}".getBytes();
+
+	private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+			.getBytes();
+
+	/**
+	 * Get length of the base64 encoding of the given number of bytes
+	 *
+	 * @param length
+	 * @return encoded length
+	 */
+	public static long getEncodedLength(final long length) {
+		return ((length + 2) / 3) * 4;
+	}
+
+	/**
+	 * Base64 encode the given range of bytes into the destination array
+	 *
+	 * @param source
+	 * @param offset
+	 * @param length
+	 * @param destination
+	 *            must have room for {@link #getEncodedLength(long)} bytes
+	 * @return number of bytes written to the destination array
+	 */
+	public static int encode(final byte[] source, final int offset,
+			final int length, final byte[] destination) {
+		int in = offset;
+		int out = 0;
+		final int end = offset + length - length % 3;
+		while (in < end) {
+			final int bits = (source[in++] & 0xff) << 16
+					| (source[in++] & 0xff) << 8 | (source[in++] & 0xff);
+			destination[out++] = ALPHABET[(bits >>> 18) & 0x3f];
+			destination[out++] = ALPHABET[(bits >>> 12) & 0x3f];
+			destination[out++] = ALPHABET[(bits >>> 6) & 0x3f];
+			destination[out++] = ALPHABET[bits & 0x3f];
+		}
+		switch (length % 3) {
+		case 1: {
+			final int bits = (source[in] & 0xff) << 16;
+			destination[out++] = ALPHABET[(bits >>> 18) & 0x3f];
+			destination[out++] = ALPHABET[(bits >>> 12) & 0x3f];
+			destination[out++] = '=';
+			destination[out++] = '=';
+			break;
+		}
+		case 2: {
+			final int bits = (source[in] & 0xff) << 16
+					| (source[in + 1] & 0xff) << 8;
+			destination[out++] = ALPHABET[(bits >>> 18) & 0x3f];
+			destination[out++] = ALPHABET[(bits >>> 12) & 0x3f];
+			destination[out++] = ALPHABET[(bits >>> 6) & 0x3f];
+			destination[out++] = '=';
+			break;
+		}
+		}
+		return out;
+	}
+
+	private final File file;
+
+	private final byte[] content;
+
+	private final long size;
+
+	/**
+	 * Create entity for file
+	 *
+	 * @param file
+	 */
+	public BlobEntity(final File file) {
+		this.file = file;
+		this.content = null;
+		this.size = file.length();
+	}
+
+	/**
+	 * Create entity for content
+	 *
+	 * @param content
+	 */
+	public BlobEntity(final byte[] content) {
+		this.file = null;
+		this.content = content;
+		this.size = content.length;
+	}
+
+	public long getLength() {
+		return PREFIX.length + getEncodedLength(size) + SUFFIX.length;
+	}
+
+	public String getContentType() {
+		return CONTENT_TYPE_JSON + "; charset=" + CHARSET_UTF8;
+	}
+
+	public void writeTo(final OutputStream output) throws IOException {
+		output.write(PREFIX);
+		if (content != null)
+			writeContent(output);
+		else
+			writeFile(output);
+		output.write(SUFFIX);
+	}
+
+	private void writeContent(final OutputStream output) throws IOException {
+		final byte[] encoded = new byte[(int) getEncodedLength(Math.min(
+				CHUNK_SIZE, content.length))];
+		for (int offset = 0; offset < content.length; offset += CHUNK_SIZE) {
+			final int length = Math.min(CHUNK_SIZE, content.length - offset);
+			output.write(encoded, 0,
+					encode(content, offset, length, encoded));
+		}
+	}
+
+	private void writeFile(final OutputStream output) throws IOException {
+		final FileInputStream stream = new FileInputStream(file);
+		try {
+			final FileChannel channel = stream.getChannel();
+			final ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+			final byte[] encoded = new byte[(int) getEncodedLength(CHUNK_SIZE)];
+			long remaining = size;
+			while (remaining > 0) {
+				buffer.clear();
+				if (remaining < CHUNK_SIZE)
+					buffer.limit((int) remaining);
+				// Only the last chunk may have a length that is not a multiple
+				// of 3 so fill the buffer completely before encoding it
+				while (buffer.hasRemaining())
+					if (channel.read(buffer) == -1)
+						throw new IOException(MessageFormat.format(
+								"File {0} changed while being uploaded",
+								file.getAbsolutePath()));
+				final int read = buffer.position();
+				output.write(encoded, 0,
+						encode(buffer.array(), 0, read, encoded));
+				remaining -= read;
+			}
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.eclipse.egit.github.core.Blob.ENCODING_BASE64;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.CHARSET_UTF8;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_BLOBS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_GIT;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_REPOS;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.SEGMENT_TREES;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.Blob;
+import org.eclipse.egit.github.core.IRepositoryIdProvider;
+import org.eclipse.egit.github.core.ShaResource;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.service.DataService;
+import org.eclipse.egit.github.core.util.EncodingUtils;
+
+/**
+ * DataService that streams blob content from files when used with a
+ * {@link GitHubClientEgit}, splits large trees into several requests, and
+ * supports tree entries that delete paths from the base tree
+ */
+public class DataServiceEgit extends DataService {
+
+	/**
+	 * Default maximum estimated size of a single create tree request body
+	 */
+	public static final int DEFAULT_TREE_BATCH_BYTES = 2 * 1024 * 1024;
+
+	/**
+	 * Default maximum number of entries of a single create tree request
+	 */
+	public static final int DEFAULT_TREE_BATCH_ENTRIES = 10000;
+
+	/**
+	 * Fixed part of the serialized size of a tree entry
+	 */
+	private static final int TREE_ENTRY_BYTES = 80;
+
+	private static final Charset UTF8 = Charset.forName(CHARSET_UTF8);
+
+	public DataServiceEgit() {
+		super();
+	}
+
+	public DataServiceEgit(GitHubClient client) {
+		super(client);
+	}
+
+	/**
+	 * Create blob with the content of the given file
+	 *
+	 * @param repository
+	 * @param file
+	 * @return created blob SHA-1
+	 * @throws IOException
+	 */
+	public String createBlob(IRepositoryIdProvider repository, File file)
+			throws IOException {
+		if (!(client instanceof GitHubClientEgit))
+			return createBlob(repository, new Blob().setEncoding(
+					ENCODING_BASE64).setContent(
+					EncodingUtils.toBase64(readFile(file))));
+
+		String id = getId(repository);
+		StringBuilder uri = new StringBuilder(SEGMENT_REPOS);
+		uri.append('/').append(id);
+		uri.append(SEGMENT_GIT);
+		uri.append(SEGMENT_BLOBS);
+		ShaResource created = ((GitHubClientEgit) client).postEntity(
+				uri.toString(), new BlobEntity(file), ShaResource.class);
+		return created != null ? created.getSha() : null;
+	}
+
+	/**
+	 * Create blob with the given content
+	 *
+	 * @param repository
+	 * @param content
+	 * @return created blob SHA-1
+	 * @throws IOException
+	 */
+	public String createBlob(IRepositoryIdProvider repository, byte[] content)
+			throws IOException {
+		if (!(client instanceof GitHubClientEgit))
+			return createBlob(repository, new Blob().setEncoding(
+					ENCODING_BASE64).setContent(EncodingUtils.toBase64(content)));
+
+		String id = getId(repository);
+		StringBuilder uri = new StringBuilder(SEGMENT_REPOS);
+		uri.append('/').append(id);
+		uri.append(SEGMENT_GIT);
+		uri.append(SEGMENT_BLOBS);
+		ShaResource created = ((GitHubClientEgit) client).postEntity(
+				uri.toString(), new BlobEntity(content), ShaResource.class);
+		return created != null ? created.getSha() : null;
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		final long length = file.length();
+		final int size = length > Integer.MAX_VALUE ? Integer.MAX_VALUE
+				: (int) length;
+		ByteArrayOutputStream output = new ByteArrayOutputStream(size);
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1)
+				output.write(buffer, 0, read);
+		} finally {
+			stream.close();
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Create tree from the given entries. Entries without a SHA-1 delete their
+	 * path from the base tree.
+	 *
+	 * @param repository
+	 * @param entries
+	 * @param baseTree
+	 * @return created tree
+	 * @throws IOException
+	 */
+	@Override
+	public Tree createTree(IRepositoryIdProvider repository,
+			Collection<TreeEntry> entries, String baseTree) throws IOException {
+		boolean deletes = false;
+		if (entries != null)
+			for (TreeEntry entry : entries)
+				if (entry.getSha() == null) {
+					deletes = true;
+					break;
+				}
+		if (!deletes)
+			return super.createTree(repository, entries, baseTree);
+		if (!(client instanceof GitHubClientEgit))
+			throw new IOException("Deleting tree entries requires a "
+					+ GitHubClientEgit.class.getSimpleName());
+
+		String id = getId(repository);
+		StringBuilder uri = new StringBuilder(SEGMENT_REPOS);
+		uri.append('/').append(id);
+		uri.append(SEGMENT_GIT);
+		uri.append(SEGMENT_TREES);
+		return ((GitHubClientEgit) client).postEntity(uri.toString(),
+				new JsonEntity(getTreeParams(entries, baseTree), true),
+				Tree.class);
+	}
+
+	/**
+	 * Get the body of a create tree request that keeps the null SHA-1s of
+	 * deleted entries, which the client omits when serializing tree entries
+	 *
+	 * @param entries
+	 * @param baseTree
+	 *            may be null
+	 * @return request body to serialize with null values
+	 */
+	public static Map<String, Object> getTreeParams(
+			Collection<TreeEntry> entries, String baseTree) {
+		List<Map<String, String>> tree = new ArrayList<Map<String, String>>(
+				entries.size());
+		for (TreeEntry entry : entries) {
+			Map<String, String> fields = new LinkedHashMap<String, String>();
+			fields.put("path", entry.getPath());
+			fields.put("mode", entry.getMode());
+			fields.put("type", entry.getType());
+			fields.put("sha", entry.getSha());
+			tree.add(fields);
+		}
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("tree", tree);
+		if (baseTree != null)
+			params.put("base_tree", baseTree);
+		return params;
+	}
+
+	/**
+	 * Split the given entries into batches that each stay below the given
+	 * limits. The entries are sorted by path so that the entries of a
+	 * directory end up in as few batches as possible.
+	 *
+	 * @param entries
+	 * @param maxBytes
+	 *            maximum estimated request body size of a batch
+	 * @param maxEntries
+	 *            maximum number of entries of a batch
+	 * @return non-empty list of batches, a single empty batch if there are no
+	 *         entries
+	 */
+	public static List<List<TreeEntry>> getBatches(
+			Collection<TreeEntry> entries, int maxBytes, int maxEntries) {
+		List<TreeEntry> sorted = new ArrayList<TreeEntry>(entries);
+		Collections.sort(sorted, new Comparator<TreeEntry>() {
+
+			public int compare(TreeEntry e1, TreeEntry e2) {
+				return e1.getPath().compareTo(e2.getPath());
+			}
+		});
+
+		List<List<TreeEntry>> batches = new ArrayList<List<TreeEntry>>();
+		List<TreeEntry> batch = new ArrayList<TreeEntry>();
+		long bytes = 0;
+		for (TreeEntry entry : sorted) {
+			long size = TREE_ENTRY_BYTES
+					+ entry.getPath().getBytes(UTF8).length;
+			if (!batch.isEmpty()
+					&& (bytes + size > maxBytes || batch.size() >= maxEntries)) {
+				batches.add(batch);
+				batch = new ArrayList<TreeEntry>();
+				bytes = 0;
+			}
+			batch.add(entry);
+			bytes += size;
+		}
+		if (batches.isEmpty() || !batch.isEmpty())
+			batches.add(batch);
+		return batches;
+	}
+
+	/**
+	 * Create tree from the given entries split into batches that each stay
+	 * below the given limits. Every batch is created on top of the tree
+	 * created by the previous batch so that the result is the same tree a
+	 * single request would have created.
+	 *
+	 * @param repository
+	 * @param entries
+	 * @param baseTree
+	 *            SHA-1 of tree the first batch is created on, may be null
+	 * @param maxBytes
+	 *            maximum estimated request body size of a batch
+	 * @param maxEntries
+	 *            maximum number of entries of a batch
+	 * @return created tree
+	 * @throws IOException
+	 * @see #getBatches(Collection, int, int)
+	 */
+	public Tree createTree(IRepositoryIdProvider repository,
+			Collection<TreeEntry> entries, String baseTree, int maxBytes,
+			int maxEntries) throws IOException {
+		Tree tree = null;
+		String base = baseTree;
+		for (List<TreeEntry> batch : getBatches(entries, maxBytes, maxEntries)) {
+			tree = createTree(repository, batch, base);
+			base = tree.getSha();
+		}
+		return tree;
+	}
+}
@@ -21,11 +21,24 @@
  */
 package com.github.maven.plugins.core.egit;
 
+import com.github.maven.plugins.core.ClientRegistry;
+
 import java.io.IOException;
+import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.Proxy;
 import java.net.URL;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.IGitHubConstants;
 
 /**
  * GitHubClient support proxy
@@ -34,32 +47,195 @@ import org.eclipse.egit.github.core.client.GitHubClient;
  */
 public class GitHubClientEgit extends GitHubClient {
 
+	/**
+	 * Create the transport of a new client, the first
+	 * {@link HttpTransport} service found or else a
+	 * {@link UrlConnectionTransport}
+	 *
+	 * @return non-null transport
+	 */
+	public static HttpTransport createTransport() {
+		Iterator<HttpTransport> transports = ServiceLoader.load(
+				HttpTransport.class, GitHubClientEgit.class.getClassLoader())
+				.iterator();
+		if (transports.hasNext())
+			return transports.next();
+		return new UrlConnectionTransport();
+	}
+
 	public GitHubClientEgit() {
 		super();
+		this.host = IGitHubConstants.HOST_API;
 	}
 
 	public GitHubClientEgit(String hostname) {
 		super(hostname);
+		this.host = hostname;
 	}
 
 	public GitHubClientEgit(String hostname, int port, String scheme) {
 		super(hostname, port, scheme);
+		this.host = scheme + "://" + hostname + ':' + port;
 	}
 	
 	protected Proxy proxy;
 
+	private final String host;
+
+	private volatile String credentialsKey;
+
+	private volatile boolean storableCredentials;
+
+	private volatile HttpTransport transport = createTransport();
+
+	private final ConcurrentMap<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final AtomicLong bytesSent = new AtomicLong();
+
 	public void setProxy(Proxy proxy) {
 		this.proxy = proxy;
 	}
 
+	/**
+	 * Get the transport opening the connections of this client
+	 *
+	 * @return transport
+	 */
+	public HttpTransport getTransport() {
+		return transport;
+	}
+
+	/**
+	 * Set the transport opening the connections of this client
+	 *
+	 * @param transport
+	 * @return this client
+	 */
+	public GitHubClientEgit setTransport(HttpTransport transport) {
+		this.transport = transport;
+		return this;
+	}
+
+	@Override
+	public GitHubClient setCredentials(String user, String password) {
+		credentialsKey = user != null && password != null ? ClientRegistry
+				.getKey(host, "basic", user, password) : null;
+		storableCredentials = false;
+		return super.setCredentials(user, password);
+	}
+
+	@Override
+	public GitHubClient setOAuth2Token(String token) {
+		credentialsKey = token != null && token.length() > 0 ? ClientRegistry
+				.getKey(host, "token", token) : null;
+		storableCredentials = true;
+		return super.setOAuth2Token(token);
+	}
+
+	/**
+	 * Get a key identifying the host and credentials of this client within
+	 * this process
+	 *
+	 * @return key or null if no credentials are configured
+	 */
+	public String getCredentialsKey() {
+		return credentialsKey;
+	}
+
+	/**
+	 * Get a key identifying the host and credentials of this client that can
+	 * be written to disk.
+	 * <p>
+	 * Passwords can be guessed from an unsalted hash of them and so only
+	 * clients authenticated with a token have such a key.
+	 *
+	 * @return key or null if no token is configured
+	 */
+	public String getStorableCredentialsKey() {
+		return storableCredentials ? getCredentialsKey() : null;
+	}
+
+	/**
+	 * Get the number of requests sent by this client with each HTTP method
+	 *
+	 * @return map of methods to counts
+	 */
+	public Map<String, Long> getRequestCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Entry<String, AtomicLong> count : requestCounts.entrySet())
+			counts.put(count.getKey(), count.getValue().get());
+		return counts;
+	}
+
+	/**
+	 * Get the number of request body bytes sent by this client
+	 *
+	 * @return bytes
+	 */
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	@Override
+	protected HttpURLConnection createConnection(String uri, String method)
+			throws IOException {
+		AtomicLong count = requestCounts.get(method);
+		if (count == null) {
+			AtomicLong created = new AtomicLong();
+			count = requestCounts.putIfAbsent(method, created);
+			if (count == null)
+				count = created;
+		}
+		count.incrementAndGet();
+		return super.createConnection(uri, method);
+	}
+
+	@Override
+	protected String toJson(Object object) throws IOException {
+		String json = super.toJson(object);
+		bytesSent.addAndGet(json.getBytes(IGitHubConstants.CHARSET_UTF8).length);
+		return json;
+	}
+
 	@Override
 	protected HttpURLConnection createConnection(String uri) throws IOException {
-		URL url = new URL(createUri(uri));
-		if ( null == proxy ) 		{
-			return (HttpURLConnection) url.openConnection();
-		} else {
-			return (HttpURLConnection) url.openConnection( proxy );
+		return new TransportConnection(new URL(createUri(uri)), proxy,
+				transport);
+	}
+
+	/**
+	 * Post the given entity to the given URI, handing it to the transport so
+	 * that it is written directly to the connection and never held in memory
+	 *
+	 * @param uri
+	 * @param entity
+	 * @param type
+	 * @return parsed response or null if no response type was given
+	 * @throws IOException
+	 */
+	public <V> V postEntity(final String uri, final RequestEntity entity,
+			final Type type) throws IOException {
+		final long length = entity.getLength();
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("Request entity too large: " + length);
+
+		HttpURLConnection request = createPost(uri);
+		if (!(request instanceof TransportConnection))
+			throw new IOException("Connection not opened by the transport: "
+					+ request);
+		((TransportConnection) request).setEntity(entity);
+		final int code = request.getResponseCode();
+		bytesSent.addAndGet(length);
+		updateRateLimits(request);
+		if (isOk(code)) {
+			if (type != null)
+				return parseJson(getStream(request), type);
+			return null;
 		}
+		if (isEmpty(code))
+			return null;
+		throw createException(getStream(request), code,
+				request.getResponseMessage());
 	}
 
 }
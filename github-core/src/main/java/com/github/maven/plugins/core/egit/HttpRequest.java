@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.net.Proxy;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP request sent by a {@link HttpTransport}
+ */
+public class HttpRequest {
+
+	private final String method;
+
+	private final URL url;
+
+	private final Proxy proxy;
+
+	private final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+
+	private RequestEntity entity;
+
+	/**
+	 * Create request
+	 *
+	 * @param method
+	 * @param url
+	 * @param proxy
+	 *            proxy to connect through, null to use the default proxy
+	 *            selection
+	 */
+	public HttpRequest(String method, URL url, Proxy proxy) {
+		this.method = method;
+		this.url = url;
+		this.proxy = proxy;
+	}
+
+	/**
+	 * Get the method of the request
+	 *
+	 * @return method
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Get the URL the request is sent to
+	 *
+	 * @return url
+	 */
+	public URL getUrl() {
+		return url;
+	}
+
+	/**
+	 * Get the proxy the request is sent through
+	 *
+	 * @return proxy or null to use the default proxy selection
+	 */
+	public Proxy getProxy() {
+		return proxy;
+	}
+
+	/**
+	 * Add a value of the given header
+	 *
+	 * @param name
+	 * @param value
+	 * @return this request
+	 */
+	public HttpRequest addHeader(String name, String value) {
+		List<String> values = headers.get(name);
+		if (values == null) {
+			values = new ArrayList<String>(1);
+			headers.put(name, values);
+		}
+		values.add(value);
+		return this;
+	}
+
+	/**
+	 * Get the headers of the request
+	 *
+	 * @return unmodifiable map of header names to values
+	 */
+	public Map<String, List<String>> getHeaders() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	/**
+	 * Get the body of the request
+	 *
+	 * @return entity or null if the request has no body
+	 */
+	public RequestEntity getEntity() {
+		return entity;
+	}
+
+	/**
+	 * Set the body of the request. Its content type replaces any content type
+	 * header.
+	 *
+	 * @param entity
+	 * @return this request
+	 */
+	public HttpRequest setEntity(RequestEntity entity) {
+		this.entity = entity;
+		return this;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * HTTP response received by a {@link HttpTransport}. Closing it releases the
+ * connection it was received on, for reuse by the transport if the body was
+ * read completely.
+ */
+public interface HttpResponse extends Closeable {
+
+	/**
+	 * Get the status code of the response
+	 *
+	 * @return code
+	 */
+	int getCode();
+
+	/**
+	 * Get the reason phrase of the response
+	 *
+	 * @return message, may be null
+	 */
+	String getMessage();
+
+	/**
+	 * Get the first value of the given header
+	 *
+	 * @param name
+	 * @return value or null if absent
+	 */
+	String getHeader(String name);
+
+	/**
+	 * Get the body of the response
+	 *
+	 * @return non-null stream, empty if the response has no body
+	 * @throws IOException
+	 */
+	InputStream getBody() throws IOException;
+
+	void close() throws IOException;
+}
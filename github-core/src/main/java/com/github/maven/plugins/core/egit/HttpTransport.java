@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.IOException;
+
+/**
+ * Transport sending the HTTP requests of a {@link GitHubClientEgit}
+ * <p>
+ * Transports own the connections they send requests on, and so decide how
+ * many are kept alive and reused. Implementations are looked up with
+ * {@link java.util.ServiceLoader} by listing them in a
+ * {@code META-INF/services/com.github.maven.plugins.core.egit.HttpTransport}
+ * resource of a plugin dependency. The first one found replaces the default
+ * {@link UrlConnectionTransport}.
+ */
+public interface HttpTransport {
+
+	/**
+	 * Set the timeouts of the requests sent
+	 *
+	 * @param connectTimeout
+	 *            milliseconds, zero for no timeout
+	 * @param readTimeout
+	 *            milliseconds, zero for no timeout
+	 */
+	void setTimeouts(int connectTimeout, int readTimeout);
+
+	/**
+	 * Send the given request, including its body, and receive the status and
+	 * headers of its response
+	 *
+	 * @param request
+	 * @return response whose body has not been read yet
+	 * @throws IOException
+	 */
+	HttpResponse execute(HttpRequest request) throws IOException;
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.eclipse.egit.github.core.client.IGitHubConstants.CHARSET_UTF8;
+import static org.eclipse.egit.github.core.client.IGitHubConstants.CONTENT_TYPE_JSON;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.egit.github.core.client.GsonUtils;
+
+/**
+ * Request entity of an object serialized to JSON, optionally including null
+ * values which the client otherwise omits
+ */
+public class JsonEntity implements RequestEntity {
+
+	private final byte[] content;
+
+	/**
+	 * Create entity of the given object
+	 *
+	 * @param body
+	 * @param serializeNulls
+	 * @throws IOException
+	 */
+	public JsonEntity(Object body, boolean serializeNulls) throws IOException {
+		content = GsonUtils.toJson(body, serializeNulls).getBytes(CHARSET_UTF8);
+	}
+
+	public long getLength() {
+		return content.length;
+	}
+
+	public String getContentType() {
+		return CONTENT_TYPE_JSON + "; charset=" + CHARSET_UTF8;
+	}
+
+	public void writeTo(OutputStream output) throws IOException {
+		output.write(content);
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Request body that is written directly to the connection instead of being
+ * serialized into memory first
+ */
+public interface RequestEntity {
+
+	/**
+	 * Get the exact number of bytes {@link #writeTo(OutputStream)} will write
+	 *
+	 * @return length in bytes
+	 */
+	long getLength();
+
+	/**
+	 * Get the content type of the entity
+	 *
+	 * @return content type
+	 */
+	String getContentType();
+
+	/**
+	 * Write the entity to the given stream
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	void writeTo(OutputStream output) throws IOException;
+}
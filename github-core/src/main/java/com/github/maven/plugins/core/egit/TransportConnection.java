@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Connection handed to the request code of {@link GitHubClientEgit} that
+ * sends its request through a {@link HttpTransport} once the response is
+ * first read. Bodies written to it are small JSON parameters and are buffered
+ * until then.
+ */
+class TransportConnection extends HttpURLConnection {
+
+	private final HttpTransport transport;
+
+	private final Proxy proxy;
+
+	private ByteArrayOutputStream output;
+
+	private RequestEntity entity;
+
+	private HttpResponse response;
+
+	/**
+	 * Create connection
+	 *
+	 * @param url
+	 * @param proxy
+	 * @param transport
+	 */
+	TransportConnection(URL url, Proxy proxy, HttpTransport transport) {
+		super(url);
+		this.proxy = proxy;
+		this.transport = transport;
+	}
+
+	/**
+	 * Set the body of the request, written by the transport instead of being
+	 * buffered
+	 *
+	 * @param entity
+	 */
+	void setEntity(RequestEntity entity) {
+		this.entity = entity;
+	}
+
+	@Override
+	public synchronized OutputStream getOutputStream() throws IOException {
+		if (response != null)
+			throw new ProtocolException(
+					"Cannot write output after reading input");
+		if (output == null)
+			output = new ByteArrayOutputStream();
+		return output;
+	}
+
+	private synchronized HttpResponse getResponse() throws IOException {
+		if (response != null)
+			return response;
+		HttpRequest request = new HttpRequest(getRequestMethod(), getURL(),
+				proxy);
+		for (Entry<String, List<String>> header : getRequestProperties()
+				.entrySet())
+			for (String value : header.getValue())
+				request.addHeader(header.getKey(), value);
+		if (entity != null)
+			request.setEntity(entity);
+		else if (output != null) {
+			final byte[] content = output.toByteArray();
+			final String contentType = getRequestProperty("Content-Type");
+			request.setEntity(new RequestEntity() {
+
+				public long getLength() {
+					return content.length;
+				}
+
+				public String getContentType() {
+					return contentType;
+				}
+
+				public void writeTo(OutputStream stream) throws IOException {
+					stream.write(content);
+				}
+			});
+		}
+		response = transport.execute(request);
+		connected = true;
+		return response;
+	}
+
+	@Override
+	public void connect() throws IOException {
+		getResponse();
+	}
+
+	@Override
+	public int getResponseCode() throws IOException {
+		return getResponse().getCode();
+	}
+
+	@Override
+	public String getResponseMessage() throws IOException {
+		return getResponse().getMessage();
+	}
+
+	@Override
+	public String getHeaderField(String name) {
+		try {
+			return getResponse().getHeader(name);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return getResponse().getBody();
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		HttpResponse received;
+		synchronized (this) {
+			received = response;
+		}
+		if (received == null || received.getCode() < HTTP_BAD_REQUEST)
+			return null;
+		try {
+			return received.getBody();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void disconnect() {
+		HttpResponse received;
+		synchronized (this) {
+			received = response;
+		}
+		if (received != null)
+			try {
+				received.close();
+			} catch (IOException ignored) {
+				// Connection is not reused
+			}
+	}
+
+	@Override
+	public boolean usingProxy() {
+		return proxy != null && proxy.type() != Proxy.Type.DIRECT;
+	}
+}
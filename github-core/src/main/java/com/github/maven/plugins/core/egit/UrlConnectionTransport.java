@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Transport based on {@link HttpURLConnection}. Connections whose response has
+ * been read completely are kept alive by the JDK and reused by later requests
+ * to the same host and proxy, up to the JDK's {@code http.maxConnections}
+ * limit.
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+	/**
+	 * Response of a connection
+	 */
+	private static class ConnectionResponse implements HttpResponse {
+
+		private final HttpURLConnection connection;
+
+		private final int code;
+
+		private InputStream body;
+
+		ConnectionResponse(HttpURLConnection connection) throws IOException {
+			this.connection = connection;
+			code = connection.getResponseCode();
+		}
+
+		public int getCode() {
+			return code;
+		}
+
+		public String getMessage() {
+			try {
+				return connection.getResponseMessage();
+			} catch (IOException e) {
+				return null;
+			}
+		}
+
+		public String getHeader(String name) {
+			return connection.getHeaderField(name);
+		}
+
+		public synchronized InputStream getBody() throws IOException {
+			if (body == null) {
+				body = code < HttpURLConnection.HTTP_BAD_REQUEST ? connection
+						.getInputStream() : connection.getErrorStream();
+				if (body == null)
+					body = new ByteArrayInputStream(new byte[0]);
+			}
+			return body;
+		}
+
+		public void close() throws IOException {
+			// Closing the stream instead of disconnecting keeps the connection
+			// alive for reuse
+			getBody().close();
+		}
+	}
+
+	/**
+	 * Default connect timeout in milliseconds
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 30 * 1000;
+
+	/**
+	 * Default read timeout in milliseconds
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 2 * 60 * 1000;
+
+	private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+	private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	public void setTimeouts(int connectTimeout, int readTimeout) {
+		this.connectTimeout = Math.max(0, connectTimeout);
+		this.readTimeout = Math.max(0, readTimeout);
+	}
+
+	/**
+	 * Get connect timeout
+	 *
+	 * @return milliseconds
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Get read timeout
+	 *
+	 * @return milliseconds
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * Open a connection for the given request, configured but not connected
+	 * yet
+	 *
+	 * @param request
+	 * @return connection
+	 * @throws IOException
+	 */
+	protected HttpURLConnection open(HttpRequest request) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) (request
+				.getProxy() != null ? request.getUrl().openConnection(
+				request.getProxy()) : request.getUrl().openConnection());
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setUseCaches(false);
+		connection.setRequestMethod(request.getMethod());
+		for (Entry<String, List<String>> header : request.getHeaders()
+				.entrySet())
+			for (String value : header.getValue())
+				connection.addRequestProperty(header.getKey(), value);
+		return connection;
+	}
+
+	public HttpResponse execute(HttpRequest request) throws IOException {
+		HttpURLConnection connection = open(request);
+		RequestEntity entity = request.getEntity();
+		if (entity != null) {
+			long length = entity.getLength();
+			if (length > Integer.MAX_VALUE)
+				throw new IOException("Request entity too large: " + length);
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type",
+					entity.getContentType());
+			// Streamed with a fixed length so that it is never held in memory
+			connection.setFixedLengthStreamingMode((int) length);
+			OutputStream output = connection.getOutputStream();
+			try {
+				entity.writeTo(output);
+			} finally {
+				output.close();
+			}
+		}
+		return new ConnectionResponse(connection);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.github.maven.plugins.core.BlobHasher.HashedBlob;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BlobHasher}
+ */
+public class BlobHasherTest {
+
+	private static File createFile(byte[] content) throws IOException {
+		File file = File.createTempFile("blob", ".bin",
+				PathUtilsTest.createDirectory());
+		FileOutputStream stream = new FileOutputStream(file);
+		try {
+			stream.write(content);
+		} finally {
+			stream.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Content of small files is kept with the SHA-1
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void hashSmallFile() throws IOException {
+		byte[] content = "hello\n".getBytes();
+		HashedBlob blob = new BlobHasher().hash(createFile(content), true);
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a", blob.getSha());
+		assertEquals(content.length, blob.getSize());
+		assertArrayEquals(content, blob.getContent());
+	}
+
+	/**
+	 * Content of large files is only hashed
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void hashLargeFile() throws IOException {
+		byte[] content = new byte[200 * 1024 + 3];
+		new Random(5).nextBytes(content);
+		File file = createFile(content);
+		HashedBlob blob = new BlobHasher(1024).hash(file, true);
+		assertEquals(BlobUtils.computeSha(content), blob.getSha());
+		assertNull(blob.getContent());
+		assertEquals(blob.getSha(), new BlobHasher().hash(file, false)
+				.getSha());
+	}
+
+	/**
+	 * Hashing an empty file yields the empty blob
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void hashEmptyFile() throws IOException {
+		HashedBlob blob = new BlobHasher().hash(createFile(new byte[0]), true);
+		assertEquals(BlobUtils.EMPTY_BLOB_SHA, blob.getSha());
+		assertEquals(0, blob.getContent().length);
+	}
+}
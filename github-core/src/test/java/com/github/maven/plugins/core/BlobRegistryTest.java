@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BlobRegistry}
+ */
+public class BlobRegistryTest {
+
+	private static Callable<String> writer(final String sha,
+			final AtomicInteger writes) {
+		return new Callable<String>() {
+
+			public String call() throws Exception {
+				writes.incrementAndGet();
+				return sha;
+			}
+		};
+	}
+
+	/**
+	 * Registries are shared by key and repository
+	 */
+	@Test
+	public void registryPerRepository() {
+		Object session = new Object();
+		BlobRegistry registry = BlobRegistry.get(session, "o/r");
+		assertSame(registry, BlobRegistry.get(session, "o/r"));
+		assertNotSame(registry, BlobRegistry.get(session, "o/other"));
+		assertNotSame(registry, BlobRegistry.get(new Object(), "o/r"));
+	}
+
+	/**
+	 * Blob with the same SHA-1 is written once
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void writeOnce() throws Exception {
+		BlobRegistry registry = new BlobRegistry();
+		AtomicInteger writes = new AtomicInteger();
+		assertFalse(registry.isWritten("a"));
+		assertEquals("a", registry.write("a", writer("a", writes)));
+		assertEquals("a", registry.write("a", writer("a", writes)));
+		assertEquals(1, writes.get());
+		assertTrue(registry.isWritten("a"));
+		assertEquals("b", registry.write("b", writer("b", writes)));
+		assertEquals(2, writes.get());
+		assertEquals(2, registry.size());
+	}
+
+	/**
+	 * Failed write is attempted again
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void writeAgainAfterFailure() throws Exception {
+		BlobRegistry registry = new BlobRegistry();
+		try {
+			registry.write("a", new Callable<String>() {
+
+				public String call() throws Exception {
+					throw new IOException("failed");
+				}
+			});
+			fail("Exception not thrown");
+		} catch (IOException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		assertFalse(registry.isWritten("a"));
+		AtomicInteger writes = new AtomicInteger();
+		assertEquals("a", registry.write("a", writer("a", writes)));
+		assertEquals(1, writes.get());
+	}
+
+	/**
+	 * Concurrent writes of the same blob wait for a single write
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentWrites() throws Exception {
+		final BlobRegistry registry = new BlobRegistry();
+		final AtomicInteger writes = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 32; i++)
+				results.add(executor.submit(new Callable<String>() {
+
+					public String call() throws Exception {
+						start.await();
+						return registry.write("a", writer("a", writes));
+					}
+				}));
+			start.countDown();
+			for (Future<String> result : results)
+				assertEquals("a", result.get());
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, writes.get());
+	}
+}
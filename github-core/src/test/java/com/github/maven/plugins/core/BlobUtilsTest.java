@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BlobUtils}
+ */
+public class BlobUtilsTest {
+
+	/**
+	 * Test of {@link BlobUtils#computeSha(byte[])}
+	 */
+	@Test
+	public void computeShaOfBytes() {
+		assertEquals(BlobUtils.EMPTY_BLOB_SHA,
+				BlobUtils.computeSha(new byte[0]));
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a",
+				BlobUtils.computeSha("hello\n".getBytes()));
+	}
+
+	/**
+	 * Test of {@link BlobUtils#computeSha(File)}
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void computeShaOfFile() throws IOException {
+		File file = File.createTempFile("blob", ".txt",
+				PathUtilsTest.createDirectory());
+		assertEquals(BlobUtils.EMPTY_BLOB_SHA, BlobUtils.computeSha(file));
+
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write("hello\n".getBytes());
+		} finally {
+			output.close();
+		}
+		assertEquals("ce013625030ba8dba906f756967f9e9ca394464a",
+				BlobUtils.computeSha(file));
+	}
+}
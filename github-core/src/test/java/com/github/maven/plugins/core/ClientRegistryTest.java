@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.maven.settings.Server;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ClientRegistry}
+ */
+public class ClientRegistryTest {
+
+	/**
+	 * Registries are shared by key
+	 */
+	@Test
+	public void registryPerKey() {
+		Object session = new Object();
+		ClientRegistry registry = ClientRegistry.get(session);
+		assertSame(registry, ClientRegistry.get(session));
+		assertNotSame(registry, ClientRegistry.get(new Object()));
+	}
+
+	/**
+	 * Keys depend on every setting and its position
+	 */
+	@Test
+	public void keys() {
+		String key = ClientRegistry.getKey("host", "user", "pass", null);
+		assertEquals(key, ClientRegistry.getKey("host", "user", "pass", null));
+		assertEquals(40, key.length());
+		assertFalse(key.equals(ClientRegistry.getKey("host", "user", "other",
+				null)));
+		assertFalse(key.equals(ClientRegistry.getKey("host", "user", null,
+				"pass")));
+		assertFalse(ClientRegistry.getKey("", null).equals(
+				ClientRegistry.getKey(null, "")));
+		assertFalse(key.contains("pass"));
+	}
+
+	/**
+	 * The first client registered with a key is kept
+	 */
+	@Test
+	public void putClient() {
+		ClientRegistry registry = ClientRegistry.get(new Object());
+		GitHubClient first = new GitHubClient();
+		assertNull(registry.getClient("key"));
+		assertSame(first, registry.putClient("key", first));
+		assertSame(first, registry.putClient("key", new GitHubClient()));
+		assertSame(first, registry.getClient("key"));
+	}
+
+	/**
+	 * Decrypted settings are looked up by the identity of the original
+	 */
+	@Test
+	public void decrypted() {
+		ClientRegistry registry = ClientRegistry.get(new Object());
+		Server server = new Server();
+		server.setId("github");
+		Server copy = new Server();
+		copy.setId("github");
+		assertNull(registry.getDecrypted(server));
+		registry.putDecrypted(server, copy);
+		assertSame(copy, registry.getDecrypted(server));
+		assertNull(registry.getDecrypted(copy));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.github.maven.plugins.core.DeployCache.CacheEntry;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeployCache}
+ */
+public class DeployCacheTest {
+
+	/**
+	 * Loading a missing file creates an empty cache
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void loadMissing() throws IOException {
+		File file = new File(PathUtilsTest.createDirectory(), "cache");
+		DeployCache cache = new DeployCache(file, "o/r", "refs/heads/gh-pages")
+				.load();
+		assertNull(cache.get("index.html", 1, 2));
+	}
+
+	/**
+	 * Saved entries are returned after loading only while size and
+	 * modification time match
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void saveAndLoad() throws IOException {
+		File file = new File(PathUtilsTest.createDirectory(), "cache");
+		DeployCache cache = new DeployCache(file, "o/r", "refs/heads/gh-pages");
+		cache.put("index.html", 10, 20, "abc", true);
+		cache.put("css/site.css", 30, 40, "def", false);
+		cache.save();
+		assertTrue(file.isFile());
+		assertFalse(new File(file.getParentFile(), "cache.tmp").exists());
+
+		DeployCache loaded = new DeployCache(file, "o/r",
+				"refs/heads/gh-pages").load();
+		CacheEntry entry = loaded.get("index.html", 10, 20);
+		assertNotNull(entry);
+		assertEquals("abc", entry.getSha());
+		assertTrue(entry.isConfirmed());
+		entry = loaded.get("css/site.css", 30, 40);
+		assertNotNull(entry);
+		assertFalse(entry.isConfirmed());
+		assertNull(loaded.get("index.html", 11, 20));
+		assertNull(loaded.get("index.html", 10, 21));
+	}
+
+	/**
+	 * Entries of other branches are kept and paths not recorded in the
+	 * current deploy are dropped
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void sectionsAreIndependent() throws IOException {
+		File file = new File(PathUtilsTest.createDirectory(), "cache");
+		DeployCache pages = new DeployCache(file, "o/r", "refs/heads/gh-pages");
+		pages.put("a.html", 1, 1, "aaa", true);
+		pages.put("b.html", 1, 1, "bbb", true);
+		pages.save();
+
+		DeployCache other = new DeployCache(file, "o/r", "refs/heads/docs")
+				.load();
+		assertNull(other.get("a.html", 1, 1));
+		other.put("c.html", 1, 1, "ccc", true);
+		other.save();
+
+		pages = new DeployCache(file, "o/r", "refs/heads/gh-pages").load();
+		assertNotNull(pages.get("b.html", 1, 1));
+		pages.put("a.html", 1, 1, "aaa", true);
+		pages.save();
+
+		pages = new DeployCache(file, "o/r", "refs/heads/gh-pages").load();
+		assertNotNull(pages.get("a.html", 1, 1));
+		assertNull(pages.get("b.html", 1, 1));
+		other = new DeployCache(file, "o/r", "refs/heads/docs").load();
+		assertNotNull(other.get("c.html", 1, 1));
+	}
+}
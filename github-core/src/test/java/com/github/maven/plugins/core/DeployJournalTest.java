@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.eclipse.egit.github.core.TreeEntry;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeployJournal}
+ */
+public class DeployJournalTest {
+
+	private static final String SHA1 = "ce013625030ba8dba906f756967f9e9ca394464a";
+
+	private static final String SHA2 = "e25f1814e51579d5f55c0f1fe0135ddb28a47f4a";
+
+	private static File createFile() throws IOException {
+		File file = File.createTempFile("journal", ".txt");
+		assertTrue(file.delete());
+		file.deleteOnExit();
+		return file;
+	}
+
+	private static List<TreeEntry> entries(String sha) {
+		TreeEntry entry = new TreeEntry();
+		entry.setPath("index.html");
+		entry.setType(TYPE_BLOB);
+		entry.setMode(MODE_BLOB);
+		entry.setSha(sha);
+		return Collections.singletonList(entry);
+	}
+
+	/**
+	 * Recorded blobs and trees are loaded by a later deploy
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void resume() throws IOException {
+		File file = createFile();
+		DeployJournal journal = new DeployJournal(file, "o/r", "gh-pages")
+				.load();
+		assertTrue(journal.isEmpty());
+		journal.addBlob(SHA1);
+		journal.addTree(DeployJournal.getTreeKey(entries(SHA1), null), SHA2);
+		journal.close();
+
+		DeployJournal loaded = new DeployJournal(file, "o/r", "gh-pages")
+				.load();
+		assertEquals(Collections.singleton(SHA1), loaded.getBlobs());
+		assertEquals(SHA2,
+				loaded.getTree(DeployJournal.getTreeKey(entries(SHA1), null)));
+		assertNull(loaded.getTree(DeployJournal.getTreeKey(entries(SHA2),
+				null)));
+		assertNull(loaded.getTree(DeployJournal.getTreeKey(entries(SHA1),
+				SHA2)));
+	}
+
+	/**
+	 * Journal of another branch is ignored and started over
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void otherBranch() throws IOException {
+		File file = createFile();
+		DeployJournal journal = new DeployJournal(file, "o/r", "gh-pages");
+		journal.addBlob(SHA1);
+		journal.close();
+
+		DeployJournal other = new DeployJournal(file, "o/r", "master").load();
+		assertTrue(other.isEmpty());
+		other.addBlob(SHA2);
+		other.close();
+		assertEquals(Collections.singleton(SHA2), new DeployJournal(file,
+				"o/r", "master").load().getBlobs());
+		assertTrue(new DeployJournal(file, "o/r", "gh-pages").load()
+				.isEmpty());
+	}
+
+	/**
+	 * A partially written last line is ignored and does not corrupt later
+	 * lines
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void interruptedWrite() throws IOException {
+		File file = createFile();
+		DeployJournal journal = new DeployJournal(file, "o/r", "gh-pages");
+		journal.addBlob(SHA1);
+		journal.close();
+		FileOutputStream output = new FileOutputStream(file, true);
+		try {
+			output.write("blob\te25f18".getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+
+		journal = new DeployJournal(file, "o/r", "gh-pages").load();
+		assertEquals(Collections.singleton(SHA1), journal.getBlobs());
+		journal.addBlob(SHA2);
+		journal.close();
+		assertEquals(
+				new HashSet<String>(Arrays.asList(SHA1, SHA2)),
+				new DeployJournal(file, "o/r", "gh-pages").load().getBlobs());
+	}
+
+	/**
+	 * Deleting the journal removes its file
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void delete() throws IOException {
+		File file = createFile();
+		DeployJournal journal = new DeployJournal(file, "o/r", "gh-pages");
+		journal.addBlob(SHA1);
+		journal.delete();
+		assertFalse(file.exists());
+		assertTrue(journal.isEmpty());
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeployPlan}
+ */
+public class DeployPlanTest {
+
+	private static final long MINUTE = 60 * 1000L;
+
+	private static final long HOUR = 60 * MINUTE;
+
+	private static TreeEntry entry(String path, String sha) {
+		TreeEntry entry = new TreeEntry();
+		entry.setPath(path);
+		entry.setType(TYPE_BLOB);
+		entry.setMode(MODE_BLOB);
+		entry.setSha(sha);
+		return entry;
+	}
+
+	private static Tree current() {
+		Tree tree = new Tree();
+		tree.setSha("t");
+		tree.setTree(Arrays.asList(entry("a", "1"), entry("b", "2"),
+				entry("c", "3")));
+		return tree;
+	}
+
+	private static List<TreeEntry> entries() {
+		return Arrays.asList(entry("a", "1"), entry("b", "4"), entry("d", "5"));
+	}
+
+	/**
+	 * Paths of a new tree not merged with the current tree
+	 */
+	@Test
+	public void replaceTree() {
+		DeployPlan plan = new DeployPlan().setEntries(entries(), current(),
+				false);
+		assertEquals(Arrays.asList("d"), plan.getAdded());
+		assertEquals(Arrays.asList("b"), plan.getChanged());
+		assertEquals(Arrays.asList("a"), plan.getUnchanged());
+		assertEquals(Arrays.asList("c"), plan.getRemoved());
+	}
+
+	/**
+	 * Merged paths are only removed by entries without a SHA-1
+	 */
+	@Test
+	public void mergeTree() {
+		DeployPlan plan = new DeployPlan().setEntries(entries(), current(),
+				true);
+		assertEquals(Collections.emptyList(), plan.getRemoved());
+		plan.setEntries(Arrays.asList(entry("c", null), entry("e", null)),
+				current(), true);
+		assertEquals(Arrays.asList("c"), plan.getRemoved());
+		assertEquals(Collections.emptyList(), plan.getAdded());
+	}
+
+	/**
+	 * All paths are added to a repository without a tree
+	 */
+	@Test
+	public void noCurrentTree() {
+		DeployPlan plan = new DeployPlan().setEntries(entries(), null, false);
+		assertEquals(Arrays.asList("a", "b", "d"), plan.getAdded());
+		assertEquals(Collections.emptyList(), plan.getRemoved());
+	}
+
+	/**
+	 * Requests not limited by a rate limit take their latency
+	 */
+	@Test
+	public void estimateLatency() {
+		DeployPlan plan = new DeployPlan().setRequests(10, 1, 1, 1);
+		assertEquals(13, plan.getRequests());
+		assertEquals(13 * 100, plan.estimateTime(100, 1, 0, 0, -1, -1, 0));
+		assertEquals((3 + 3) * 100,
+				plan.estimateTime(100, 4, 0, 0, -1, -1, 0));
+	}
+
+	/**
+	 * Content-creating limits delay requests beyond the first window
+	 */
+	@Test
+	public void estimateContentLimits() {
+		DeployPlan plan = new DeployPlan().setRequests(57, 1, 1, 1);
+		assertEquals(2 * MINUTE, plan.estimateTime(10, 1, 20, 0, -1, -1, 0));
+		assertEquals(HOUR, plan.estimateTime(10, 1, 0, 30, -1, -1, 0));
+		assertEquals(600, plan.estimateTime(10, 1, 60, 0, -1, -1, 0));
+	}
+
+	/**
+	 * Requests beyond the remaining requests wait for the reset
+	 */
+	@Test
+	public void estimatePrimaryLimit() {
+		DeployPlan plan = new DeployPlan().setRequests(7, 1, 1, 1);
+		assertEquals(100, plan.estimateTime(10, 1, 0, 0, 5000, 10, MINUTE));
+		assertEquals(MINUTE,
+				plan.estimateTime(10, 1, 0, 0, 5000, 5, MINUTE));
+		assertEquals(MINUTE + 2 * HOUR,
+				plan.estimateTime(10, 1, 0, 0, 3, 2, MINUTE));
+	}
+
+	/**
+	 * Durations are rounded up to whole seconds
+	 */
+	@Test
+	public void formatTime() {
+		assertEquals("0s", DeployPlan.formatTime(0));
+		assertEquals("1s", DeployPlan.formatTime(1));
+		assertEquals("1m 0s", DeployPlan.formatTime(MINUTE));
+		assertEquals("3h 0m 5s", DeployPlan.formatTime(3 * HOUR + 5000));
+	}
+}
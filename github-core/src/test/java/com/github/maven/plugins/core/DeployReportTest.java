@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.client.GsonUtils;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeployReport}
+ */
+public class DeployReportTest {
+
+	private static class CountingClient extends RateLimitedGitHubClient {
+
+		HttpURLConnection open(String uri) throws IOException {
+			return createGet(uri);
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		StringBuilder content = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null)
+				content.append(line).append('\n');
+		} finally {
+			reader.close();
+		}
+		return content.toString();
+	}
+
+	/**
+	 * Times added to the same phase are summed
+	 */
+	@Test
+	public void addTime() {
+		DeployReport report = new DeployReport();
+		report.addTime("hash", 10).addTime("hash", 5).addTime("upload", 1);
+		assertEquals(15, report.getTime("hash"));
+		assertEquals(1, report.getTime("upload"));
+		assertEquals(0, report.getTime("tree"));
+	}
+
+	/**
+	 * Only requests sent after the report started are counted
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void requestsSinceStart() throws IOException {
+		CountingClient client = new CountingClient();
+		client.getRateLimiter().setEnabled(false);
+		client.open("/repos/o/r");
+		DeployReport report = new DeployReport().start(client);
+		client.open("/repos/o/r/git/refs/heads/gh-pages");
+		client.open("/repos/o/r/git/trees/abc");
+		report.finish();
+		Map<String, Long> requests = report.getRequests();
+		assertEquals(1, requests.size());
+		assertEquals(Long.valueOf(2), requests.get("GET"));
+		assertEquals(0, report.getBytesSent());
+		assertEquals(0, report.getRateLimitWait());
+	}
+
+	/**
+	 * JSON report contains labels, phases and counts
+	 */
+	@Test
+	public void json() {
+		DeployReport report = new DeployReport().setLabel("repository",
+				"o/r");
+		report.setCount("scanned", 3).addTime("scan", 20).setSuccess();
+		report.finish();
+		Map<?, ?> json = GsonUtils.fromJson(report.toJson(), Map.class);
+		assertEquals("o/r", json.get("repository"));
+		assertEquals(Boolean.TRUE, json.get("success"));
+		assertEquals(3.0, ((Map<?, ?>) json.get("files")).get("scanned"));
+		assertEquals(20.0, ((Map<?, ?>) json.get("phaseMillis")).get("scan"));
+		assertTrue(json.containsKey("requests"));
+		assertTrue(json.containsKey("bytesSent"));
+		assertTrue(json.containsKey("rateLimitWaitMillis"));
+	}
+
+	/**
+	 * Prometheus metrics are labeled and label values escaped
+	 */
+	@Test
+	public void prometheus() {
+		DeployReport report = new DeployReport().setLabel("repository",
+				"o/r").setLabel("branch", "a\"b\\c");
+		report.setCount("uploaded", 7).addTime("tree", 1500);
+		report.finish();
+		String metrics = report.toPrometheus();
+		String labels = "repository=\"o/r\",branch=\"a\\\"b\\\\c\"";
+		assertTrue(metrics.contains("# TYPE github_site_deploy_files gauge\n"));
+		assertTrue(metrics.contains("github_site_deploy_files{" + labels
+				+ ",state=\"uploaded\"} 7\n"));
+		assertTrue(metrics.contains("github_site_deploy_phase_seconds{"
+				+ labels + ",phase=\"tree\"} 1.5\n"));
+		assertTrue(metrics.contains("github_site_deploy_success{" + labels
+				+ "} 0\n"));
+	}
+
+	/**
+	 * Planned requests and estimate are only reported for a plan
+	 */
+	@Test
+	public void plan() {
+		DeployReport report = new DeployReport();
+		report.finish();
+		assertFalse(report.toJson().contains("plannedRequests"));
+		report.setPlan(new DeployPlan().setRequests(5, 2, 1, 1), 90000);
+		Map<?, ?> json = GsonUtils.fromJson(report.toJson(), Map.class);
+		assertEquals(5.0,
+				((Map<?, ?>) json.get("plannedRequests")).get("blob"));
+		assertEquals(90000.0, json.get("estimatedMillis"));
+		String metrics = report.toPrometheus();
+		assertTrue(metrics
+				.contains("github_site_deploy_planned_requests{kind=\"tree\"} 2\n"));
+		assertTrue(metrics
+				.contains("github_site_deploy_estimated_duration_seconds 90.0\n"));
+	}
+
+	/**
+	 * Report is written without leaving a temporary file behind
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void write() throws IOException {
+		File directory = PathUtilsTest.createDirectory();
+		File file = new File(directory, "deploy.prom");
+		DeployReport report = new DeployReport().setCount("scanned", 1);
+		report.finish();
+		report.write(file, true);
+		assertTrue(read(file).contains("state=\"scanned\"} 1\n"));
+		report.write(file, false);
+		assertTrue(read(file).startsWith("{"));
+		assertFalse(new File(directory, "deploy.prom.tmp").exists());
+	}
+}
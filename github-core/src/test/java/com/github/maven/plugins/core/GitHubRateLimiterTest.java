@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link GitHubRateLimiter}
+ */
+public class GitHubRateLimiterTest {
+
+	private static HttpURLConnection response(String limit,
+			String remaining, String reset, String retryAfter)
+			throws IOException {
+		final Map<String, String> headers = new HashMap<String, String>();
+		headers.put(GitHubRateLimiter.HEADER_LIMIT, limit);
+		headers.put(GitHubRateLimiter.HEADER_REMAINING, remaining);
+		headers.put(GitHubRateLimiter.HEADER_RESET, reset);
+		headers.put(GitHubRateLimiter.HEADER_RETRY_AFTER, retryAfter);
+		return new HttpURLConnection(new URL("https://api.github.com")) {
+
+			public String getHeaderField(String name) {
+				return headers.get(name);
+			}
+
+			public void connect() throws IOException {
+			}
+
+			public void disconnect() {
+			}
+
+			public boolean usingProxy() {
+				return false;
+			}
+		};
+	}
+
+	private static String resetIn(long seconds) {
+		return Long.toString(System.currentTimeMillis() / 1000 + seconds);
+	}
+
+	/**
+	 * Limiter turns itself off when the host sends no rate limit headers
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void disabledWithoutHeaders() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response(null, null, null, null));
+		assertFalse(limiter.isEnabled());
+	}
+
+	/**
+	 * Limiter stays on once rate limit headers were seen
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void enabledWithHeaders() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response("5000", "4999", resetIn(3600), null));
+		limiter.update(response(null, null, null, null));
+		assertTrue(limiter.isEnabled());
+	}
+
+	/**
+	 * Retry-After pauses requests
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void retryAfterPauses() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response("5000", "4000", resetIn(3600), "60"));
+		assertTrue(limiter.getPausedUntil() > System.currentTimeMillis()
+				+ 50 * 1000);
+	}
+
+	/**
+	 * Retry-After given as an HTTP date pauses requests until that time
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void retryAfterDatePauses() throws IOException {
+		SimpleDateFormat format = new SimpleDateFormat(
+				"EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response("5000", "4000", resetIn(3600),
+				format.format(new Date(System.currentTimeMillis() + 60 * 1000))));
+		assertTrue(limiter.getPausedUntil() > System.currentTimeMillis()
+				+ 50 * 1000);
+		assertEquals(-1, GitHubRateLimiter.parseRetryAfter("soon", 0));
+		assertEquals(5000, GitHubRateLimiter.parseRetryAfter("5", 0));
+	}
+
+	/**
+	 * Exhausted rate limit pauses requests until the reset time
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void exhaustedPausesUntilReset() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response("5000", "0", resetIn(600), null));
+		assertTrue(limiter.getPausedUntil() > System.currentTimeMillis()
+				+ 500 * 1000);
+	}
+
+	/**
+	 * Content-creating requests up to the per-minute limit are not delayed
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void initialBurst() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter().setContentLimits(
+				10, 0);
+		// Without any wait allowed, a throttled request would throw
+		for (int i = 0; i < 10; i++)
+			limiter.acquire(true, 0);
+		try {
+			limiter.acquire(true, 0);
+			fail("Exception not thrown");
+		} catch (RateLimitExceededException expected) {
+			assertTrue(expected.getReset() > System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Limit, remaining requests and reset time of the last response are kept
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void budgetRecorded() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		assertEquals(-1, limiter.getRemaining());
+		String reset = resetIn(600);
+		limiter.update(response("5000", "4321", reset, null));
+		assertEquals(5000, limiter.getLimit());
+		assertEquals(4321, limiter.getRemaining());
+		assertEquals(Long.parseLong(reset) * 1000, limiter.getReset());
+	}
+
+	/**
+	 * Requests paused for longer than the maximum wait fail immediately
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void pausedLongerThanMaxWait() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter().setMaxWait(1000);
+		limiter.update(response("5000", "0", resetIn(600), null));
+		try {
+			limiter.acquire(false);
+			fail("Exception not thrown");
+		} catch (RateLimitExceededException expected) {
+			assertEquals(limiter.getPausedUntil(), expected.getReset());
+		}
+	}
+
+	/**
+	 * Requests issued before the limits are set again still count
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void limitsKeepIssuedRequests() throws Exception {
+		final GitHubRateLimiter limiter = new GitHubRateLimiter()
+				.setContentLimits(1, 0);
+		limiter.acquire(true);
+		limiter.setContentLimits(1, 0);
+		Thread blocked = new Thread() {
+
+			public void run() {
+				try {
+					limiter.acquire(true);
+				} catch (IOException expected) {
+					// Interrupted
+				}
+			}
+		};
+		blocked.start();
+		blocked.join(200);
+		assertTrue(blocked.isAlive());
+		blocked.interrupt();
+		blocked.join();
+	}
+
+	/**
+	 * Maximum wait of a request overrides the one of the limiter
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void maxWaitOfRequest() throws IOException {
+		GitHubRateLimiter limiter = new GitHubRateLimiter();
+		limiter.update(response("5000", "0", resetIn(600), null));
+		try {
+			limiter.acquire(false, 1000);
+			fail("Exception not thrown");
+		} catch (RateLimitExceededException expected) {
+			assertEquals(limiter.getPausedUntil(), expected.getReset());
+		}
+	}
+
+	/**
+	 * Requests waiting longer than their maximum for a content limit fail
+	 * without waiting for the requests sleeping on the same limit
+	 *
+	 * @throws Exception
+	 */
+	@Test(timeout = 10000)
+	public void contentLimitLongerThanMaxWait() throws Exception {
+		final GitHubRateLimiter limiter = new GitHubRateLimiter()
+				.setContentLimits(1, 0);
+		limiter.acquire(true);
+		Thread blocked = new Thread() {
+
+			public void run() {
+				try {
+					limiter.acquire(true);
+				} catch (IOException expected) {
+					// Interrupted
+				}
+			}
+		};
+		blocked.start();
+		blocked.join(200);
+		assertTrue(blocked.isAlive());
+		try {
+			limiter.acquire(true, 1000);
+			fail("Exception not thrown");
+		} catch (RateLimitExceededException expected) {
+			assertTrue(expected.getReset() > System.currentTimeMillis()
+					+ 50 * 1000);
+		} finally {
+			blocked.interrupt();
+			blocked.join();
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.egit.github.core.CommitUser;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link IdentityCache}
+ */
+public class IdentityCacheTest {
+
+	/**
+	 * Saved identities are returned after loading
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void saveAndLoad() throws IOException {
+		File file = new File(PathUtilsTest.createDirectory(), "identities");
+		IdentityCache cache = new IdentityCache(file, 60000).load();
+		assertNull(cache.get("key"));
+		cache.put("key", new CommitUser().setName("Octo Cat").setEmail(
+				"octocat@github.com"));
+		cache.save();
+
+		CommitUser identity = new IdentityCache(file, 60000).load().get("key");
+		assertNotNull(identity);
+		assertEquals("Octo Cat", identity.getName());
+		assertEquals("octocat@github.com", identity.getEmail());
+		assertNull(new IdentityCache(file, 60000).load().get("other"));
+		assertEquals(1, file.getParentFile().list().length);
+	}
+
+	/**
+	 * Identities are not returned once expired
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void expired() throws IOException {
+		File file = new File(PathUtilsTest.createDirectory(), "identities");
+		IdentityCache cache = new IdentityCache(file, 0);
+		cache.put("key", new CommitUser().setName("Octo Cat").setEmail(
+				"octocat@github.com"));
+		assertNull(cache.get("key"));
+	}
+
+	/**
+	 * Identities that cannot be stored on a single line are not cached
+	 */
+	@Test
+	public void invalidIdentity() {
+		IdentityCache cache = new IdentityCache(new File("identities"), 60000);
+		cache.put("key", new CommitUser().setName("Octo\nCat").setEmail(
+				"octocat@github.com"));
+		assertNull(cache.get("key"));
+		cache.put("key", new CommitUser().setName("Octo Cat"));
+		assertNull(cache.get("key"));
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.egit.github.core.CommitUser;
+import org.eclipse.egit.github.core.RequestError;
+import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubRequest;
+import org.eclipse.egit.github.core.client.GitHubResponse;
+import org.eclipse.egit.github.core.client.RequestException;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link IdentityResolver}
+ */
+public class IdentityResolverTest {
+
+	private static class UserClient extends GitHubClientEgit {
+
+		private final User user;
+
+		private final String email;
+
+		private final AtomicInteger requests = new AtomicInteger();
+
+		UserClient(User user, String email) {
+			this.user = user;
+			this.email = email;
+			setOAuth2Token("token");
+		}
+
+		public GitHubResponse get(GitHubRequest request) throws IOException {
+			requests.incrementAndGet();
+			Object body;
+			if (request.getUri().endsWith("/emails")) {
+				if (email == null)
+					throw new RequestException(new RequestError(), 403);
+				body = Collections.singletonList(email);
+			} else
+				body = user;
+			return new GitHubResponse(new HttpURLConnection(new URL(
+					"https://api.github.com")) {
+
+				public void connect() throws IOException {
+				}
+
+				public void disconnect() {
+				}
+
+				public boolean usingProxy() {
+					return false;
+				}
+			}, body);
+		}
+	}
+
+	/**
+	 * Name and primary e-mail address of the user are used
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void lookup() throws IOException {
+		User user = new User().setLogin("octocat").setName("Octo Cat");
+		CommitUser identity = IdentityResolver.lookup(new UserClient(user,
+				"octocat@github.com"));
+		assertEquals("Octo Cat", identity.getName());
+		assertEquals("octocat@github.com", identity.getEmail());
+	}
+
+	/**
+	 * Login and no-reply address are used when the token cannot list e-mail
+	 * addresses and the user has no name or public e-mail address
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void lookupWithoutEmailScope() throws IOException {
+		User user = new User().setLogin("octocat");
+		CommitUser identity = IdentityResolver.lookup(new UserClient(user,
+				null));
+		assertEquals("octocat", identity.getName());
+		assertEquals("octocat@users.noreply.github.com", identity.getEmail());
+
+		user.setEmail("public@github.com");
+		identity = IdentityResolver.lookup(new UserClient(user, null));
+		assertEquals("public@github.com", identity.getEmail());
+	}
+
+	/**
+	 * Lookups are shared within a session and cached on disk
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void resolveOnce() throws Exception {
+		File file = new File(PathUtilsTest.createDirectory(), "identities");
+		User user = new User().setLogin("octocat").setName("Octo Cat");
+		UserClient client = new UserClient(user, "octocat@github.com");
+		ClientRegistry registry = ClientRegistry.get(new Object());
+		IdentityCache cache = new IdentityCache(file, 60000);
+
+		Future<CommitUser> identity = IdentityResolver.resolve(client,
+				registry, cache);
+		assertEquals("octocat@github.com", identity.get().getEmail());
+		assertSame(identity, IdentityResolver.resolve(client, registry, cache));
+		assertEquals(2, client.requests.get());
+
+		UserClient other = new UserClient(user, "octocat@github.com");
+		identity = IdentityResolver.resolve(other,
+				ClientRegistry.get(new Object()),
+				new IdentityCache(file, 60000).load());
+		assertEquals("Octo Cat", identity.get().getName());
+		assertEquals(0, other.requests.get());
+	}
+
+	/**
+	 * Lookups with a password are shared within a session but never written to
+	 * disk
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void resolveWithPassword() throws Exception {
+		File file = new File(PathUtilsTest.createDirectory(), "identities");
+		User user = new User().setLogin("octocat").setName("Octo Cat");
+		UserClient client = new UserClient(user, "octocat@github.com");
+		client.setCredentials("octocat", "secret");
+		assertNotNull(client.getCredentialsKey());
+		assertNull(client.getStorableCredentialsKey());
+		ClientRegistry registry = ClientRegistry.get(new Object());
+		IdentityCache cache = new IdentityCache(file, 60000);
+
+		Future<CommitUser> identity = IdentityResolver.resolve(client,
+				registry, cache);
+		assertEquals("Octo Cat", identity.get().getName());
+		assertSame(identity, IdentityResolver.resolve(client, registry, cache));
+		assertFalse(file.exists());
+		assertNull(cache.get(client.getCredentialsKey()));
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.codehaus.plexus.util.SelectorUtils;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link PathMatcher}
+ */
+public class PathMatcherTest {
+
+	private static final String[] PATTERNS = { "**", "*", "**/*.html",
+			"*.html", "apidocs/**", "apidocs/", "apidocs", "a/**/b/**",
+			"a/**/c/*.txt", "**/com/**", "a/b/**/**/x", "?ndex.*",
+			"**/*.h?ml", "/a/**", "%ant[a/**]", "%regex[.*\\.txt]", "a//b",
+			"a/*/c/**", "**/b" };
+
+	private static final String[] PATHS = { "index.html", "apidocs",
+			"apidocs/index.html", "a", "a/b", "a/b/c", "a/b/c/d.txt",
+			"a/x/c/y.txt", "a/b/y/b/x", "com/github/Foo.html", "x/com",
+			"x/com/y", "indexhtml", "b", "a/b/b" };
+
+	private static String toNative(String path) {
+		return path.replace('/', File.separatorChar);
+	}
+
+	/**
+	 * Matches are the same as plexus SelectorUtils
+	 */
+	@Test
+	public void sameAsSelectorUtils() {
+		for (String pattern : PATTERNS) {
+			PathMatcher matcher = PathMatcher.compile(
+					new String[] { pattern }, null);
+			String normalized = PathMatcher.normalizePattern(pattern);
+			for (String path : PATHS) {
+				String name = toNative(path);
+				assertEquals(pattern + " " + path,
+						SelectorUtils.matchPath(normalized, name, true),
+						matcher.isIncluded(name));
+				assertEquals(pattern + " " + path,
+						SelectorUtils.matchPatternStart(normalized, name, true),
+						matcher.couldHoldIncluded(name));
+			}
+		}
+	}
+
+	/**
+	 * Directories below an exclude ending with ** are skipped
+	 */
+	@Test
+	public void subtreeExcluded() {
+		PathMatcher matcher = PathMatcher.compile(null, new String[] {
+				"apidocs/**", "**/xref/", "*.txt" });
+		assertTrue(matcher.isSubtreeExcluded("apidocs"));
+		assertTrue(matcher.isSubtreeExcluded(toNative("apidocs/com")));
+		assertTrue(matcher.isSubtreeExcluded(toNative("a/xref")));
+		assertFalse(matcher.isSubtreeExcluded("css"));
+		assertFalse(matcher.isScanned("apidocs"));
+		assertTrue(matcher.isScanned("css"));
+		assertFalse(matcher.matches("notes.txt"));
+		assertTrue(matcher.matches("index.html"));
+	}
+
+	/**
+	 * Matchers are compiled once for the same patterns
+	 */
+	@Test
+	public void compileOnce() {
+		String[] includes = { "**/*.html" };
+		PathMatcher matcher = PathMatcher.compile(includes, null);
+		assertSame(matcher, PathMatcher.compile(new String[] { "**/*.html" },
+				new String[0]));
+		includes[0] = "*.css";
+		assertSame(matcher, PathMatcher.compile(new String[] { "**/*.html" },
+				null));
+		assertNotSame(matcher, PathMatcher.compile(includes, null));
+	}
+}
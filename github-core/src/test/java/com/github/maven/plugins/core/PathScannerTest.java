@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link PathScanner}
+ */
+public class PathScannerTest {
+
+	private static final String[] FILES = { "index.html", "css/site.css",
+			"images/logo.png", "apidocs/index.html",
+			"apidocs/com/github/Foo.html", "apidocs/com/github/Foo.txt",
+			"xref/com/github/Foo.html", "xref/index.html", "a/b/c/d/e.html",
+			"a/b/x.txt", "_layouts/default.html" };
+
+	private static File createTree() throws IOException {
+		File dir = PathUtilsTest.createDirectory();
+		for (String path : FILES) {
+			File file = new File(dir, path);
+			file.getParentFile().mkdirs();
+			assertTrue(file.createNewFile());
+		}
+		assertTrue(new File(dir, "empty/dir").mkdirs());
+		return dir;
+	}
+
+	private static String[] scanWithPlexus(File dir, String[] includes,
+			String[] excludes) {
+		DirectoryScanner scanner = new DirectoryScanner();
+		scanner.setBasedir(dir);
+		if (includes != null && includes.length > 0)
+			scanner.setIncludes(includes);
+		if (excludes != null && excludes.length > 0)
+			scanner.setExcludes(excludes);
+		scanner.scan();
+		String[] paths = scanner.getIncludedFiles();
+		Arrays.sort(paths);
+		return paths;
+	}
+
+	private static void assertSameAsPlexus(File dir, String[] includes,
+			String[] excludes) {
+		String[] expected = scanWithPlexus(dir, includes, excludes);
+		for (int threads = 1; threads <= 4; threads += 3)
+			assertArrayEquals(expected, new PathScanner(dir.getAbsolutePath(),
+					includes, excludes, threads).getMatchingPaths());
+	}
+
+	/**
+	 * Matching paths are the same as the ones found by plexus
+	 * DirectoryScanner
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void sameAsDirectoryScanner() throws IOException {
+		File dir = createTree();
+		assertSameAsPlexus(dir, null, null);
+		assertSameAsPlexus(dir, new String[] { "**/*.html" }, null);
+		assertSameAsPlexus(dir, null, new String[] { "apidocs/**" });
+		assertSameAsPlexus(dir, null, new String[] { "apidocs/", "xref/" });
+		assertSameAsPlexus(dir, new String[] { "apidocs/**" },
+				new String[] { "**/*.txt" });
+		assertSameAsPlexus(dir, new String[] { "a/**/*.html", "*.html" },
+				new String[] { "a/b/c/**" });
+		assertSameAsPlexus(dir, new String[] { "**\\com\\**" }, null);
+		assertSameAsPlexus(dir, new String[] { "*" }, new String[] { "index*" });
+		assertSameAsPlexus(dir, new String[] { " css/*.css " }, null);
+		assertSameAsPlexus(dir, new String[] { "%regex[.*\\.txt]" }, null);
+		assertSameAsPlexus(dir, new String[] { "missing/**" }, null);
+	}
+
+	/**
+	 * Scan hands out every matching path once
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void iterate() throws IOException {
+		File dir = createTree();
+		Iterator<String> scan = new PathScanner(dir.getAbsolutePath(), null,
+				null, 2).scan();
+		Set<String> paths = new HashSet<String>();
+		while (scan.hasNext())
+			assertTrue(paths.add(scan.next().replace(File.separatorChar, '/')));
+		assertFalse(scan.hasNext());
+		assertEquals(new HashSet<String>(Arrays.asList(FILES)), paths);
+	}
+
+	/**
+	 * Listing waits while the queue of found paths is full and stops once the
+	 * scan is closed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void close() throws Exception {
+		File dir = PathUtilsTest.createDirectory();
+		for (int i = 0; i < PathScanner.MAX_QUEUED + 100; i++)
+			assertTrue(new File(dir, i + ".html").createNewFile());
+		PathScanner.Scan scan = new PathScanner(dir.getAbsolutePath(), null,
+				null, 1).scan();
+		assertTrue(scan.hasNext());
+		scan.next();
+		Thread lister = null;
+		for (int i = 0; i < 500 && lister == null; i++) {
+			for (Thread thread : Thread.getAllStackTraces().keySet())
+				if (thread.getName().startsWith("github-scanner-")
+						&& thread.getState() == Thread.State.WAITING)
+					lister = thread;
+			if (lister == null)
+				Thread.sleep(10);
+		}
+		assertNotNull(lister);
+		scan.close();
+		assertFalse(scan.hasNext());
+		lister.join(5000);
+		assertFalse(lister.isAlive());
+	}
+
+	/**
+	 * Scanning a missing directory fails like plexus DirectoryScanner
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void missingDirectory() {
+		new PathScanner(new File(PathUtilsTest.createDirectory(), "missing")
+				.getAbsolutePath(), null, null, 1).scan();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.settings.Proxy;
+import org.apache.maven.settings.Settings;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link ProxyRoutes}
+ */
+public class ProxyRoutesTest {
+
+	private static Proxy proxy(String id, String host, String nonProxyHosts) {
+		Proxy proxy = new Proxy();
+		proxy.setId(id);
+		proxy.setHost(host);
+		proxy.setPort(8080);
+		proxy.setNonProxyHosts(nonProxyHosts);
+		return proxy;
+	}
+
+	/**
+	 * Patterns may contain several wildcards
+	 */
+	@Test
+	public void multipleWildcards() {
+		String hosts = "*.internal.*.com|build-*-*.example.org";
+		assertTrue(ProxyRoutes.isNonProxyHost(hosts, "git.internal.acme.com"));
+		assertTrue(ProxyRoutes.isNonProxyHost(hosts,
+				"build-eu-1.example.org"));
+		assertFalse(ProxyRoutes.isNonProxyHost(hosts, "internal.acme.com"));
+		assertFalse(ProxyRoutes.isNonProxyHost(hosts, "build-1.example.org"));
+		assertTrue(ProxyRoutes.isNonProxyHost("*", "github.com"));
+		assertFalse(ProxyRoutes.isNonProxyHost("a*a", "a"));
+	}
+
+	/**
+	 * Host names match ignoring case
+	 */
+	@Test
+	public void ignoreCase() {
+		assertTrue(ProxyRoutes.isNonProxyHost("GitHub.com", "github.COM"));
+		assertTrue(ProxyRoutes.isNonProxyHost("*.GITHUB.com",
+				"api.github.com"));
+	}
+
+	/**
+	 * Proxy with the id of the server is preferred over the first proxy
+	 */
+	@Test
+	public void serverProxyFirst() {
+		Proxy first = proxy("other", "proxy1", null);
+		Proxy server = proxy("github", "proxy2", "*.example.com");
+		Proxy inactive = proxy("inactive", "proxy3", null);
+		inactive.setActive(false);
+		ProxyRoutes routes = new ProxyRoutes(Arrays.asList(inactive, first,
+				server));
+		assertSame(server, routes.getProxy("GitHub", "github.com"));
+		assertNull(routes.getProxy("github", "git.example.com"));
+		assertSame(first, routes.getProxy(null, "git.example.com"));
+		assertSame(first, routes.getProxy("unknown", null));
+		assertNull(new ProxyRoutes(null).getProxy("github", "github.com"));
+	}
+
+	/**
+	 * Routes are compiled once per settings
+	 */
+	@Test
+	public void compiledPerSettings() {
+		Settings settings = new Settings();
+		settings.addProxy(proxy("github", "proxy", null));
+		assertSame(ProxyRoutes.get(settings), ProxyRoutes.get(settings));
+		assertFalse(ProxyRoutes.get(settings) == ProxyRoutes
+				.get(new Settings()));
+	}
+
+	/**
+	 * Selector returns the proxy of the route or a direct connection
+	 */
+	@Test
+	public void selector() {
+		ProxyRoutes routes = new ProxyRoutes(Arrays.asList(proxy("github",
+				"proxy", "localhost")));
+		List<java.net.Proxy> selected = routes.getSelector("github").select(
+				URI.create("https://api.github.com/repos"));
+		assertEquals(1, selected.size());
+		assertEquals(java.net.Proxy.Type.HTTP, selected.get(0).type());
+		InetSocketAddress address = (InetSocketAddress) selected.get(0)
+				.address();
+		assertEquals("proxy", address.getHostName());
+		assertEquals(8080, address.getPort());
+		assertEquals(Arrays.asList(java.net.Proxy.NO_PROXY), routes
+				.getSelector("github").select(
+						URI.create("http://localhost:8080/api/v3")));
+	}
+}
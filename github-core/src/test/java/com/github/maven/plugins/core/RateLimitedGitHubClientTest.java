@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.github.maven.plugins.core.egit.HttpRequest;
+import com.github.maven.plugins.core.egit.HttpResponse;
+import com.github.maven.plugins.core.egit.HttpTransport;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link RateLimitedGitHubClient}
+ */
+public class RateLimitedGitHubClientTest {
+
+	/**
+	 * Deploy clients share the limiter and counters of their client but keep
+	 * their own retry policy
+	 */
+	@Test
+	public void deployClientShares() {
+		RateLimitedGitHubClient client = new RateLimitedGitHubClient();
+		client.setOAuth2Token("token");
+		RetryPolicy shared = client.getRetryPolicy();
+		RetryPolicy policy = new RetryPolicy();
+		RateLimitedGitHubClient deploy = client.forDeploy(policy);
+		assertNotSame(client, deploy);
+		assertSame(client.getRateLimiter(), deploy.getRateLimiter());
+		assertSame(client.getTransport(), deploy.getTransport());
+		assertEquals(client.getCredentialsKey(), deploy.getCredentialsKey());
+		assertSame(policy, deploy.getRetryPolicy());
+		assertSame(shared, client.getRetryPolicy());
+		assertSame(client.getRateLimiter(), deploy.forDeploy(policy)
+				.getRateLimiter());
+	}
+
+	/**
+	 * Requests of a deploy client are sent and counted by the shared client
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void deployClientSendsThroughShared() throws IOException {
+		final int[] opened = new int[1];
+		RateLimitedGitHubClient client = new RateLimitedGitHubClient();
+		client.setTransport(new HttpTransport() {
+
+			public void setTimeouts(int connectTimeout, int readTimeout) {
+			}
+
+			public HttpResponse execute(HttpRequest request)
+					throws IOException {
+				opened[0]++;
+				throw new IOException("Not connected");
+			}
+		});
+		RateLimitedGitHubClient deploy = client.forDeploy(new RetryPolicy(0,
+				0, 0, 0));
+		try {
+			deploy.post("/repos/o/r/git/commits", null, null);
+		} catch (IOException expected) {
+			// Not connected
+		}
+		assertEquals(1, opened[0]);
+		assertEquals(Long.valueOf(1), client.getRequestCounts().get("POST"));
+		assertEquals(client.getRequestCounts(), deploy.getRequestCounts());
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.github.maven.plugins.core.RetryPolicy.Request;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link RetryPolicy}
+ */
+public class RetryPolicyTest {
+
+	private final ThreadLocal<HttpURLConnection> responses = new ThreadLocal<HttpURLConnection>();
+
+	private HttpURLConnection response(final int status) throws IOException {
+		return new HttpURLConnection(new URL("https://api.github.com")) {
+
+			public int getResponseCode() {
+				return status;
+			}
+
+			public void connect() throws IOException {
+			}
+
+			public void disconnect() {
+			}
+
+			public boolean usingProxy() {
+				return false;
+			}
+		};
+	}
+
+	private Request<String> failing(final AtomicInteger attempts,
+			final int failures, final int status) {
+		return new Request<String>() {
+
+			public String execute() throws IOException {
+				if (attempts.incrementAndGet() > failures)
+					return "ok";
+				if (status < 0)
+					throw new SocketTimeoutException();
+				responses.set(response(status));
+				throw new IOException("Status " + status);
+			}
+		};
+	}
+
+	/**
+	 * Transient failures are retried until the request succeeds
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void retriesTransientFailures() throws IOException {
+		RetryPolicy policy = new RetryPolicy(3, 10, 1, 1);
+		AtomicInteger attempts = new AtomicInteger();
+		assertEquals("ok", policy.execute(failing(attempts, 2, 502),
+				responses));
+		assertEquals(3, attempts.get());
+		assertEquals(2, policy.getRetried());
+
+		attempts.set(0);
+		assertEquals("ok", policy.execute(failing(attempts, 1, -1),
+				responses));
+		assertEquals(2, attempts.get());
+	}
+
+	/**
+	 * Client errors are not retried
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void clientErrorNotRetried() throws IOException {
+		RetryPolicy policy = new RetryPolicy(3, 10, 1, 1);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.execute(failing(attempts, 1, 404), responses);
+			fail("Exception not thrown");
+		} catch (IOException expected) {
+			assertEquals(1, attempts.get());
+		}
+	}
+
+	/**
+	 * Retries stop once the request or shared budget is exhausted
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void budgetExhausted() throws IOException {
+		RetryPolicy policy = new RetryPolicy(2, 3, 1, 1);
+		AtomicInteger attempts = new AtomicInteger();
+		try {
+			policy.execute(failing(attempts, 5, 503), responses);
+			fail("Exception not thrown");
+		} catch (IOException expected) {
+			assertEquals(3, attempts.get());
+		}
+		attempts.set(0);
+		try {
+			policy.execute(failing(attempts, 5, 503), responses);
+			fail("Exception not thrown");
+		} catch (IOException expected) {
+			assertEquals(2, attempts.get());
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.MODE_DIRECTORY;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_TREE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TreeUtils}
+ */
+public class TreeUtilsTest {
+
+	private static TreeEntry entry(String path, String type, String sha) {
+		TreeEntry entry = new TreeEntry();
+		entry.setPath(path);
+		entry.setType(type);
+		entry.setMode(TYPE_TREE.equals(type) ? MODE_DIRECTORY : MODE_BLOB);
+		entry.setSha(sha);
+		return entry;
+	}
+
+	private static List<TreeEntry> blobs() {
+		return new ArrayList<TreeEntry>(Arrays.asList(
+				entry("a.txt", TYPE_BLOB,
+						"ce013625030ba8dba906f756967f9e9ca394464a"),
+				entry("dir-a", TYPE_BLOB,
+						"e25f1814e51579d5f55c0f1fe0135ddb28a47f4a"),
+				entry("dir.x/c", TYPE_BLOB,
+						"c1b0730e0133447badcfd47fd144e254807b06e1"),
+				entry("dir/b.txt", TYPE_BLOB, BlobUtils.EMPTY_BLOB_SHA)));
+	}
+
+	private static Tree existing() {
+		Tree tree = new Tree();
+		tree.setSha("8fca1e6af0118d310aa008749e5dad369e001353");
+		List<TreeEntry> entries = blobs();
+		entries.add(entry("dir", TYPE_TREE,
+				"ec5e386905ff2d36e291086a1207f2585aaa8920"));
+		entries.add(entry("dir.x", TYPE_TREE,
+				"eb419bb6d84a1cb33305c7398c075ebc821e7c41"));
+		tree.setTree(entries);
+		return tree;
+	}
+
+	/**
+	 * Test of {@link TreeUtils#computeTreeShas(java.util.Collection)} against
+	 * trees written by Git
+	 */
+	@Test
+	public void computeTreeShas() {
+		Map<String, String> shas = TreeUtils.computeTreeShas(blobs());
+		assertEquals("8fca1e6af0118d310aa008749e5dad369e001353", shas.get(""));
+		assertEquals("ec5e386905ff2d36e291086a1207f2585aaa8920",
+				shas.get("dir"));
+		assertEquals("eb419bb6d84a1cb33305c7398c075ebc821e7c41",
+				shas.get("dir.x"));
+	}
+
+	/**
+	 * Unchanged tree compacts to null
+	 */
+	@Test
+	public void compactUnchanged() {
+		assertNull(TreeUtils.compact(blobs(), existing()));
+	}
+
+	/**
+	 * Tree without entries replacing an existing tree compacts to no entries
+	 */
+	@Test
+	public void compactEmpty() {
+		List<TreeEntry> compacted = TreeUtils.compact(
+				new ArrayList<TreeEntry>(), existing());
+		assertNotNull(compacted);
+		assertTrue(compacted.isEmpty());
+	}
+
+	/**
+	 * Unchanged directories are replaced with a single tree entry
+	 */
+	@Test
+	public void compactChanged() {
+		List<TreeEntry> entries = blobs();
+		entries.set(0, entry("a.txt", TYPE_BLOB, BlobUtils.EMPTY_BLOB_SHA));
+		List<TreeEntry> compacted = TreeUtils.compact(entries, existing());
+		assertEquals(4, compacted.size());
+		assertEquals("a.txt", compacted.get(0).getPath());
+		assertEquals("dir-a", compacted.get(1).getPath());
+		assertEquals("dir.x", compacted.get(2).getPath());
+		assertEquals(TYPE_TREE, compacted.get(2).getType());
+		assertEquals("dir", compacted.get(3).getPath());
+		assertEquals(TYPE_TREE, compacted.get(3).getType());
+	}
+
+	/**
+	 * Test of {@link TreeUtils#removeUnchanged(java.util.Collection, Tree)}
+	 */
+	@Test
+	public void removeUnchanged() {
+		List<TreeEntry> entries = blobs();
+		entries.add(entry("new.txt", TYPE_BLOB, BlobUtils.EMPTY_BLOB_SHA));
+		List<TreeEntry> changed = TreeUtils.removeUnchanged(entries,
+				existing());
+		assertEquals(1, changed.size());
+		assertEquals("new.txt", changed.get(0).getPath());
+	}
+
+	/**
+	 * Blobs below the prefix that are no longer part of the entries are
+	 * removed
+	 */
+	@Test
+	public void getRemoved() {
+		List<TreeEntry> entries = blobs();
+		entries.remove(3);
+		entries.remove(0);
+		List<TreeEntry> removed = TreeUtils.getRemoved(existing(), "",
+				entries);
+		assertEquals(2, removed.size());
+		assertEquals("a.txt", removed.get(0).getPath());
+		assertEquals(TYPE_BLOB, removed.get(0).getType());
+		assertEquals(MODE_BLOB, removed.get(0).getMode());
+		assertNull(removed.get(0).getSha());
+		assertEquals("dir/b.txt", removed.get(1).getPath());
+
+		removed = TreeUtils.getRemoved(existing(), "dir/", entries);
+		assertEquals(1, removed.size());
+		assertEquals("dir/b.txt", removed.get(0).getPath());
+		assertTrue(TreeUtils.getRemoved(existing(), "dir/", blobs())
+				.isEmpty());
+		assertTrue(TreeUtils.getRemoved(null, "", entries).isEmpty());
+	}
+}
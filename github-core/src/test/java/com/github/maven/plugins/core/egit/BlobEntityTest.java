@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.junit.Assert.assertEquals;
+
+import com.github.maven.plugins.core.PathUtilsTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.egit.github.core.util.EncodingUtils;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BlobEntity}
+ */
+public class BlobEntityTest {
+
+	private static File createFile(byte[] content) throws IOException {
+		File file = File.createTempFile("blob", ".bin",
+				PathUtilsTest.createDirectory());
+		FileOutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Test of {@link BlobEntity#encode(byte[], int, int, byte[])}
+	 */
+	@Test
+	public void encode() {
+		Random random = new Random(42);
+		for (int length = 0; length < 64; length++) {
+			byte[] content = new byte[length];
+			random.nextBytes(content);
+			byte[] encoded = new byte[(int) BlobEntity
+					.getEncodedLength(length)];
+			int written = BlobEntity.encode(content, 0, length, encoded);
+			assertEquals(encoded.length, written);
+			assertEquals(EncodingUtils.toBase64(content), new String(encoded));
+		}
+	}
+
+	/**
+	 * Test of {@link BlobEntity#writeTo(java.io.OutputStream)} with content
+	 * spanning several chunks
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void writeMultipleChunks() throws IOException {
+		byte[] content = new byte[BlobEntity.CHUNK_SIZE * 2 + 7];
+		new Random(7).nextBytes(content);
+		BlobEntity entity = new BlobEntity(createFile(content));
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		entity.writeTo(output);
+		assertEquals(entity.getLength(), output.size());
+		assertEquals("{\"encoding\":\"base64\",\"content\":\""
+				+ EncodingUtils.toBase64(content) + "\"}", output.toString());
+	}
+
+	/**
+	 * Test of {@link BlobEntity#writeTo(java.io.OutputStream)} with an empty
+	 * file
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void writeEmpty() throws IOException {
+		BlobEntity entity = new BlobEntity(createFile(new byte[0]));
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		entity.writeTo(output);
+		assertEquals(entity.getLength(), output.size());
+		assertEquals("{\"encoding\":\"base64\",\"content\":\"\"}",
+				output.toString());
+	}
+
+	/**
+	 * Content in memory is written the same as the content of a file
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void writeContent() throws IOException {
+		byte[] content = new byte[BlobEntity.CHUNK_SIZE + 2];
+		new Random(3).nextBytes(content);
+		BlobEntity entity = new BlobEntity(content);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		entity.writeTo(output);
+		assertEquals(entity.getLength(), output.size());
+		assertEquals("{\"encoding\":\"base64\",\"content\":\""
+				+ EncodingUtils.toBase64(content) + "\"}", output.toString());
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.egit.github.core.RepositoryId;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DataServiceEgit}
+ */
+public class DataServiceEgitTest {
+
+	private static class RecordingClient extends GitHubClient {
+
+		final List<Map<?, ?>> requests = new ArrayList<Map<?, ?>>();
+
+		@SuppressWarnings("unchecked")
+		public <V> V post(String uri, Object params, Type type)
+				throws IOException {
+			requests.add((Map<?, ?>) params);
+			return (V) new Tree().setSha("tree" + requests.size());
+		}
+	}
+
+	private static class EntityClient extends GitHubClientEgit {
+
+		String uri;
+
+		String body;
+
+		@SuppressWarnings("unchecked")
+		public <V> V postEntity(String uri, RequestEntity entity, Type type)
+				throws IOException {
+			this.uri = uri;
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			entity.writeTo(output);
+			assertEquals(output.size(), entity.getLength());
+			body = output.toString("UTF-8");
+			return (V) new Tree().setSha("tree");
+		}
+	}
+
+	private static int count(Object entries) {
+		if (entries instanceof Object[])
+			return ((Object[]) entries).length;
+		return ((Collection<?>) entries).size();
+	}
+
+	private static List<TreeEntry> entries(int count) {
+		List<TreeEntry> entries = new ArrayList<TreeEntry>();
+		for (int i = 0; i < count; i++) {
+			TreeEntry entry = new TreeEntry();
+			entry.setPath("dir/file" + i + ".html");
+			entry.setType(TYPE_BLOB);
+			entry.setMode(MODE_BLOB);
+			entry.setSha("e69de29bb2d1d6434b8b29ae775ad8c2e48c5391");
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	/**
+	 * Each batch of a large tree is created on top of the previous one
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void createTreeInBatches() throws IOException {
+		RecordingClient client = new RecordingClient();
+		DataServiceEgit service = new DataServiceEgit(client);
+		Tree tree = service.createTree(RepositoryId.create("o", "r"),
+				entries(25), "base", Integer.MAX_VALUE, 10);
+		assertEquals("tree3", tree.getSha());
+		assertEquals(3, client.requests.size());
+		assertEquals("base", client.requests.get(0).get("base_tree"));
+		assertEquals("tree1", client.requests.get(1).get("base_tree"));
+		assertEquals("tree2", client.requests.get(2).get("base_tree"));
+		assertEquals(10, count(client.requests.get(0).get("tree")));
+		assertEquals(5, count(client.requests.get(2).get("tree")));
+	}
+
+	/**
+	 * Batches are also split by estimated payload size
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void createTreeLimitedByBytes() throws IOException {
+		RecordingClient client = new RecordingClient();
+		DataServiceEgit service = new DataServiceEgit(client);
+		service.createTree(RepositoryId.create("o", "r"), entries(4), null,
+				250, Integer.MAX_VALUE);
+		assertEquals(2, client.requests.size());
+		assertNull(client.requests.get(0).get("base_tree"));
+		assertEquals("tree1", client.requests.get(1).get("base_tree"));
+	}
+
+	/**
+	 * Small trees are created with a single request
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void createSmallTree() throws IOException {
+		RecordingClient client = new RecordingClient();
+		DataServiceEgit service = new DataServiceEgit(client);
+		service.createTree(RepositoryId.create("o", "r"), entries(3), null,
+				DataServiceEgit.DEFAULT_TREE_BATCH_BYTES,
+				DataServiceEgit.DEFAULT_TREE_BATCH_ENTRIES);
+		assertEquals(1, client.requests.size());
+	}
+
+	/**
+	 * Entries without a SHA-1 are sent with an explicit null SHA-1
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void createTreeWithDeletes() throws IOException {
+		EntityClient client = new EntityClient();
+		DataServiceEgit service = new DataServiceEgit(client);
+		List<TreeEntry> entries = entries(2);
+		entries.get(1).setSha(null);
+		Tree tree = service.createTree(RepositoryId.create("o", "r"),
+				entries, "base");
+		assertEquals("tree", tree.getSha());
+		assertEquals("/repos/o/r/git/trees", client.uri);
+		assertTrue(client.body.contains("\"base_tree\":\"base\""));
+		assertTrue(client.body
+				.contains("{\"path\":\"dir/file1.html\",\"mode\":\"100644\",\"type\":\"blob\",\"sha\":null}"));
+		assertTrue(client.body
+				.contains("\"sha\":\"e69de29bb2d1d6434b8b29ae775ad8c2e48c5391\""));
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.core.egit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link UrlConnectionTransport}
+ */
+public class UrlConnectionTransportTest {
+
+	private static class RecordingTransport implements HttpTransport {
+
+		HttpRequest request;
+
+		boolean closed;
+
+		public void setTimeouts(int connectTimeout, int readTimeout) {
+		}
+
+		public HttpResponse execute(HttpRequest request) throws IOException {
+			this.request = request;
+			return new HttpResponse() {
+
+				public int getCode() {
+					return 201;
+				}
+
+				public String getMessage() {
+					return "Created";
+				}
+
+				public String getHeader(String name) {
+					return "X-RateLimit-Remaining".equals(name) ? "42" : null;
+				}
+
+				public InputStream getBody() {
+					return new ByteArrayInputStream(new byte[0]);
+				}
+
+				public void close() {
+					closed = true;
+				}
+			};
+		}
+	}
+
+	private static class Entity implements RequestEntity {
+
+		public long getLength() {
+			return 3;
+		}
+
+		public String getContentType() {
+			return "application/json";
+		}
+
+		public void writeTo(OutputStream output) throws IOException {
+			output.write("abc".getBytes("UTF-8"));
+		}
+	}
+
+	/**
+	 * Connections use the default timeouts
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void defaultTimeouts() throws IOException {
+		HttpURLConnection connection = new UrlConnectionTransport()
+				.open(new HttpRequest("GET", new URL("http://localhost/repos"),
+						null));
+		assertEquals(UrlConnectionTransport.DEFAULT_CONNECT_TIMEOUT,
+				connection.getConnectTimeout());
+		assertEquals(UrlConnectionTransport.DEFAULT_READ_TIMEOUT,
+				connection.getReadTimeout());
+		assertFalse(connection.getUseCaches());
+	}
+
+	/**
+	 * Connections use the configured timeouts, method and headers
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void configuredTimeouts() throws IOException {
+		UrlConnectionTransport transport = new UrlConnectionTransport();
+		transport.setTimeouts(1000, -1);
+		assertEquals(1000, transport.getConnectTimeout());
+		assertEquals(0, transport.getReadTimeout());
+		HttpURLConnection connection = transport.open(new HttpRequest(
+				"DELETE", new URL("http://localhost/repos"), Proxy.NO_PROXY)
+				.addHeader("Accept", "application/json"));
+		assertEquals(1000, connection.getConnectTimeout());
+		assertEquals(0, connection.getReadTimeout());
+		assertEquals("DELETE", connection.getRequestMethod());
+		assertEquals("application/json",
+				connection.getRequestProperty("Accept"));
+	}
+
+	/**
+	 * Client sends requests with its transport and proxy
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void clientUsesTransport() throws IOException {
+		GitHubClientEgit client = new GitHubClientEgit("localhost", 8080,
+				"http");
+		assertTrue(client.getTransport() instanceof UrlConnectionTransport);
+		RecordingTransport transport = new RecordingTransport();
+		assertSame(client, client.setTransport(transport));
+		Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(
+				"proxy", 3128));
+		client.setProxy(proxy);
+		client.setOAuth2Token("token");
+		HttpURLConnection connection = client.createConnection("/repos/o/r",
+				"GET");
+		assertNull(transport.request);
+		assertEquals(201, connection.getResponseCode());
+		assertEquals("Created", connection.getResponseMessage());
+		assertEquals("42", connection.getHeaderField("X-RateLimit-Remaining"));
+		assertTrue(connection.usingProxy());
+		assertEquals("GET", transport.request.getMethod());
+		assertEquals("http://localhost:8080/api/v3/repos/o/r",
+				transport.request.getUrl().toString());
+		assertSame(proxy, transport.request.getProxy());
+		assertEquals(Collections.singletonList("token token"),
+				transport.request.getHeaders().get("Authorization"));
+		assertNull(transport.request.getEntity());
+		connection.disconnect();
+		assertTrue(transport.closed);
+	}
+
+	/**
+	 * Parameters are sent as a buffered JSON body and entities are handed to
+	 * the transport as is
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void clientSendsBodies() throws IOException {
+		GitHubClientEgit client = new GitHubClientEgit();
+		RecordingTransport transport = new RecordingTransport();
+		client.setTransport(transport);
+		client.post("/repos/o/r/git/refs",
+				Collections.singletonMap("ref", "refs/heads/main"), null);
+		assertEquals("POST", transport.request.getMethod());
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		transport.request.getEntity().writeTo(body);
+		assertEquals("{\"ref\":\"refs/heads/main\"}", body.toString("UTF-8"));
+		assertEquals(body.size(), transport.request.getEntity().getLength());
+		assertEquals(Long.valueOf(1), client.getRequestCounts().get("POST"));
+
+		Entity entity = new Entity();
+		client.postEntity("/repos/o/r/git/blobs", entity, null);
+		assertSame(entity, transport.request.getEntity());
+		assertEquals(body.size() + 3, client.getBytesSent());
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Site deploys running in the background of a Maven session.
+ * <p>
+ * Deploys run one at a time in the order they were started so that the
+ * deploys of an aggregated reactor stage their entries before the last module
+ * writes the commit. The thread running them stops once it is idle.
+ * <p>
+ * Nothing waits for the deploys except the join goal, the JVM exits with any
+ * deploy still running when the build ends before it.
+ */
+public class BackgroundDeploys {
+
+	private static final Map<Object, BackgroundDeploys> DEPLOYS = new WeakHashMap<Object, BackgroundDeploys>();
+
+	/**
+	 * Get the background deploys of the given session. Sessions cloned for the
+	 * projects of a parallel build share their deploys.
+	 *
+	 * @param session
+	 * @return non-null deploys
+	 */
+	public static BackgroundDeploys get(MavenSession session) {
+		synchronized (DEPLOYS) {
+			Object key = SiteAggregator.getSessionKey(session);
+			BackgroundDeploys deploys = DEPLOYS.get(key);
+			if (deploys == null) {
+				deploys = new BackgroundDeploys();
+				DEPLOYS.put(key, deploys);
+			}
+			return deploys;
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+
+	private final List<String> names = new ArrayList<String>();
+
+	private final List<Future<Void>> started = new ArrayList<Future<Void>>();
+
+	BackgroundDeploys() {
+		executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+					public Thread newThread(Runnable runnable) {
+						// The launcher exits once the build ends and so only
+						// the join goal makes sure that a deploy completes
+						return new Thread(runnable, "github-site-deploy");
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Start the given deploy after the deploys started before it
+	 *
+	 * @param name
+	 *            name of the deploy, such as the id of its project
+	 * @param deploy
+	 * @return future completing with the deploy
+	 */
+	public synchronized Future<Void> start(String name, Callable<Void> deploy) {
+		Future<Void> future = executor.submit(deploy);
+		names.add(name);
+		started.add(future);
+		return future;
+	}
+
+	/**
+	 * Get the number of deploys started and not joined yet
+	 *
+	 * @return count
+	 */
+	public synchronized int getStarted() {
+		return started.size();
+	}
+
+	/**
+	 * Wait for all deploys started so far to complete
+	 *
+	 * @return map of the names of the failed deploys to their failures, empty
+	 *         if all deploys succeeded
+	 * @throws InterruptedException
+	 */
+	public Map<String, Throwable> join() throws InterruptedException {
+		List<String> joiningNames;
+		List<Future<Void>> joining;
+		synchronized (this) {
+			joiningNames = new ArrayList<String>(names);
+			joining = new ArrayList<Future<Void>>(started);
+			names.clear();
+			started.clear();
+		}
+		if (joining.isEmpty())
+			return Collections.emptyMap();
+		Map<String, Throwable> failures = new LinkedHashMap<String, Throwable>();
+		for (int i = 0; i < joining.size(); i++)
+			try {
+				joining.get(i).get();
+			} catch (ExecutionException e) {
+				failures.put(joiningNames.get(i), e.getCause());
+			}
+		return failures;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Mojo which waits for the site deploys started in the background by earlier
+ * executions of the site goal and fails the build if any of them failed
+ *
+ * @goal join
+ */
+public class JoinMojo extends AbstractMojo {
+
+	/**
+	 * The Maven session
+	 *
+	 * @parameter expression="${session}"
+	 */
+	private MavenSession session;
+
+	/**
+	 * Skip waiting for background deploys
+	 *
+	 * @parameter expression="${github.site.skip}"
+	 *            default-value="false"
+	 */
+	private boolean skip;
+
+	public void execute() throws MojoExecutionException {
+		if (skip) {
+			getLog().info("Github Site Plugin join skipped");
+			return;
+		}
+		if (session == null)
+			return;
+
+		BackgroundDeploys deploys = BackgroundDeploys.get(session);
+		int started = deploys.getStarted();
+		if (started == 0)
+			return;
+		getLog().info(
+				MessageFormat.format(
+						"Waiting for {0} site deploys running in the background",
+						started));
+		Map<String, Throwable> failures;
+		try {
+			failures = deploys.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException(
+					"Interrupted waiting for background site deploys", e);
+		}
+		if (failures.isEmpty())
+			return;
+
+		for (Entry<String, Throwable> failure : failures.entrySet())
+			getLog().error(
+					MessageFormat.format("Site deploy of {0} failed: {1}",
+							failure.getKey(), failure.getValue().getMessage()));
+		Entry<String, Throwable> first = failures.entrySet().iterator()
+				.next();
+		throw new MojoExecutionException(MessageFormat.format(
+				"{0} of {1} background site deploys failed, first failure: {2}",
+				failures.size(), started, first.getValue().getMessage()),
+				first.getValue());
+	}
+}
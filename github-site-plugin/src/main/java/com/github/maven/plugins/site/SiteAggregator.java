@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import com.github.maven.plugins.core.BlobRegistry;
+import com.github.maven.plugins.core.DeployCache;
+import com.github.maven.plugins.core.DeployJournal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.egit.github.core.Reference;
+import org.eclipse.egit.github.core.Tree;
+import org.eclipse.egit.github.core.TreeEntry;
+
+/**
+ * Collector of the tree entries staged by the modules of a reactor build that
+ * deploy to the same repository branch. The last module of the reactor writes
+ * a single tree, commit, and reference update containing the entries of all
+ * modules.
+ */
+public class SiteAggregator {
+
+	private static final Map<Object, Map<String, SiteAggregator>> AGGREGATORS = new WeakHashMap<Object, Map<String, SiteAggregator>>();
+
+	/**
+	 * Get the key of the aggregators of the given session. Sessions cloned for
+	 * the projects of a parallel build share their execution request and so
+	 * also share their aggregators.
+	 *
+	 * @param session
+	 * @return non-null key
+	 */
+	static Object getSessionKey(MavenSession session) {
+		Object key = session.getRequest();
+		return key != null ? key : session;
+	}
+
+	/**
+	 * Get the aggregator for the given repository branch in the given session
+	 *
+	 * @param session
+	 * @param repository
+	 * @param branch
+	 * @return non-null aggregator
+	 */
+	public static SiteAggregator get(MavenSession session, String repository,
+			String branch) {
+		String key = repository + ' ' + branch;
+		synchronized (AGGREGATORS) {
+			Map<String, SiteAggregator> aggregators = AGGREGATORS
+					.get(getSessionKey(session));
+			if (aggregators == null) {
+				aggregators = new HashMap<String, SiteAggregator>();
+				AGGREGATORS.put(getSessionKey(session), aggregators);
+			}
+			SiteAggregator aggregator = aggregators.get(key);
+			if (aggregator == null) {
+				aggregator = new SiteAggregator(key);
+				aggregators.put(key, aggregator);
+			}
+			return aggregator;
+		}
+	}
+
+	/**
+	 * Remove the given aggregator from the given session once its entries
+	 * have been written
+	 *
+	 * @param session
+	 * @param aggregator
+	 */
+	public static void remove(MavenSession session, SiteAggregator aggregator) {
+		synchronized (AGGREGATORS) {
+			Map<String, SiteAggregator> aggregators = AGGREGATORS
+					.get(getSessionKey(session));
+			if (aggregators != null
+					&& aggregators.get(aggregator.key) == aggregator)
+				aggregators.remove(aggregator.key);
+		}
+	}
+
+	/**
+	 * Remove all aggregators of the given session
+	 *
+	 * @param session
+	 * @return aggregators holding entries that were never written, sorted by
+	 *         repository branch
+	 */
+	public static List<SiteAggregator> removeAll(MavenSession session) {
+		Map<String, SiteAggregator> aggregators;
+		synchronized (AGGREGATORS) {
+			aggregators = AGGREGATORS.remove(getSessionKey(session));
+		}
+		List<SiteAggregator> pending = new ArrayList<SiteAggregator>();
+		if (aggregators != null)
+			for (SiteAggregator aggregator : new TreeMap<String, SiteAggregator>(
+					aggregators).values())
+				if (aggregator.getModules() > 0)
+					pending.add(aggregator);
+		return pending;
+	}
+
+	/**
+	 * Get the last project of the reactor
+	 *
+	 * @param session
+	 * @return project or null if the session has no projects
+	 */
+	public static MavenProject getLast(MavenSession session) {
+		List<MavenProject> projects = session.getProjects();
+		if (projects == null || projects.isEmpty())
+			return null;
+		return projects.get(projects.size() - 1);
+	}
+
+	/**
+	 * Is the given project the last project of the reactor?
+	 *
+	 * @param session
+	 * @param project
+	 * @return true if last, false otherwise
+	 */
+	public static boolean isLast(MavenSession session, MavenProject project) {
+		MavenProject last = getLast(session);
+		return last == null || last == project
+				|| last.getId().equals(project.getId());
+	}
+
+	/**
+	 * Does the build of the given project bind the given goal of the given
+	 * plugin to its lifecycle?
+	 *
+	 * @param project
+	 * @param pluginKey
+	 *            group and artifact id separated by a colon
+	 * @param goal
+	 * @return true if bound, false otherwise
+	 */
+	public static boolean isBound(MavenProject project, String pluginKey,
+			String goal) {
+		List<Plugin> plugins = project.getBuildPlugins();
+		if (plugins == null)
+			return false;
+		for (Plugin plugin : plugins)
+			if (pluginKey.equals(plugin.getKey()))
+				for (PluginExecution execution : plugin.getExecutions())
+					if (execution.getGoals().contains(goal))
+						return true;
+		return false;
+	}
+
+	private final String key;
+
+	private final Map<String, TreeEntry> entries = new TreeMap<String, TreeEntry>();
+
+	private final List<DeployCache> caches = new ArrayList<DeployCache>();
+
+	private final List<DeployJournal> journals = new ArrayList<DeployJournal>();
+
+	private final BlobRegistry dryRunBlobs = new BlobRegistry();
+
+	private int modules;
+
+	private boolean merge;
+
+	private int planned;
+
+	private boolean loaded;
+
+	private Reference reference;
+
+	private Tree currentTree;
+
+	private Set<String> existingBlobs;
+
+	private SiteAggregator(String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Has the target of the deploy been read by a previous module?
+	 *
+	 * @return true if loaded, false otherwise
+	 */
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Set the target of the deploy so that later modules do not read it again
+	 *
+	 * @param reference
+	 * @param currentTree
+	 * @param existingBlobs
+	 */
+	public synchronized void setTarget(Reference reference, Tree currentTree,
+			Set<String> existingBlobs) {
+		this.reference = reference;
+		this.currentTree = currentTree;
+		this.existingBlobs = existingBlobs;
+		loaded = true;
+	}
+
+	/**
+	 * @return reference, null if the branch does not exist yet
+	 */
+	public synchronized Reference getReference() {
+		return reference;
+	}
+
+	/**
+	 * @return current tree, null if the branch does not exist yet
+	 */
+	public synchronized Tree getCurrentTree() {
+		return currentTree;
+	}
+
+	/**
+	 * @return SHA-1s of the blobs in the current tree
+	 */
+	public synchronized Set<String> getExistingBlobs() {
+		return existingBlobs;
+	}
+
+	/**
+	 * Add the entries staged by a module. Entries of later modules replace
+	 * entries of earlier modules with the same path, except that entries
+	 * deleting a path never replace a file deployed by another module.
+	 *
+	 * @param moduleEntries
+	 * @param merge
+	 *            whether the module merges its entries with the current tree
+	 * @param plannedBlobs
+	 *            blobs the module would upload, when it is a dry run
+	 * @param cache
+	 *            index of files deployed by the module, may be null
+	 * @param journal
+	 *            objects created by the module, may be null
+	 */
+	public synchronized void add(Collection<TreeEntry> moduleEntries,
+			boolean merge, int plannedBlobs, DeployCache cache,
+			DeployJournal journal) {
+		if (modules == 0)
+			this.merge = merge;
+		for (TreeEntry entry : moduleEntries)
+			if (entry.getSha() != null
+					|| !entries.containsKey(entry.getPath()))
+				entries.put(entry.getPath(), entry);
+		if (cache != null)
+			caches.add(cache);
+		if (journal != null)
+			journals.add(journal);
+		planned += plannedBlobs;
+		modules++;
+	}
+
+	/**
+	 * @return repository and branch the entries are deployed to
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @return number of modules that added entries
+	 */
+	public synchronized int getModules() {
+		return modules;
+	}
+
+	/**
+	 * @return true if the modules that added entries merge them with the
+	 *         current tree, false otherwise
+	 */
+	public synchronized boolean isMerge() {
+		return merge;
+	}
+
+	/**
+	 * @return blobs all modules of a dry run would upload
+	 */
+	public synchronized int getPlanned() {
+		return planned;
+	}
+
+	/**
+	 * Get the registry of the blobs planned by the modules of a dry run, kept
+	 * apart from the registry of the session since no blob is written
+	 *
+	 * @return non-null registry
+	 */
+	public BlobRegistry getDryRunBlobs() {
+		return dryRunBlobs;
+	}
+
+	/**
+	 * @return entries of all modules sorted by path
+	 */
+	public synchronized List<TreeEntry> getEntries() {
+		return new ArrayList<TreeEntry>(entries.values());
+	}
+
+	/**
+	 * @return indexes of the files deployed by all modules
+	 */
+	public synchronized List<DeployCache> getCaches() {
+		return new ArrayList<DeployCache>(caches);
+	}
+
+	/**
+	 * @return journals of the objects created by all modules
+	 */
+	public synchronized List<DeployJournal> getJournals() {
+		return new ArrayList<DeployJournal>(journals);
+	}
+}
@@ -21,29 +21,68 @@
  */
 package com.github.maven.plugins.site;
 
-import static java.lang.Integer.MAX_VALUE;
+import static com.github.maven.plugins.core.BlobUtils.EMPTY_BLOB_SHA;
 import static org.eclipse.egit.github.core.Blob.ENCODING_BASE64;
 import static org.eclipse.egit.github.core.TreeEntry.MODE_BLOB;
 import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
 import static org.eclipse.egit.github.core.TypedResource.TYPE_COMMIT;
 
+import com.github.maven.plugins.core.BlobHasher;
+import com.github.maven.plugins.core.BlobHasher.HashedBlob;
+import com.github.maven.plugins.core.BlobRegistry;
+import com.github.maven.plugins.core.ClientRegistry;
+import com.github.maven.plugins.core.DeployCache;
+import com.github.maven.plugins.core.DeployCache.CacheEntry;
+import com.github.maven.plugins.core.DeployJournal;
+import com.github.maven.plugins.core.DeployPlan;
+import com.github.maven.plugins.core.DeployReport;
 import com.github.maven.plugins.core.GitHubProjectMojo;
-import com.github.maven.plugins.core.PathUtils;
+import com.github.maven.plugins.core.GitHubRateLimiter;
+import com.github.maven.plugins.core.IdentityCache;
+import com.github.maven.plugins.core.IdentityResolver;
+import com.github.maven.plugins.core.PathScanner;
+import com.github.maven.plugins.core.PathScanner.Scan;
+import com.github.maven.plugins.core.RateLimitExceededException;
+import com.github.maven.plugins.core.RateLimitedGitHubClient;
+import com.github.maven.plugins.core.RetryPolicy;
 import com.github.maven.plugins.core.StringUtils;
+import com.github.maven.plugins.core.TreeUtils;
+import com.github.maven.plugins.core.egit.DataServiceEgit;
+import com.github.maven.plugins.core.egit.GitHubClientEgit;
+import com.github.maven.plugins.core.egit.HttpTransport;
+import com.github.maven.plugins.core.egit.UrlConnectionTransport;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecution.Source;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.settings.Settings;
 import org.eclipse.egit.github.core.Blob;
@@ -54,11 +93,9 @@ import org.eclipse.egit.github.core.RepositoryId;
 import org.eclipse.egit.github.core.Tree;
 import org.eclipse.egit.github.core.TreeEntry;
 import org.eclipse.egit.github.core.TypedResource;
-import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.client.RequestException;
 import org.eclipse.egit.github.core.service.DataService;
-import org.eclipse.egit.github.core.service.UserService;
-import org.eclipse.egit.github.core.util.EncodingUtils;
 
 /**
  * Mojo which copies files to a GitHub repository branch. This directly uses the
@@ -80,6 +117,12 @@ public class SiteMojo extends GitHubProjectMojo {
 	 */
 	public static final String NO_JEKYLL_FILE = ".nojekyll";
 
+	/**
+	 * Milliseconds a request is estimated to take when planning a deploy
+	 * whose target was read by another module
+	 */
+	public static final long PLAN_LATENCY = 200;
+
 	/**
 	 * Branch to update
 	 *
@@ -195,6 +238,14 @@ public class SiteMojo extends GitHubProjectMojo {
 	 */
 	private MavenSession session;
 
+	/**
+	 * The execution of this goal
+	 *
+	 * @parameter expression="${mojoExecution}"
+	 * @readonly
+	 */
+	private MojoExecution mojoExecution;
+
 	/**
 	 * The Maven settings
 	 *
@@ -226,9 +277,20 @@ public class SiteMojo extends GitHubProjectMojo {
 	private boolean merge;
 
 	/**
-	 * Show what blob, trees, commits, and references would be created/updated
-	 * but don't actually perform any operations on the target GitHub
-	 * repository.
+	 * Set it to {@code true} to delete files below the configured path that
+	 * exist in the merged tree but no longer exist locally. Only used when
+	 * merging.
+	 *
+	 * @parameter expression="${github.site.prune}"
+	 */
+	private boolean prune;
+
+	/**
+	 * Plan the deploy without modifying the target GitHub repository. Only
+	 * the reference, commit, and tree are read and the local files hashed to
+	 * show the paths that would be added, changed, and removed, the number of
+	 * blob, tree, commit, and reference requests a deploy would send, and an
+	 * estimate of the time they would take under the current rate limits.
 	 *
 	 * @parameter expression="${github.site.dryRun}"
 	 */
@@ -243,71 +305,1097 @@ public class SiteMojo extends GitHubProjectMojo {
      */
     private boolean skip;
 
+	/**
+	 * Number of blobs to upload concurrently. Uploads still share the rate
+	 * limit of the client they are sent through.
+	 *
+	 * @parameter expression="${github.site.threads}" default-value="1"
+	 */
+	private int threads = 1;
+
+	/**
+	 * Set it to {@code false} to disable the local index of previously
+	 * deployed files. Files whose size and modification time match the index
+	 * are neither read nor uploaded again.
+	 *
+	 * @parameter expression="${github.site.cache}" default-value="true"
+	 */
+	private boolean cache = true;
+
+	/**
+	 * File the index of previously deployed files is stored in
+	 *
+	 * @parameter expression="${github.site.cacheFile}"
+	 *            default-value="${project.build.directory}/github-site.cache"
+	 */
+	private File cacheFile;
+
+	/**
+	 * Set it to {@code false} to disable the journal of created blobs and
+	 * trees. A deploy that stops before updating the reference is resumed
+	 * from the journal by running it again, without creating the recorded
+	 * objects again.
+	 *
+	 * @parameter expression="${github.site.journal}" default-value="true"
+	 */
+	private boolean journal = true;
+
+	/**
+	 * File the journal of created blobs and trees is appended to
+	 *
+	 * @parameter expression="${github.site.journalFile}"
+	 *            default-value="${project.build.directory}/github-site.journal"
+	 */
+	private File journalFile;
+
+	/**
+	 * Maximum number of content-creating requests per minute, zero or less
+	 * for no limit. The limit is turned off automatically when the host does
+	 * not report rate limits.
+	 *
+	 * @parameter expression="${github.site.rateLimitPerMinute}"
+	 *            default-value="20"
+	 */
+	private int rateLimitPerMinute = GitHubRateLimiter.DEFAULT_PER_MINUTE;
+
+	/**
+	 * Maximum number of content-creating requests per hour, zero or less for
+	 * no limit
+	 *
+	 * @parameter expression="${github.site.rateLimitPerHour}"
+	 *            default-value="0"
+	 */
+	private int rateLimitPerHour = GitHubRateLimiter.DEFAULT_PER_HOUR;
+
+	/**
+	 * Maximum number of minutes to wait for an exhausted rate limit to reset.
+	 * A deploy that would have to wait longer stops and is resumed from the
+	 * journal by running it again after the reset.
+	 *
+	 * @parameter expression="${github.site.rateLimitWait}"
+	 *            default-value="60"
+	 */
+	private int rateLimitWait = 60;
+
+	/**
+	 * Set it to {@code true} to upload the site in the background while the
+	 * rest of the build continues. Background deploys of a session run one
+	 * at a time and the join goal waits for them and fails the build if any
+	 * of them failed. The build fails unless the join goal is bound to a
+	 * project at or after this one or given on the command line. The site
+	 * directory must not change until then.
+	 *
+	 * @parameter expression="${github.site.background}"
+	 */
+	private boolean background;
+
+	/**
+	 * Maximum number of megabytes of file content kept in memory between
+	 * hashing and uploading. Hashing waits for uploads to complete once it is
+	 * reached. Zero or less to read every file again when it is uploaded.
+	 *
+	 * @parameter expression="${github.site.maxInFlightMB}" default-value="64"
+	 */
+	private int maxInFlightMB = 64;
+
+	/**
+	 * Number of times a request that failed with a transient error is retried.
+	 * Only requests that are safe to repeat are retried.
+	 *
+	 * @parameter expression="${github.site.retries}" default-value="3"
+	 */
+	private int retries = RetryPolicy.DEFAULT_RETRIES;
+
+	/**
+	 * Maximum number of retries of all requests of a deploy
+	 *
+	 * @parameter expression="${github.site.retryBudget}" default-value="100"
+	 */
+	private int retryBudget = RetryPolicy.DEFAULT_BUDGET;
+
+	/**
+	 * Timeout in milliseconds for connecting to the host, zero for no timeout
+	 *
+	 * @parameter expression="${github.site.connectTimeout}"
+	 *            default-value="30000"
+	 */
+	private int connectTimeout = UrlConnectionTransport.DEFAULT_CONNECT_TIMEOUT;
+
+	/**
+	 * Timeout in milliseconds for reading a response, zero for no timeout
+	 *
+	 * @parameter expression="${github.site.readTimeout}"
+	 *            default-value="120000"
+	 */
+	private int readTimeout = UrlConnectionTransport.DEFAULT_READ_TIMEOUT;
+
+	/**
+	 * Set it to {@code true} to deploy all modules of a multi-module build
+	 * with a single commit. Each module only uploads its blobs and the last
+	 * module of the reactor writes the tree, commit, and reference update for
+	 * all modules deploying to the same repository branch.
+	 *
+	 * @parameter expression="${github.site.aggregate}"
+	 */
+	private boolean aggregate;
+
+	/**
+	 * Name of the committer, the name of the authenticated user by default
+	 *
+	 * @parameter expression="${github.site.committerName}"
+	 */
+	private String committerName;
+
+	/**
+	 * E-mail address of the committer, the primary e-mail address of the
+	 * authenticated user by default
+	 *
+	 * @parameter expression="${github.site.committerEmail}"
+	 */
+	private String committerEmail;
+
+	/**
+	 * Name of the author, the committer name by default
+	 *
+	 * @parameter expression="${github.site.authorName}"
+	 */
+	private String authorName;
+
+	/**
+	 * E-mail address of the author, the committer e-mail address by default
+	 *
+	 * @parameter expression="${github.site.authorEmail}"
+	 */
+	private String authorEmail;
+
+	/**
+	 * File the identities of previously authenticated users are cached in.
+	 * Only a hash of the credentials is stored.
+	 *
+	 * @parameter expression="${github.site.identityCacheFile}"
+	 *            default-value="${user.home}/.m2/github-identity.cache"
+	 */
+	private File identityCacheFile;
+
+	/**
+	 * Number of hours a cached identity is used for, zero or less to always
+	 * look up the identity
+	 *
+	 * @parameter expression="${github.site.identityCacheHours}"
+	 *            default-value="24"
+	 */
+	private int identityCacheHours = 24;
+
+	/**
+	 * File the timings and counts of the deploy are written to as JSON
+	 *
+	 * @parameter expression="${github.site.reportFile}"
+	 *            default-value="${project.build.directory}/github-site-report.json"
+	 */
+	private File reportFile;
+
+	/**
+	 * File the timings and counts of the deploy are written to in the
+	 * Prometheus text format, such as a {@code .prom} file in the directory
+	 * of the node exporter textfile collector
+	 *
+	 * @parameter expression="${github.site.prometheusFile}"
+	 */
+	private File prometheusFile;
+
+	private DeployCache deployCache;
+
+	private volatile DeployJournal deployJournal;
+
+	private DeployReport report = new DeployReport();
+
+	private final AtomicInteger uploaded = new AtomicInteger();
+
+	private final AtomicInteger planned = new AtomicInteger();
+
+	private long latency = PLAN_LATENCY;
+
+	private final BlobHasher hasher = new BlobHasher();
+
+	private final AtomicInteger deduplicated = new AtomicInteger();
+
+	private BlobRegistry blobRegistry;
+
+	/**
+	 * Blob of a scanned path that either already exists in the repository or
+	 * still has to be written
+	 */
+	protected static class PathBlob {
+
+		final String path;
+
+		final long size;
+
+		final long modified;
+
+		final String sha;
+
+		final boolean exists;
+
+		HashedBlob hashed;
+
+		PathBlob(String path, long size, long modified, String sha,
+				boolean exists, HashedBlob hashed) {
+			this.path = path;
+			this.size = size;
+			this.modified = modified;
+			this.sha = sha;
+			this.exists = exists;
+			this.hashed = hashed;
+		}
+
+		/**
+		 * Drop the content kept in memory so that it is read from the file
+		 * when the blob is written
+		 */
+		void dropContent() {
+			if (hashed.getContent() != null)
+				hashed = new HashedBlob(hashed.getFile(), hashed.getSize(),
+						hashed.getSha(), null);
+		}
+	}
+
 	/**
 	 * Create blob
 	 *
 	 * @param service
 	 * @param repository
-	 * @param path
+	 * @param blob
+	 *            hashed file, its content is used if it was kept
 	 * @return blob SHA-1
 	 * @throws MojoExecutionException
 	 */
-	protected String createBlob(DataService service, RepositoryId repository,
-			String path) throws MojoExecutionException {
-		File file = new File(outputDirectory, path);
-		final long length = file.length();
-		final int size = length > MAX_VALUE ? MAX_VALUE : (int) length;
-		ByteArrayOutputStream output = new ByteArrayOutputStream(size);
-		FileInputStream stream = null;
+	protected String createBlob(DataServiceEgit service,
+			RepositoryId repository, HashedBlob blob)
+			throws MojoExecutionException {
+		File file = blob.getFile();
 		try {
-			stream = new FileInputStream(file);
-			final byte[] buffer = new byte[8192];
-			int read;
-			while ((read = stream.read(buffer)) != -1)
-				output.write(buffer, 0, read);
+			if (isDebug())
+				debug(MessageFormat.format("Creating blob from {0}",
+						file.getAbsolutePath()));
+			if (dryRun) {
+				planned.incrementAndGet();
+				return null;
+			}
+			long start = System.currentTimeMillis();
+			String sha;
+			if (blob.getContent() != null)
+				sha = service.createBlob(repository, blob.getContent());
+			else
+				sha = service.createBlob(repository, file);
+			report.addTime("upload", System.currentTimeMillis() - start);
+			uploaded.incrementAndGet();
+			return sha;
 		} catch (IOException e) {
-			throw new MojoExecutionException("Error reading file: "
+			throw new MojoExecutionException("Error creating blob: "
 					+ getExceptionMessage(e), e);
-		} finally {
-			if (stream != null)
-				try {
-					stream.close();
-				} catch (IOException e) {
-					debug("Exception closing stream", e);
-				}
 		}
+	}
 
-		Blob blob = new Blob().setEncoding(ENCODING_BASE64);
-		String encoded = EncodingUtils.toBase64(output.toByteArray());
-		blob.setContent(encoded);
-
+	/**
+	 * Get the full tree of the commit the given reference points to
+	 *
+	 * @param service
+	 * @param repository
+	 * @param ref
+	 * @return recursive tree or null if the commit has no tree
+	 * @throws MojoExecutionException
+	 */
+	protected Tree getCurrentTree(DataService service,
+			RepositoryId repository, Reference ref)
+			throws MojoExecutionException {
 		try {
-			if (isDebug())
-				debug(MessageFormat.format("Creating blob from {0}",
-						file.getAbsolutePath()));
-			if (!dryRun)
-				return service.createBlob(repository, blob);
-			else
+			Tree tree = service.getCommit(repository, ref.getObject().getSha())
+					.getTree();
+			if (tree == null || tree.getSha() == null)
 				return null;
+			return service.getTree(repository, tree.getSha(), true);
 		} catch (IOException e) {
-			throw new MojoExecutionException("Error creating blob: "
+			throw new MojoExecutionException("Error getting tree: "
 					+ getExceptionMessage(e), e);
 		}
 	}
 
+	/**
+	 * Get the SHA-1s of all blobs in the given tree
+	 *
+	 * @param tree
+	 * @return non-null but possibly empty set
+	 */
+	protected Set<String> getBlobShas(Tree tree) {
+		Set<String> shas = new HashSet<String>();
+		if (tree == null || tree.getTree() == null)
+			return shas;
+		for (TreeEntry entry : tree.getTree())
+			if (TYPE_BLOB.equals(entry.getType()))
+				shas.add(entry.getSha());
+		return shas;
+	}
+
+	/**
+	 * Hash the file at the given path unless the deploy cache shows that its
+	 * blob already exists in the repository. The file is read once and the
+	 * content of small files is kept for writing the blob.
+	 *
+	 * @param path
+	 * @param existingBlobs
+	 * @param unchanged
+	 * @return blob of path
+	 * @throws MojoExecutionException
+	 */
+	protected PathBlob hashBlob(String path, Set<String> existingBlobs,
+			AtomicInteger unchanged) throws MojoExecutionException {
+		File file = new File(outputDirectory, path);
+		long size = file.length();
+		long modified = file.lastModified();
+		CacheEntry cached = deployCache != null ? deployCache.get(path, size,
+				modified) : null;
+		String sha = null;
+		HashedBlob hashed = null;
+		if (cached != null
+				&& (cached.isConfirmed() || existingBlobs.contains(cached
+						.getSha())))
+			sha = cached.getSha();
+		else {
+			long start = System.currentTimeMillis();
+			try {
+				hashed = hasher.hash(file, true);
+				report.addTime("hash", System.currentTimeMillis() - start);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error reading file: "
+						+ getExceptionMessage(e), e);
+			}
+			if (existingBlobs.contains(hashed.getSha()))
+				sha = hashed.getSha();
+		}
+		if (sha == null)
+			return new PathBlob(path, size, modified, hashed.getSha(), false,
+					hashed);
+
+		if (isDebug())
+			debug(MessageFormat.format("Reusing existing blob {0} for {1}",
+					sha, path));
+		unchanged.incrementAndGet();
+		if (deployCache != null && !dryRun)
+			deployCache.put(path, size, modified, sha, true);
+		return new PathBlob(path, size, modified, sha, true, null);
+	}
+
+	/**
+	 * Upload the blob of the given path
+	 *
+	 * @param service
+	 * @param repository
+	 * @param blob
+	 * @return blob SHA-1
+	 * @throws MojoExecutionException
+	 */
+	protected String uploadBlob(final DataServiceEgit service,
+			final RepositoryId repository, final PathBlob blob)
+			throws MojoExecutionException {
+		String created;
+		if (blobRegistry == null)
+			created = createBlob(service, repository, blob.hashed);
+		else {
+			final boolean[] written = new boolean[1];
+			try {
+				created = blobRegistry.write(blob.sha, new Callable<String>() {
+
+					public String call() throws Exception {
+						written[0] = true;
+						return createBlob(service, repository, blob.hashed);
+					}
+				});
+			} catch (MojoExecutionException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error creating blob: "
+						+ getExceptionMessage(e), e);
+			} catch (Exception e) {
+				throw new MojoExecutionException("Error creating blob: "
+						+ e.getMessage(), e);
+			}
+			if (!written[0]) {
+				if (isDebug())
+					debug(MessageFormat.format(
+							"Reusing blob {0} written for other file with same content as {1}",
+							blob.sha, blob.path));
+				deduplicated.incrementAndGet();
+			}
+		}
+		if (created != null)
+			addToJournal(created);
+		if (deployCache != null && !dryRun)
+			deployCache.put(blob.path, blob.size, blob.modified,
+					created != null ? created : blob.sha, created != null);
+		return created != null ? created : blob.sha;
+	}
+
+	/**
+	 * Load the index of previously deployed files
+	 *
+	 * @param repository
+	 * @return cache, empty if it could not be read
+	 */
+	protected DeployCache loadCache(RepositoryId repository) {
+		DeployCache loaded = new DeployCache(cacheFile,
+				repository.generateId(), branch);
+		try {
+			loaded.load();
+		} catch (IOException e) {
+			warn("Ignoring unreadable deploy cache " + cacheFile + ": "
+					+ getExceptionMessage(e));
+		}
+		return loaded;
+	}
+
+	/**
+	 * Save the index of deployed files, failures are only logged
+	 */
+	protected void saveCache() {
+		if (deployCache != null)
+			saveCache(deployCache);
+	}
+
+	/**
+	 * Save the given index of deployed files unless this is a dry run,
+	 * failures are only logged
+	 *
+	 * @param cache
+	 */
+	protected void saveCache(DeployCache cache) {
+		if (dryRun)
+			return;
+		try {
+			cache.save();
+		} catch (IOException e) {
+			warn("Error writing deploy cache " + cache.getFile() + ": "
+					+ getExceptionMessage(e));
+		}
+	}
+
+	/**
+	 * Load the journal of objects created by an interrupted deploy
+	 *
+	 * @param repository
+	 * @return journal, empty if it could not be read
+	 */
+	protected DeployJournal loadJournal(RepositoryId repository) {
+		DeployJournal loaded = new DeployJournal(journalFile,
+				repository.generateId(), branch);
+		try {
+			loaded.load();
+		} catch (IOException e) {
+			warn("Ignoring unreadable deploy journal " + journalFile + ": "
+					+ getExceptionMessage(e));
+		}
+		return loaded;
+	}
+
+	/**
+	 * Record a created blob in the journal, failures are only logged and stop
+	 * the journal
+	 *
+	 * @param sha
+	 */
+	protected void addToJournal(String sha) {
+		addToJournal(null, sha);
+	}
+
+	/**
+	 * Record a created blob or tree in the journal, failures are only logged
+	 * and stop the journal
+	 *
+	 * @param treeKey
+	 *            key of the tree, null for a blob
+	 * @param sha
+	 */
+	protected void addToJournal(String treeKey, String sha) {
+		DeployJournal current = deployJournal;
+		if (current == null)
+			return;
+		try {
+			if (treeKey != null)
+				current.addTree(treeKey, sha);
+			else
+				current.addBlob(sha);
+		} catch (IOException e) {
+			warn("Error writing deploy journal " + current.getFile() + ": "
+					+ getExceptionMessage(e));
+			deployJournal = null;
+		}
+	}
+
+	/**
+	 * Delete the given journals, failures are only logged
+	 *
+	 * @param journals
+	 */
+	protected void deleteJournals(List<DeployJournal> journals) {
+		for (DeployJournal finished : journals)
+			try {
+				finished.delete();
+			} catch (IOException e) {
+				warn("Error deleting deploy journal " + finished.getFile()
+						+ ": " + getExceptionMessage(e));
+			}
+	}
+
+	/**
+	 * Start looking up the identity of the authenticated user unless the
+	 * committer is fully configured or no commit is written by a dry run
+	 *
+	 * @param client
+	 * @return future identity or null if not needed
+	 */
+	protected Future<CommitUser> startIdentityLookup(GitHubClient client) {
+		if (dryRun || !StringUtils.isEmpty(committerName, committerEmail))
+			return null;
+		IdentityCache identities = null;
+		if (identityCacheHours > 0 && identityCacheFile != null) {
+			identities = new IdentityCache(identityCacheFile,
+					identityCacheHours * 60 * 60 * 1000L);
+			try {
+				identities.load();
+			} catch (IOException e) {
+				warn("Ignoring unreadable identity cache " + identityCacheFile
+						+ ": " + getExceptionMessage(e));
+			}
+		}
+		return IdentityResolver.resolve(client,
+				session != null ? ClientRegistry.get(session) : null,
+				identities);
+	}
+
+	/**
+	 * Get the commit user with the given name and e-mail address, filling in
+	 * missing values from the looked up identity
+	 *
+	 * @param name
+	 * @param email
+	 * @param identity
+	 * @return commit user
+	 * @throws MojoExecutionException
+	 */
+	protected CommitUser getCommitUser(String name, String email,
+			Future<CommitUser> identity) throws MojoExecutionException {
+		if (StringUtils.isEmpty(name) || StringUtils.isEmpty(email)) {
+			CommitUser resolved;
+			try {
+				resolved = identity.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MojoExecutionException(
+						"Interrupted retrieving user info", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw new MojoExecutionException("Error retrieving user info: "
+						+ cause.getMessage(), cause);
+			}
+			if (StringUtils.isEmpty(name))
+				name = resolved.getName();
+			if (StringUtils.isEmpty(email))
+				email = resolved.getEmail();
+		}
+		return new CommitUser().setName(name).setEmail(email);
+	}
+
+	/**
+	 * Write the blobs for the paths found by the given scan. Scanning, hashing
+	 * and uploading overlap: found paths are hashed on all cores and the blobs
+	 * that do not exist yet are uploaded using the configured number of
+	 * threads while the scan continues. The scan pauses while enough paths
+	 * wait to be hashed and hashing pauses while the content waiting to be
+	 * uploaded reaches {@link #maxInFlightMB}.
+	 *
+	 * @param service
+	 * @param repository
+	 * @param scan
+	 *            paths relative to the output directory, closed once the
+	 *            blobs are written or writing them failed
+	 * @param existingBlobs
+	 * @param unchanged
+	 * @return map of the scanned paths using forward slashes to blob SHA-1s,
+	 *         sorted by path
+	 * @throws MojoExecutionException
+	 */
+	protected SortedMap<String, String> writeBlobs(
+			final DataServiceEgit service, final RepositoryId repository,
+			final Scan scan, final Set<String> existingBlobs,
+			final AtomicInteger unchanged) throws MojoExecutionException {
+		final Map<String, String> shas = new ConcurrentHashMap<String, String>();
+		int hashThreads = BlobHasher.DEFAULT_THREADS;
+		int uploadThreads = Math.max(1, threads);
+		if (isDebug())
+			debug(MessageFormat.format(
+					"Hashing files using {0} threads and writing blobs using {1} threads",
+					hashThreads, uploadThreads));
+		ExecutorService hashing = Executors.newFixedThreadPool(hashThreads);
+		ExecutorService uploading = Executors
+				.newFixedThreadPool(uploadThreads);
+		CompletionService<Boolean> hashes = new ExecutorCompletionService<Boolean>(
+				hashing);
+		final CompletionService<Void> uploads = new ExecutorCompletionService<Void>(
+				uploading);
+		// Paths waiting to be hashed, the scan waits for hashing beyond it
+		final Semaphore queued = new Semaphore(hashThreads * 4);
+		// Kilobytes of content kept in memory while waiting to be uploaded,
+		// files are only read once the content fits into it
+		final int budgetKb = (int) Math.min(Integer.MAX_VALUE,
+				Math.max(0, maxInFlightMB) * 1024L);
+		final Semaphore budget = new Semaphore(budgetKb, true);
+		long start = System.currentTimeMillis();
+		try {
+			int hashesPending = 0;
+			int uploadsPending = 0;
+			while (scan.hasNext()) {
+				String found = scan.next();
+				// Convert separator to forward slash '/'
+				final String path = '\\' == File.separatorChar ? found
+						.replace('\\', '/') : found;
+				queued.acquire();
+				hashes.submit(new Callable<Boolean>() {
+
+					public Boolean call() throws Exception {
+						long size = new File(outputDirectory, path).length();
+						final int reserved = budgetKb > 0
+								&& size <= BlobHasher.DEFAULT_MAX_CONTENT ? (int) Math
+								.min(budgetKb, (size + 1023) / 1024) : 0;
+						budget.acquire(reserved);
+						boolean handedOff = false;
+						try {
+							final PathBlob blob = hashBlob(path, existingBlobs,
+									unchanged);
+							if (blob.exists) {
+								shas.put(path, blob.sha);
+								return false;
+							}
+							if (reserved == 0)
+								blob.dropContent();
+							uploads.submit(new Callable<Void>() {
+
+								public Void call() throws Exception {
+									try {
+										shas.put(path, uploadBlob(service,
+												repository, blob));
+									} finally {
+										budget.release(reserved);
+									}
+									return null;
+								}
+							});
+							handedOff = true;
+							return true;
+						} finally {
+							if (!handedOff)
+								budget.release(reserved);
+							queued.release();
+						}
+					}
+				});
+				hashesPending++;
+				// Fail on the first error instead of waiting for the scan
+				Future<Boolean> hash;
+				while ((hash = hashes.poll()) != null) {
+					hashesPending--;
+					if (hash.get())
+						uploadsPending++;
+				}
+				Future<Void> upload;
+				while ((upload = uploads.poll()) != null) {
+					upload.get();
+					uploadsPending--;
+				}
+			}
+			report.addTime("scan", System.currentTimeMillis() - start);
+			for (; hashesPending > 0; hashesPending--)
+				if (hashes.take().get())
+					uploadsPending++;
+			for (; uploadsPending > 0; uploadsPending--)
+				uploads.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Interrupted writing blobs", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof MojoExecutionException)
+				throw (MojoExecutionException) cause;
+			throw new MojoExecutionException("Error writing blob: "
+					+ cause.getMessage(), cause);
+		} finally {
+			scan.close();
+			hashing.shutdownNow();
+			uploading.shutdownNow();
+		}
+		return new TreeMap<String, String>(shas);
+	}
+
+	/**
+	 * Log the given plan and add it to the report along with the time its
+	 * requests are estimated to take under the rate limits of the given client
+	 *
+	 * @param client
+	 * @param plan
+	 */
+	protected void logPlan(GitHubClient client, DeployPlan plan) {
+		if (isDebug()) {
+			for (String added : plan.getAdded())
+				debug("Adding " + added);
+			for (String changed : plan.getChanged())
+				debug("Changing " + changed);
+			for (String removed : plan.getRemoved())
+				debug("Removing " + removed);
+		}
+		info(MessageFormat.format(
+				"Plan: {0} added, {1} changed, {2} unchanged, {3} removed paths",
+				plan.getAdded().size(), plan.getChanged().size(), plan
+						.getUnchanged().size(), plan.getRemoved().size()));
+		info(MessageFormat.format(
+				"Plan: {0} blob, {1} tree, {2} commit, {3} reference requests",
+				plan.getBlobRequests(), plan.getTreeRequests(),
+				plan.getCommitRequests(), plan.getReferenceRequests()));
+
+		int perMinute = 0;
+		int perHour = 0;
+		long limit = -1;
+		long remaining = -1;
+		long resetIn = 0;
+		if (client instanceof RateLimitedGitHubClient) {
+			GitHubRateLimiter limiter = ((RateLimitedGitHubClient) client)
+					.getRateLimiter();
+			if (limiter.isEnabled()) {
+				perMinute = rateLimitPerMinute;
+				perHour = rateLimitPerHour;
+				limit = limiter.getLimit();
+				remaining = limiter.getRemaining();
+				resetIn = limiter.getReset() - System.currentTimeMillis();
+			}
+		}
+		long estimate = plan.estimateTime(latency, threads, perMinute, perHour,
+				limit, remaining, resetIn);
+		if (remaining >= 0)
+			info(MessageFormat.format(
+					"Plan: estimated deploy time {0} with {1} of {2} requests remaining",
+					DeployPlan.formatTime(estimate), remaining, limit));
+		else
+			info(MessageFormat.format("Plan: estimated deploy time {0}",
+					DeployPlan.formatTime(estimate)));
+
+		report.setCount("added", plan.getAdded().size())
+				.setCount("changed", plan.getChanged().size())
+				.setCount("unchanged", plan.getUnchanged().size())
+				.setCount("removed", plan.getRemoved().size())
+				.setPlan(plan, estimate);
+	}
+
+	/**
+	 * Write the timings and counts of the deploy to the report files
+	 */
+	protected void writeReport() {
+		report.finish();
+		if (reportFile != null)
+			try {
+				report.write(reportFile, false);
+				if (isDebug())
+					debug("Wrote deploy report to " + reportFile);
+			} catch (IOException e) {
+				warn("Unable to write deploy report " + reportFile + ": "
+						+ getExceptionMessage(e));
+			}
+		if (prometheusFile != null)
+			try {
+				report.write(prometheusFile, true);
+				if (isDebug())
+					debug("Wrote deploy metrics to " + prometheusFile);
+			} catch (IOException e) {
+				warn("Unable to write deploy metrics " + prometheusFile + ": "
+						+ getExceptionMessage(e));
+			}
+	}
+
 	public void execute() throws MojoExecutionException {
         if (skip) {
             info("Github Site Plugin execution skipped");
+            if (session != null && SiteAggregator.isLast(session, project))
+                checkCommitted(SiteAggregator.removeAll(session));
             return;
         }
 
+		if (aggregate && session != null)
+			checkAggregate();
+
+		if (background)
+			if (session != null) {
+				checkJoin();
+				BackgroundDeploys.get(session).start(project.getId(),
+						new Callable<Void>() {
+
+							public Void call() throws Exception {
+								deployAndReport();
+								return null;
+							}
+						});
+				info(MessageFormat.format(
+						"Deploying site to {0} in the background, the join goal waits for it",
+						branch));
+				return;
+			} else
+				warn("No Maven session available, deploying in the foreground");
+
+		deployAndReport();
+	}
+
+	/**
+	 * Fail unless the entries staged for an aggregated deploy are written by
+	 * the last project of the reactor. Parallel builds may run the last
+	 * project before the others.
+	 *
+	 * @throws MojoExecutionException
+	 */
+	protected void checkAggregate() throws MojoExecutionException {
+		if (session.isParallel())
+			throw new MojoExecutionException(
+					"Aggregated deploys are not supported in parallel builds, build without -T or set aggregate to false");
+		MavenProject last = SiteAggregator.getLast(session);
+		if (last == null || SiteAggregator.isLast(session, project)
+				|| mojoExecution == null
+				|| mojoExecution.getSource() == Source.CLI
+				|| mojoExecution.getMojoDescriptor() == null)
+			return;
+		PluginDescriptor plugin = mojoExecution.getMojoDescriptor()
+				.getPluginDescriptor();
+		if (plugin != null
+				&& !SiteAggregator.isBound(last, plugin.getPluginLookupKey(),
+						mojoExecution.getGoal()))
+			throw new MojoExecutionException(MessageFormat.format(
+					"Aggregated deploy requires the last project {0} of the reactor to run the {1} goal",
+					last.getId(), mojoExecution.getGoal()));
+	}
+
+	/**
+	 * Fail unless a later execution of the join goal waits for the deploy
+	 * started in the background. The JVM exits once the build ends and would
+	 * cut off the upload otherwise.
+	 *
+	 * @throws MojoExecutionException
+	 */
+	protected void checkJoin() throws MojoExecutionException {
+		if (mojoExecution == null || mojoExecution.getMojoDescriptor() == null)
+			return;
+		PluginDescriptor plugin = mojoExecution.getMojoDescriptor()
+				.getPluginDescriptor();
+		if (plugin == null)
+			return;
+		List<String> goals = session.getGoals();
+		if (goals != null)
+			for (String goal : goals)
+				if (goal.equals(plugin.getGoalPrefix() + ":join")
+						|| (goal.startsWith(plugin.getPluginLookupKey() + ':') && goal
+								.endsWith(":join")))
+					return;
+		List<MavenProject> projects = session.getProjects();
+		if (projects != null)
+			for (int i = Math.max(projects.indexOf(project), 0); i < projects
+					.size(); i++)
+				if (SiteAggregator.isBound(projects.get(i),
+						plugin.getPluginLookupKey(), "join"))
+					return;
+		throw new MojoExecutionException(
+				"Background deploys require the join goal to be bound to this or a later project of the reactor, or set background to false");
+	}
+
+	/**
+	 * Fail if any of the given aggregators holds entries that were staged but
+	 * not written by the last project of the reactor
+	 *
+	 * @param pending
+	 * @throws MojoExecutionException
+	 */
+	protected void checkCommitted(List<SiteAggregator> pending)
+			throws MojoExecutionException {
+		if (pending.isEmpty())
+			return;
+		for (SiteAggregator aggregator : pending)
+			warn(MessageFormat.format(
+					"Entries staged by {0} modules for aggregated deploy to {1} were not committed",
+					aggregator.getModules(), aggregator.getKey()));
+		throw new MojoExecutionException(MessageFormat.format(
+				"Entries staged for aggregated deploy to {0} were not committed by the last project {1} of the reactor",
+				pending.get(0).getKey(), project.getId()));
+	}
+
+	/**
+	 * Configure the content limits and transport of a client when it is
+	 * created. Later executions sharing the client keep the rate limit
+	 * windows and connections it already has.
+	 *
+	 * @param client
+	 */
+	@Override
+	protected void configureClient(GitHubClient client) {
+		if (client instanceof RateLimitedGitHubClient)
+			((RateLimitedGitHubClient) client).getRateLimiter()
+					.setContentLimits(rateLimitPerMinute, rateLimitPerHour);
+		if (client instanceof GitHubClientEgit) {
+			HttpTransport transport = ((GitHubClientEgit) client)
+					.getTransport();
+			transport.setTimeouts(connectTimeout, readTimeout);
+		}
+	}
+
+	/**
+	 * Deploy the site and write the report of the deploy
+	 *
+	 * @throws MojoExecutionException
+	 */
+	protected void deployAndReport() throws MojoExecutionException {
+		report = new DeployReport();
+		try {
+			deploy();
+			if (session != null && SiteAggregator.isLast(session, project))
+				checkCommitted(SiteAggregator.removeAll(session));
+			report.setSuccess();
+		} catch (MojoExecutionException e) {
+			DeployJournal stopped = deployJournal;
+			if (stopped != null && !stopped.isEmpty())
+				warn(MessageFormat.format(
+						"Deploy stopped with {0} blobs recorded in {1}, run it again to resume",
+						stopped.getBlobs().size(), stopped.getFile()));
+			throw e;
+		} finally {
+			if (deployJournal != null)
+				try {
+					deployJournal.close();
+				} catch (IOException e) {
+					warn("Error closing deploy journal " + journalFile + ": "
+							+ getExceptionMessage(e));
+				}
+			writeReport();
+		}
+	}
+
+	/**
+	 * Deploy the site
+	 *
+	 * @throws MojoExecutionException
+	 */
+	protected void deploy() throws MojoExecutionException {
 		RepositoryId repository = getRepository(project, repositoryOwner,
 				repositoryName);
+		report.setLabel("repository", repository.generateId())
+				.setLabel("branch", branch)
+				.setLabel("project", project.getArtifactId());
+
+		if (dryRun)
+			info("Dry run mode, planning deploy without modifying the repository");
+
+		GitHubClient client = createClient(host, userName, password,
+				oauth2Token, server, settings, session);
+		// Retries and rate limit waits of this deploy never change the ones of
+		// other deploys sharing the client
+		if (client instanceof RateLimitedGitHubClient)
+			client = ((RateLimitedGitHubClient) client)
+					.forDeploy(new RetryPolicy(retries, retryBudget,
+							RetryPolicy.DEFAULT_INITIAL_DELAY,
+							RetryPolicy.DEFAULT_MAX_DELAY)
+							.setMaxResetWait(rateLimitWait * 60 * 1000L));
+		report.start(client);
+		// Look up the committer while files are scanned and uploaded
+		Future<CommitUser> identity = startIdentityLookup(client);
+
+		report.startPhase("diff");
+		DataServiceEgit service = new DataServiceEgit(client);
+
+		SiteAggregator aggregator = null;
+		if (aggregate)
+			if (session != null)
+				aggregator = SiteAggregator.get(session,
+						repository.generateId(), branch);
+			else
+				warn("No Maven session available, deploying without aggregation");
+		// Entries deleting files cannot be part of a tree that is not merged
+		if (aggregator != null && aggregator.getModules() > 0
+				&& aggregator.isMerge() != merge)
+			throw new MojoExecutionException(MessageFormat.format(
+					"Modules of an aggregated deploy to {0} must all set merge to {1}",
+					aggregator.getKey(), aggregator.isMerge()));
 
+		Reference ref = null;
+		Tree currentTree = null;
+		Set<String> existingBlobs;
+		if (aggregator != null && aggregator.isLoaded()) {
+			// Reuse the target read by the first aggregated module
+			ref = aggregator.getReference();
+			currentTree = aggregator.getCurrentTree();
+			existingBlobs = aggregator.getExistingBlobs();
+		} else {
+			long start = System.currentTimeMillis();
+			try {
+				ref = service.getReference(repository, branch);
+			} catch (RequestException e) {
+				if (404 != e.getStatus())
+					throw new MojoExecutionException(
+							"Error getting reference: "
+									+ getExceptionMessage(e), e);
+			} catch (IOException e) {
+				throw new MojoExecutionException("Error getting reference: "
+						+ getExceptionMessage(e), e);
+			}
+
+			if (ref != null && !TYPE_COMMIT.equals(ref.getObject().getType()))
+				throw new MojoExecutionException(
+						MessageFormat
+								.format("Existing ref {0} points to a {1} ({2}) instead of a commmit",
+										ref.getRef(), ref.getObject()
+												.getType(), ref.getObject()
+												.getSha()));
+
+			// Read the tree the ref currently points to so that blobs already
+			// present in the repository are not uploaded again
+			if (ref != null)
+				currentTree = getCurrentTree(service, repository, ref);
+			// The reference, commit, and tree lookups estimate the latency of
+			// the requests of a planned deploy
+			latency = (System.currentTimeMillis() - start)
+					/ (ref != null ? 3 : 1);
+			existingBlobs = getBlobShas(currentTree);
+			if (aggregator != null)
+				aggregator.setTarget(ref, currentTree, existingBlobs);
+		}
+
+		if (cache && cacheFile != null)
+			deployCache = loadCache(repository);
+
+		// Blobs created by an interrupted deploy are not created again
+		if (journal && journalFile != null) {
+			deployJournal = loadJournal(repository);
+			if (!deployJournal.isEmpty()) {
+				Set<String> journaled = deployJournal.getBlobs();
+				info(MessageFormat.format(
+						"Resuming deploy with {0} blobs recorded in {1}",
+						journaled.size(), journalFile));
+				existingBlobs = new HashSet<String>(existingBlobs);
+				existingBlobs.addAll(journaled);
+				report.setCount("resumed", journaled.size());
+			}
+		}
+
+		// Files with the same content in this and other modules share a blob.
+		// Dry runs write no blobs and so must not register them with the
+		// session where later deploys would skip them.
 		if (dryRun)
-			info("Dry run mode, repository will not be modified");
+			blobRegistry = aggregator != null ? aggregator.getDryRunBlobs()
+					: new BlobRegistry();
+		else
+			blobRegistry = session != null ? BlobRegistry.get(session, host
+					+ ' ' + repository.generateId()) : new BlobRegistry();
 
-		// Find files to include
+		// Find files to include and write their blobs while scanning
 		String baseDir = outputDirectory.getAbsolutePath();
 		String[] includePaths = StringUtils.removeEmpties(includes);
 		String[] excludePaths = StringUtils.removeEmpties(excludes);
@@ -316,47 +1404,60 @@ public class SiteMojo extends GitHubProjectMojo {
 					"Scanning {0} and including {1} and exluding {2}", baseDir,
 					Arrays.toString(includePaths),
 					Arrays.toString(excludePaths)));
-		String[] paths = PathUtils.getMatchingPaths(includePaths, excludePaths,
-				baseDir);
+		info("Creating blobs for files in " + baseDir);
+
+		AtomicInteger unchanged = new AtomicInteger();
+		report.startPhase("blobs");
+		SortedMap<String, String> shas = writeBlobs(service, repository,
+				new PathScanner(baseDir, includePaths, excludePaths,
+						PathScanner.DEFAULT_THREADS).scan(), existingBlobs,
+				unchanged);
 
-		if (paths.length != 1)
-			info(MessageFormat.format("Creating {0} blobs", paths.length));
+		if (shas.size() != 1)
+			info(MessageFormat.format("Scanned {0} files", shas.size()));
 		else
-			info("Creating 1 blob");
+			info("Scanned 1 file");
 		if (isDebug())
 			debug(MessageFormat.format("Scanned files to include: {0}",
-					Arrays.toString(paths)));
+					shas.keySet()));
 
-		DataService service = new DataService(createClient(host, userName,
-				password, oauth2Token, server, settings, session));
+		report.setCount("scanned", shas.size());
+		report.setCount("skipped", unchanged.get());
+		report.setCount("deduplicated", deduplicated.get());
+		report.setCount("uploaded", uploaded.get());
 
-		// Write blobs and build tree entries
-		List<TreeEntry> entries = new ArrayList<TreeEntry>(paths.length);
+		// Build tree entries
+		List<TreeEntry> entries = new ArrayList<TreeEntry>(shas.size());
 		String prefix = path;
 		if (prefix == null)
 			prefix = "";
 		if (prefix.length() > 0 && !prefix.endsWith("/"))
 			prefix += "/";
 
-		// Convert separator to forward slash '/'
-		if ('\\' == File.separatorChar)
-			for (int i = 0; i < paths.length; i++)
-				paths[i] = paths[i].replace('\\', '/');
-
 		boolean createNoJekyll = noJekyll;
-
-		for (String path : paths) {
+		for (Entry<String, String> sha : shas.entrySet()) {
 			TreeEntry entry = new TreeEntry();
-			entry.setPath(prefix + path);
+			entry.setPath(prefix + sha.getKey());
 			// Only create a .nojekyll file if it doesn't already exist
 			if (createNoJekyll && NO_JEKYLL_FILE.equals(entry.getPath()))
 				createNoJekyll = false;
 			entry.setType(TYPE_BLOB);
 			entry.setMode(MODE_BLOB);
-			entry.setSha(createBlob(service, repository, path));
+			entry.setSha(sha.getValue());
 			entries.add(entry);
 		}
 
+		saveCache();
+
+		if (unchanged.get() > 0)
+			info(MessageFormat.format(
+					"Skipped {0} blobs already present in the repository",
+					unchanged.get()));
+		if (deduplicated.get() > 0)
+			info(MessageFormat.format(
+					"Skipped {0} blobs with the same content as other files",
+					deduplicated.get()));
+
 		if (createNoJekyll) {
 			TreeEntry entry = new TreeEntry();
 			entry.setPath(NO_JEKYLL_FILE);
@@ -365,83 +1466,162 @@ public class SiteMojo extends GitHubProjectMojo {
 
 			if (isDebug())
 				debug("Creating empty .nojekyll blob at root of tree");
-			if (!dryRun)
+			if (dryRun && !existingBlobs.contains(EMPTY_BLOB_SHA))
+				planned.incrementAndGet();
+			if (!dryRun && !existingBlobs.contains(EMPTY_BLOB_SHA))
 				try {
 					entry.setSha(service.createBlob(repository, new Blob()
 							.setEncoding(ENCODING_BASE64).setContent("")));
+					addToJournal(entry.getSha());
 				} catch (IOException e) {
 					throw new MojoExecutionException(
 							"Error creating .nojekyll empty blob: "
 									+ getExceptionMessage(e), e);
 				}
+			else
+				entry.setSha(EMPTY_BLOB_SHA);
 			entries.add(entry);
 		}
 
-		Reference ref = null;
-		try {
-			ref = service.getReference(repository, branch);
-		} catch (RequestException e) {
-			if (404 != e.getStatus())
-				throw new MojoExecutionException("Error getting reference: "
-						+ getExceptionMessage(e), e);
-		} catch (IOException e) {
-			throw new MojoExecutionException("Error getting reference: "
-					+ getExceptionMessage(e), e);
-		}
+		if (prune)
+			if (merge) {
+				List<TreeEntry> removed = TreeUtils.getRemoved(currentTree,
+						prefix, entries);
+				if (removed.size() != 1)
+					info(MessageFormat.format(
+							"Pruning {0} files no longer present locally",
+							removed.size()));
+				else
+					info("Pruning 1 file no longer present locally");
+				if (isDebug())
+					for (TreeEntry entry : removed)
+						debug("Pruning " + entry.getPath());
+				entries.addAll(removed);
+				report.setCount("pruned", removed.size());
+			} else
+				warn("Ignoring prune since the tree is not merged");
 
-		if (ref != null && !TYPE_COMMIT.equals(ref.getObject().getType()))
-			throw new MojoExecutionException(
-					MessageFormat
-							.format("Existing ref {0} points to a {1} ({2}) instead of a commmit",
-									ref.getRef(), ref.getObject().getType(),
-									ref.getObject().getSha()));
+		List<DeployCache> caches = new ArrayList<DeployCache>(1);
+		if (deployCache != null)
+			caches.add(deployCache);
+		List<DeployJournal> journals = new ArrayList<DeployJournal>(1);
+		if (deployJournal != null)
+			journals.add(deployJournal);
+		int plannedBlobs = planned.get();
+		if (aggregator != null) {
+			aggregator.add(entries, merge, planned.get(), deployCache,
+					deployJournal);
+			if (!SiteAggregator.isLast(session, project)) {
+				info(MessageFormat.format(
+						"Staged {0} entries for aggregated deploy to {1}",
+						entries.size(), branch));
+				return;
+			}
+			SiteAggregator.remove(session, aggregator);
+			entries = aggregator.getEntries();
+			caches = aggregator.getCaches();
+			journals = aggregator.getJournals();
+			plannedBlobs = aggregator.getPlanned();
+			info(MessageFormat.format(
+					"Deploying {0} entries of {1} modules in a single commit",
+					entries.size(), aggregator.getModules()));
+		}
 
 		// Write tree
+		report.startPhase("tree");
 		Tree tree;
+		String baseTree = null;
+		int treeRequests = 0;
 		try {
-			int size = entries.size();
-			if (size != 1)
-				info(MessageFormat.format(
-						"Creating tree with {0} blob entries", size));
-			else
-				info("Creating tree with 1 blob entry");
-			String baseTree = null;
 			if (merge && ref != null) {
-				Tree currentTree = service.getCommit(repository,
-						ref.getObject().getSha()).getTree();
 				if (currentTree != null)
 					baseTree = currentTree.getSha();
 				info(MessageFormat.format("Merging with tree {0}", baseTree));
 			}
-			if (!dryRun)
-				tree = service.createTree(repository, entries, baseTree);
-			else
-				tree = new Tree();
+			// Only send the entries that change the current tree, directories
+			// whose computed tree matches the current one are sent as a
+			// single tree entry
+			List<TreeEntry> treeEntries;
+			boolean treeUnchanged;
+			if (baseTree != null) {
+				treeEntries = TreeUtils.removeUnchanged(entries, currentTree);
+				treeUnchanged = treeEntries.isEmpty();
+			} else {
+				// An empty site replacing a non-empty tree compacts to no
+				// entries but still creates a new, empty tree
+				treeEntries = TreeUtils.compact(entries, currentTree);
+				treeUnchanged = treeEntries == null;
+			}
+			if (treeUnchanged) {
+				info(MessageFormat.format("Reusing unchanged tree {0}",
+						currentTree.getSha()));
+				tree = new Tree().setSha(currentTree.getSha());
+			} else {
+				int size = treeEntries.size();
+				if (size != 1)
+					info(MessageFormat.format(
+							"Creating tree with {0} entries", size));
+				else
+					info("Creating tree with 1 entry");
+				String treeKey = DeployJournal.getTreeKey(treeEntries,
+						baseTree);
+				String journaled = deployJournal != null ? deployJournal
+						.getTree(treeKey) : null;
+				if (journaled != null) {
+					info(MessageFormat.format(
+							"Reusing tree {0} recorded in {1}", journaled,
+							journalFile));
+					tree = new Tree().setSha(journaled);
+				} else if (!dryRun) {
+					tree = service.createTree(repository, treeEntries,
+							baseTree, DataServiceEgit.DEFAULT_TREE_BATCH_BYTES,
+							DataServiceEgit.DEFAULT_TREE_BATCH_ENTRIES);
+					addToJournal(treeKey, tree.getSha());
+				} else {
+					treeRequests = DataServiceEgit.getBatches(treeEntries,
+							DataServiceEgit.DEFAULT_TREE_BATCH_BYTES,
+							DataServiceEgit.DEFAULT_TREE_BATCH_ENTRIES).size();
+					tree = new Tree();
+				}
+			}
 		} catch (IOException e) {
+			// Blobs only known from the cache may no longer exist
+			if (!(e instanceof RateLimitExceededException))
+				for (DeployCache stale : caches) {
+					stale.clearConfirmed();
+					saveCache(stale);
+				}
+			// A rejected tree may refer to blobs of the journal that no
+			// longer exist
+			if (e instanceof RequestException
+					&& ((RequestException) e).getStatus() == 422)
+				deleteJournals(journals);
 			throw new MojoExecutionException("Error creating tree: "
 					+ getExceptionMessage(e), e);
 		}
 
+		if (dryRun) {
+			logPlan(client, new DeployPlan().setEntries(entries, currentTree,
+					baseTree != null).setRequests(plannedBlobs, treeRequests,
+					1, 1));
+			return;
+		}
+
 		// Build commit
+		report.startPhase("commit");
 		Commit commit = new Commit();
 		commit.setMessage(message);
 		commit.setTree(tree);
 
-        try {
-            UserService userService = new UserService(service.getClient());
-            User user = userService.getUser();
-
-            CommitUser author = new CommitUser();
-            author.setName(user.getName());
-            author.setEmail(userService.getEmails().get(0));
-            author.setDate(new GregorianCalendar().getTime());
-
-            commit.setAuthor(author);
-            commit.setCommitter(author);
-        } catch (IOException e) {
-            throw new MojoExecutionException("Error retrieving user info: "
-                    + getExceptionMessage(e), e);
-        }
+		Date now = new GregorianCalendar().getTime();
+		CommitUser committer = getCommitUser(committerName, committerEmail,
+				identity).setDate(now);
+		CommitUser author = getCommitUser(
+				authorName != null ? authorName : committer.getName(),
+				authorEmail != null ? authorEmail : committer.getEmail(),
+				identity).setDate(now);
+		commit.setAuthor(author);
+		commit.setCommitter(committer);
 
 		// Set parent commit SHA-1 if reference exists
 		if (ref != null)
@@ -450,10 +1630,7 @@ public class SiteMojo extends GitHubProjectMojo {
 
 		Commit created;
 		try {
-			if (!dryRun)
-				created = service.createCommit(repository, commit);
-			else
-				created = new Commit();
+			created = service.createCommit(repository, commit);
 			info(MessageFormat.format("Creating commit with SHA-1: {0}",
 					created.getSha()));
 		} catch (IOException e) {
@@ -461,6 +1638,7 @@ public class SiteMojo extends GitHubProjectMojo {
 					+ getExceptionMessage(e), e);
 		}
 
+		report.startPhase("ref");
 		TypedResource object = new TypedResource();
 		object.setType(TYPE_COMMIT).setSha(created.getSha());
 		if (ref != null) {
@@ -470,8 +1648,7 @@ public class SiteMojo extends GitHubProjectMojo {
 				info(MessageFormat.format(
 						"Updating reference {0} from {1} to {2}", branch,
 						commit.getParents().get(0).getSha(), created.getSha()));
-				if (!dryRun)
-					service.editReference(repository, ref, force);
+				service.editReference(repository, ref, force);
 			} catch (IOException e) {
 				throw new MojoExecutionException("Error editing reference: "
 						+ getExceptionMessage(e), e);
@@ -483,12 +1660,12 @@ public class SiteMojo extends GitHubProjectMojo {
 				info(MessageFormat.format(
 						"Creating reference {0} starting at commit {1}",
 						branch, created.getSha()));
-				if (!dryRun)
-					service.createReference(repository, ref);
+				service.createReference(repository, ref);
 			} catch (IOException e) {
 				throw new MojoExecutionException("Error creating reference: "
 						+ getExceptionMessage(e), e);
 			}
 		}
+		deleteJournals(journals);
 	}
 }
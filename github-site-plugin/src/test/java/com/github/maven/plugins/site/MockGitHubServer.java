@@ -0,0 +1,792 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.eclipse.egit.github.core.TreeEntry.MODE_DIRECTORY;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_BLOB;
+import static org.eclipse.egit.github.core.TreeEntry.TYPE_TREE;
+
+import com.github.maven.plugins.core.BlobUtils;
+import com.github.maven.plugins.core.TreeUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.egit.github.core.TreeEntry;
+import org.eclipse.egit.github.core.client.GsonUtils;
+import org.eclipse.egit.github.core.util.EncodingUtils;
+
+/**
+ * In-process stand-in for the Git Data API endpoints used by the site goal
+ * <p>
+ * Blobs, trees, commits and references of a single repository are kept in a
+ * content addressed store so that deploys build on each other like they do
+ * on GitHub. Latency, bandwidth, rate limit headers and failing responses can
+ * be configured to test the client under load and faults.
+ */
+public class MockGitHubServer {
+
+	/**
+	 * Kind of requests to blobs
+	 */
+	public static final String BLOBS = "blobs";
+
+	/**
+	 * Kind of requests to trees
+	 */
+	public static final String TREES = "trees";
+
+	/**
+	 * Kind of requests to commits
+	 */
+	public static final String COMMITS = "commits";
+
+	/**
+	 * Kind of requests to references
+	 */
+	public static final String REFS = "refs";
+
+	/**
+	 * Kind of requests to the authenticated user
+	 */
+	public static final String USER = "user";
+
+	/**
+	 * Kind of requests to the e-mail addresses of the authenticated user
+	 */
+	public static final String EMAILS = "emails";
+
+	private static final String PREFIX = "/api/v3";
+
+	static {
+		// Response headers and bodies are written separately, without
+		// TCP_NODELAY every response waits for a delayed acknowledgement
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private static final Pattern REPO = Pattern
+			.compile("/repos/[^/]+/[^/]+/git/(blobs|trees|commits|refs)(?:/(.+))?");
+
+	/**
+	 * Failure returned for the next requests of a kind
+	 */
+	private static class Fault {
+
+		final int status;
+
+		final AtomicInteger remaining;
+
+		Fault(int status, int count) {
+			this.status = status;
+			this.remaining = new AtomicInteger(count);
+		}
+	}
+
+	/**
+	 * Response to send
+	 */
+	private static class Response {
+
+		final int status;
+
+		final Object body;
+
+		Response(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	private static Response error(int status, String message) {
+		return new Response(status, Collections.singletonMap("message",
+				message));
+	}
+
+	private static String sha(String type, byte[] content) {
+		MessageDigest digest = BlobUtils.createDigest();
+		try {
+			digest.update((type + ' ' + content.length + '\0')
+					.getBytes("UTF-8"));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(content);
+		return BlobUtils.toHex(digest.digest());
+	}
+
+	private final HttpServer server;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final ConcurrentMap<String, byte[]> blobs = new ConcurrentHashMap<String, byte[]>();
+
+	private final ConcurrentMap<String, Map<String, TreeEntry>> trees = new ConcurrentHashMap<String, Map<String, TreeEntry>>();
+
+	private final ConcurrentMap<String, Map<String, Object>> commits = new ConcurrentHashMap<String, Map<String, Object>>();
+
+	private final Map<String, String> refs = new HashMap<String, String>();
+
+	private final ConcurrentMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+
+	private final ConcurrentMap<String, Fault> faults = new ConcurrentHashMap<String, Fault>();
+
+	private final AtomicLong bytesReceived = new AtomicLong();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	private final AtomicLong blobBytes = new AtomicLong();
+
+	private final AtomicLong maxBlobBytes = new AtomicLong();
+
+	private volatile long latency;
+
+	private volatile long bytesPerSecond;
+
+	private int rateLimit;
+
+	private long rateLimitWindow;
+
+	private int rateLimitRemaining;
+
+	private long rateLimitReset;
+
+	/**
+	 * Create server listening on a free port of the loopback address
+	 *
+	 * @throws IOException
+	 */
+	public MockGitHubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getByName("127.0.0.1"), 0), 0);
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+
+			public void handle(HttpExchange exchange) throws IOException {
+				MockGitHubServer.this.handle(exchange);
+			}
+		});
+	}
+
+	/**
+	 * Start the server
+	 *
+	 * @return this server
+	 */
+	public MockGitHubServer start() {
+		server.start();
+		return this;
+	}
+
+	/**
+	 * Stop the server
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Get URL of the server to use as host of the client
+	 *
+	 * @return URL
+	 */
+	public String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * Delay every response by the given time
+	 *
+	 * @param millis
+	 * @return this server
+	 */
+	public MockGitHubServer setLatency(long millis) {
+		latency = millis;
+		return this;
+	}
+
+	/**
+	 * Limit the rate request bodies are received at
+	 *
+	 * @param bytesPerSecond
+	 *            zero or less for no limit
+	 * @return this server
+	 */
+	public MockGitHubServer setBandwidth(long bytesPerSecond) {
+		this.bytesPerSecond = bytesPerSecond;
+		return this;
+	}
+
+	/**
+	 * Send rate limit headers allowing the given number of requests per
+	 * window, requests beyond the limit fail with 403 until the window resets
+	 *
+	 * @param limit
+	 *            zero or less to not send rate limit headers
+	 * @param windowMillis
+	 * @return this server
+	 */
+	public synchronized MockGitHubServer setRateLimit(int limit,
+			long windowMillis) {
+		rateLimit = limit;
+		rateLimitWindow = windowMillis;
+		rateLimitRemaining = limit;
+		rateLimitReset = System.currentTimeMillis() + windowMillis;
+		return this;
+	}
+
+	/**
+	 * Fail the next requests of the given kind with the given status. Failed
+	 * 403 responses are secondary rate limits asking to retry after a second.
+	 *
+	 * @param kind
+	 * @param status
+	 * @param count
+	 * @return this server
+	 */
+	public MockGitHubServer fail(String kind, int status, int count) {
+		faults.put(kind, new Fault(status, count));
+		return this;
+	}
+
+	/**
+	 * Get number of requests received with the given method for the given
+	 * kind of resource, including failed requests
+	 *
+	 * @param method
+	 * @param kind
+	 * @return count
+	 */
+	public int getRequests(String method, String kind) {
+		AtomicInteger count = requests.get(method + ' ' + kind);
+		return count != null ? count.get() : 0;
+	}
+
+	/**
+	 * Get number of requests received
+	 *
+	 * @return count
+	 */
+	public int getRequests() {
+		int total = 0;
+		for (AtomicInteger count : requests.values())
+			total += count.get();
+		return total;
+	}
+
+	/**
+	 * Reset the request counts
+	 */
+	public void resetRequests() {
+		requests.clear();
+		bytesReceived.set(0);
+		maxActive.set(0);
+		maxBlobBytes.set(0);
+	}
+
+	/**
+	 * Get number of request body bytes received
+	 *
+	 * @return bytes
+	 */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * Get the maximum number of requests handled at the same time
+	 *
+	 * @return count
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxActive.get();
+	}
+
+	/**
+	 * Get the maximum number of request body bytes of blob uploads handled at
+	 * the same time
+	 *
+	 * @return bytes
+	 */
+	public long getMaxBlobBytesInFlight() {
+		return maxBlobBytes.get();
+	}
+
+	/**
+	 * Get number of blobs stored
+	 *
+	 * @return count
+	 */
+	public int getBlobCount() {
+		return blobs.size();
+	}
+
+	/**
+	 * Get the commit SHA-1 the given reference points to
+	 *
+	 * @param ref
+	 * @return SHA-1 or null if the reference does not exist
+	 */
+	public synchronized String getRef(String ref) {
+		return refs.get(ref);
+	}
+
+	/**
+	 * Get the message of the given commit
+	 *
+	 * @param sha
+	 * @return message or null if no commit exists
+	 */
+	public String getCommitMessage(String sha) {
+		Map<String, Object> commit = commits.get(sha);
+		return commit != null ? (String) commit.get("message") : null;
+	}
+
+	/**
+	 * Get the content of the files of the tree of the commit the given
+	 * reference points to
+	 *
+	 * @param ref
+	 * @return map of paths to content, empty if the reference does not exist
+	 */
+	public Map<String, byte[]> getFiles(String ref) {
+		Map<String, byte[]> files = new TreeMap<String, byte[]>();
+		String commit = getRef(ref);
+		if (commit == null)
+			return files;
+		String tree = (String) commits.get(commit).get("tree");
+		for (Entry<String, TreeEntry> entry : trees.get(tree).entrySet())
+			files.put(entry.getKey(), blobs.get(entry.getValue().getSha()));
+		return files;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int running = active.incrementAndGet();
+		int max;
+		while (running > (max = maxActive.get())
+				&& !maxActive.compareAndSet(max, running))
+			;
+		long uploading = 0;
+		try {
+			byte[] body = read(exchange.getRequestBody());
+			bytesReceived.addAndGet(body.length);
+			if (exchange.getRequestURI().getPath().endsWith("/git/blobs")) {
+				uploading = body.length;
+				long inFlight = blobBytes.addAndGet(uploading);
+				long maxInFlight;
+				while (inFlight > (maxInFlight = maxBlobBytes.get())
+						&& !maxBlobBytes.compareAndSet(maxInFlight, inFlight))
+					;
+			}
+			long delay = latency;
+			if (bytesPerSecond > 0)
+				delay += body.length * 1000L / bytesPerSecond;
+			if (delay > 0)
+				Thread.sleep(delay);
+
+			String method = exchange.getRequestMethod();
+			String path = exchange.getRequestURI().getPath();
+			if (path.startsWith(PREFIX))
+				path = path.substring(PREFIX.length());
+			Matcher matcher = REPO.matcher(path);
+			String kind;
+			String id = null;
+			if (matcher.matches()) {
+				kind = matcher.group(1);
+				id = matcher.group(2);
+			} else if ("/user".equals(path))
+				kind = USER;
+			else if ("/user/emails".equals(path))
+				kind = EMAILS;
+			else
+				kind = path;
+			AtomicInteger count = requests.get(method + ' ' + kind);
+			if (count == null) {
+				AtomicInteger created = new AtomicInteger();
+				count = requests.putIfAbsent(method + ' ' + kind, created);
+				if (count == null)
+					count = created;
+			}
+			count.incrementAndGet();
+
+			Map<String, String> headers = new LinkedHashMap<String, String>();
+			Response response = checkRateLimit(headers);
+			if (response == null)
+				response = checkFault(kind, headers);
+			if (response == null
+					&& exchange.getRequestHeaders().getFirst("Authorization") == null)
+				response = error(401, "Requires authentication");
+			if (response == null)
+				response = route(method, kind, id, body);
+			send(exchange, response, headers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exchange.close();
+		} catch (RuntimeException e) {
+			send(exchange, error(500, String.valueOf(e)),
+					new HashMap<String, String>());
+		} finally {
+			blobBytes.addAndGet(-uploading);
+			active.decrementAndGet();
+		}
+	}
+
+	private static byte[] read(InputStream input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1)
+			output.write(buffer, 0, read);
+		input.close();
+		return output.toByteArray();
+	}
+
+	private synchronized Response checkRateLimit(Map<String, String> headers) {
+		if (rateLimit <= 0)
+			return null;
+		long now = System.currentTimeMillis();
+		if (now >= rateLimitReset) {
+			rateLimitRemaining = rateLimit;
+			rateLimitReset = now + rateLimitWindow;
+		}
+		boolean exceeded = rateLimitRemaining == 0;
+		if (!exceeded)
+			rateLimitRemaining--;
+		headers.put("X-RateLimit-Limit", Integer.toString(rateLimit));
+		headers.put("X-RateLimit-Remaining",
+				Integer.toString(rateLimitRemaining));
+		// Round up so that the reset is never reported before it happens
+		headers.put("X-RateLimit-Reset",
+				Long.toString((rateLimitReset + 999) / 1000));
+		return exceeded ? error(403, "API rate limit exceeded") : null;
+	}
+
+	private Response checkFault(String kind, Map<String, String> headers) {
+		Fault fault = faults.get(kind);
+		if (fault == null || fault.remaining.getAndDecrement() <= 0)
+			return null;
+		if (fault.status == 403) {
+			headers.put("Retry-After", "1");
+			return error(403, "You have exceeded a secondary rate limit");
+		}
+		return error(fault.status, "Injected failure");
+	}
+
+	private Response route(String method, String kind, String id, byte[] body)
+			throws IOException {
+		boolean get = "GET".equals(method);
+		boolean post = "POST".equals(method) || "PATCH".equals(method);
+		if (USER.equals(kind) && get) {
+			Map<String, Object> user = new LinkedHashMap<String, Object>();
+			user.put("login", "octocat");
+			user.put("name", "The Octocat");
+			return new Response(200, user);
+		}
+		if (EMAILS.equals(kind) && get)
+			return new Response(200,
+					Collections.singletonList("octocat@example.com"));
+		if (BLOBS.equals(kind) && post && id == null)
+			return createBlob(parse(body));
+		if (TREES.equals(kind) && post && id == null)
+			return createTree(parse(body));
+		if (TREES.equals(kind) && get && id != null)
+			return getTree(id);
+		if (COMMITS.equals(kind) && post && id == null)
+			return createCommit(parse(body));
+		if (COMMITS.equals(kind) && get && id != null)
+			return getCommit(id);
+		if (REFS.equals(kind) && post && id == null)
+			return createRef(parse(body));
+		if (REFS.equals(kind) && get && id != null)
+			return getRef("refs/" + id, null);
+		if (REFS.equals(kind) && post && id != null)
+			return updateRef("refs/" + id, parse(body));
+		return error(404, "Not Found");
+	}
+
+	private static Map<?, ?> parse(byte[] body) throws IOException {
+		return GsonUtils.fromJson(new String(body, "UTF-8"), Map.class);
+	}
+
+	private Response createBlob(Map<?, ?> params) throws IOException {
+		String content = (String) params.get("content");
+		if (content == null)
+			return error(422, "Missing content");
+		byte[] bytes;
+		if ("base64".equals(params.get("encoding")))
+			bytes = EncodingUtils.fromBase64(content);
+		else
+			bytes = content.getBytes("UTF-8");
+		String sha = sha(TYPE_BLOB, bytes);
+		blobs.putIfAbsent(sha, bytes);
+		return new Response(201, Collections.singletonMap("sha", sha));
+	}
+
+	private Response createTree(Map<?, ?> params) {
+		TreeMap<String, TreeEntry> files = new TreeMap<String, TreeEntry>();
+		String base = (String) params.get("base_tree");
+		if (base != null) {
+			Map<String, TreeEntry> baseFiles = trees.get(base);
+			if (baseFiles == null)
+				return error(422, "Invalid base_tree " + base);
+			files.putAll(baseFiles);
+		}
+		for (Object item : (List<?>) params.get("tree")) {
+			Map<?, ?> entry = (Map<?, ?>) item;
+			String path = (String) entry.get("path");
+			String sha = (String) entry.get("sha");
+			if (TYPE_TREE.equals(entry.get("type"))) {
+				// '0' follows '/' so this removes every path below the tree
+				files.subMap(path + '/', path + '0').clear();
+				if (sha == null)
+					continue;
+				Map<String, TreeEntry> subtree = trees.get(sha);
+				if (subtree == null)
+					return error(422, "Invalid tree " + sha);
+				for (Entry<String, TreeEntry> file : subtree.entrySet())
+					files.put(path + '/' + file.getKey(),
+							copy(path + '/' + file.getKey(), file.getValue()));
+			} else if (sha == null)
+				files.remove(path);
+			else if (!blobs.containsKey(sha))
+				return error(422, "Invalid blob " + sha);
+			else {
+				TreeEntry file = new TreeEntry();
+				file.setPath(path);
+				file.setType(TYPE_BLOB);
+				file.setMode((String) entry.get("mode"));
+				file.setSha(sha);
+				files.put(path, file);
+			}
+		}
+		return new Response(201, toTree(store(files), files));
+	}
+
+	private static TreeEntry copy(String path, TreeEntry entry) {
+		TreeEntry copy = new TreeEntry();
+		copy.setPath(path);
+		copy.setType(entry.getType());
+		copy.setMode(entry.getMode());
+		copy.setSha(entry.getSha());
+		return copy;
+	}
+
+	/**
+	 * Store the tree of the given files and all of its subtrees
+	 *
+	 * @param files
+	 * @return SHA-1 of the tree
+	 */
+	private String store(Map<String, TreeEntry> files) {
+		Map<String, String> shas = TreeUtils.computeTreeShas(files.values());
+		Map<String, Map<String, TreeEntry>> subtrees = new HashMap<String, Map<String, TreeEntry>>();
+		for (String directory : shas.keySet())
+			subtrees.put(directory, new TreeMap<String, TreeEntry>());
+		for (Entry<String, TreeEntry> file : files.entrySet()) {
+			String path = file.getKey();
+			subtrees.get("").put(path, file.getValue());
+			for (int slash = path.indexOf('/'); slash != -1; slash = path
+					.indexOf('/', slash + 1)) {
+				String relative = path.substring(slash + 1);
+				subtrees.get(path.substring(0, slash)).put(relative,
+						copy(relative, file.getValue()));
+			}
+		}
+		for (Entry<String, Map<String, TreeEntry>> subtree : subtrees
+				.entrySet())
+			trees.putIfAbsent(shas.get(subtree.getKey()), subtree.getValue());
+		return shas.get("");
+	}
+
+	private Map<String, Object> toTree(String sha, Map<String, TreeEntry> files) {
+		Map<String, String> directories = TreeUtils.computeTreeShas(files
+				.values());
+		List<Map<String, Object>> entries = new ArrayList<Map<String, Object>>();
+		for (Entry<String, String> directory : new TreeMap<String, String>(
+				directories).entrySet())
+			if (directory.getKey().length() > 0)
+				entries.add(toEntry(directory.getKey(), MODE_DIRECTORY,
+						TYPE_TREE, directory.getValue()));
+		for (TreeEntry file : files.values())
+			entries.add(toEntry(file.getPath(), file.getMode(), TYPE_BLOB,
+					file.getSha()));
+		Map<String, Object> tree = new LinkedHashMap<String, Object>();
+		tree.put("sha", sha);
+		tree.put("tree", entries);
+		tree.put("truncated", false);
+		return tree;
+	}
+
+	private static Map<String, Object> toEntry(String path, String mode,
+			String type, String sha) {
+		Map<String, Object> entry = new LinkedHashMap<String, Object>();
+		entry.put("path", path);
+		entry.put("mode", mode);
+		entry.put("type", type);
+		entry.put("sha", sha);
+		return entry;
+	}
+
+	private Response getTree(String sha) {
+		Map<String, TreeEntry> files = trees.get(sha);
+		if (files == null)
+			return error(404, "Not Found");
+		return new Response(200, toTree(sha, files));
+	}
+
+	private Response createCommit(Map<?, ?> params) throws IOException {
+		String tree = (String) params.get("tree");
+		if (tree == null || !trees.containsKey(tree))
+			return error(422, "Invalid tree " + tree);
+		List<String> parents = new ArrayList<String>();
+		if (params.get("parents") != null)
+			for (Object parent : (List<?>) params.get("parents"))
+				parents.add(parent instanceof Map ? (String) ((Map<?, ?>) parent)
+						.get("sha") : (String) parent);
+		for (String parent : parents)
+			if (!commits.containsKey(parent))
+				return error(422, "Invalid parent " + parent);
+		Map<String, Object> commit = new LinkedHashMap<String, Object>();
+		commit.put("message", params.get("message"));
+		commit.put("tree", tree);
+		commit.put("parents", parents);
+		commit.put("author", params.get("author"));
+		commit.put("committer", params.get("committer"));
+		String sha = sha(COMMITS, GsonUtils.toJson(commit).getBytes("UTF-8"));
+		commits.putIfAbsent(sha, commit);
+		return new Response(201, toCommit(sha, commit));
+	}
+
+	private static Map<String, Object> toCommit(String sha,
+			Map<String, Object> commit) {
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+		response.put("sha", sha);
+		response.put("message", commit.get("message"));
+		response.put("tree", Collections.singletonMap("sha", commit.get("tree")));
+		List<Map<String, String>> parents = new ArrayList<Map<String, String>>();
+		for (Object parent : (List<?>) commit.get("parents"))
+			parents.add(Collections.singletonMap("sha", (String) parent));
+		response.put("parents", parents);
+		response.put("author", commit.get("author"));
+		response.put("committer", commit.get("committer"));
+		return response;
+	}
+
+	private Response getCommit(String sha) {
+		Map<String, Object> commit = commits.get(sha);
+		if (commit == null)
+			return error(404, "Not Found");
+		return new Response(200, toCommit(sha, commit));
+	}
+
+	private synchronized Response getRef(String ref, Integer status) {
+		String sha = refs.get(ref);
+		if (sha == null)
+			return error(404, "Not Found");
+		Map<String, Object> object = new LinkedHashMap<String, Object>();
+		object.put("type", "commit");
+		object.put("sha", sha);
+		Map<String, Object> response = new LinkedHashMap<String, Object>();
+		response.put("ref", ref);
+		response.put("object", object);
+		return new Response(status != null ? status : 200, response);
+	}
+
+	private synchronized Response createRef(Map<?, ?> params) {
+		String ref = (String) params.get("ref");
+		String sha = (String) params.get("sha");
+		if (refs.containsKey(ref))
+			return error(422, "Reference already exists");
+		if (!commits.containsKey(sha))
+			return error(422, "Invalid commit " + sha);
+		refs.put(ref, sha);
+		return getRef(ref, 201);
+	}
+
+	private synchronized Response updateRef(String ref, Map<?, ?> params) {
+		String sha = (String) params.get("sha");
+		String current = refs.get(ref);
+		if (current == null)
+			return error(422, "Reference does not exist");
+		if (!commits.containsKey(sha))
+			return error(422, "Invalid commit " + sha);
+		if (!Boolean.TRUE.equals(params.get("force"))
+				&& !isAncestor(current, sha))
+			return error(422, "Update is not a fast forward");
+		refs.put(ref, sha);
+		return getRef(ref, 200);
+	}
+
+	private boolean isAncestor(String ancestor, String sha) {
+		if (ancestor.equals(sha))
+			return true;
+		Map<String, Object> commit = commits.get(sha);
+		if (commit != null)
+			for (Object parent : (List<?>) commit.get("parents"))
+				if (isAncestor(ancestor, (String) parent))
+					return true;
+		return false;
+	}
+
+	private static void send(HttpExchange exchange, Response response,
+			Map<String, String> headers) throws IOException {
+		byte[] body = GsonUtils.toJson(response.body).getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type",
+				"application/json; charset=utf-8");
+		for (Entry<String, String> header : headers.entrySet())
+			exchange.getResponseHeaders().set(header.getKey(),
+					header.getValue());
+		exchange.sendResponseHeaders(response.status, body.length);
+		OutputStream output = exchange.getResponseBody();
+		try {
+			output.write(body);
+		} finally {
+			output.close();
+		}
+	}
+}
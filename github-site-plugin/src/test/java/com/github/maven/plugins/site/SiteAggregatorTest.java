@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.egit.github.core.TreeEntry;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link SiteAggregator}
+ */
+public class SiteAggregatorTest {
+
+	private static MavenProject createProject(String artifactId) {
+		MavenProject project = new MavenProject();
+		project.setGroupId("group");
+		project.setArtifactId(artifactId);
+		project.setVersion("1");
+		return project;
+	}
+
+	private static MavenSession createSession(MavenProject... projects) {
+		return new MavenSession(null, new DefaultMavenExecutionRequest(),
+				new DefaultMavenExecutionResult(), Arrays.asList(projects));
+	}
+
+	private static TreeEntry createEntry(String path, String sha) {
+		TreeEntry entry = new TreeEntry();
+		entry.setPath(path);
+		entry.setSha(sha);
+		return entry;
+	}
+
+	/**
+	 * Sessions cloned for the projects of a parallel build share aggregators
+	 */
+	@Test
+	public void aggregatorPerRequest() {
+		MavenSession session = createSession(createProject("a"));
+		SiteAggregator aggregator = SiteAggregator.get(session, "o/r", "b");
+		assertSame(aggregator, SiteAggregator.get(session, "o/r", "b"));
+		assertSame(aggregator, SiteAggregator.get(session.clone(), "o/r", "b"));
+		assertNotSame(aggregator, SiteAggregator.get(session, "o/r", "c"));
+		assertNotSame(aggregator,
+				SiteAggregator.get(createSession(createProject("a")), "o/r",
+						"b"));
+	}
+
+	/**
+	 * Entries of later modules replace entries of earlier modules, deletes
+	 * never replace files
+	 */
+	@Test
+	public void addEntries() {
+		SiteAggregator aggregator = SiteAggregator.get(
+				createSession(createProject("a")), "o/r", "b");
+		aggregator.add(
+				Arrays.asList(createEntry("a.html", "1"),
+						createEntry("b.html", "2")), true, 1, null, null);
+		aggregator.add(
+				Arrays.asList(createEntry("b.html", "3"),
+						createEntry("a.html", null),
+						createEntry("c.html", null)), true, 2, null, null);
+		List<TreeEntry> entries = aggregator.getEntries();
+		assertEquals(3, entries.size());
+		assertEquals("1", entries.get(0).getSha());
+		assertEquals("3", entries.get(1).getSha());
+		assertNull(entries.get(2).getSha());
+		assertEquals(2, aggregator.getModules());
+		assertEquals(3, aggregator.getPlanned());
+		assertEquals("o/r b", aggregator.getKey());
+	}
+
+	/**
+	 * Removing all aggregators returns the ones holding staged entries
+	 */
+	@Test
+	public void removeAll() {
+		MavenSession session = createSession(createProject("a"));
+		SiteAggregator staged = SiteAggregator.get(session, "o/r", "b");
+		staged.add(Collections.singletonList(createEntry("a.html", "1")),
+				false, 0, null, null);
+		SiteAggregator empty = SiteAggregator.get(session, "o/r", "c");
+		SiteAggregator written = SiteAggregator.get(session, "o/r", "d");
+		written.add(Collections.singletonList(createEntry("a.html", "1")),
+				false, 0, null, null);
+		SiteAggregator.remove(session, written);
+
+		assertEquals(Collections.singletonList(staged),
+				SiteAggregator.removeAll(session));
+		assertTrue(SiteAggregator.removeAll(session).isEmpty());
+		assertNotSame(empty, SiteAggregator.get(session, "o/r", "c"));
+	}
+
+	/**
+	 * Last project of the reactor
+	 */
+	@Test
+	public void lastProject() {
+		MavenProject first = createProject("a");
+		MavenProject last = createProject("b");
+		MavenSession session = createSession(first, last);
+		assertSame(last, SiteAggregator.getLast(session));
+		assertTrue(SiteAggregator.isLast(session, last));
+		assertTrue(SiteAggregator.isLast(session, createProject("b")));
+		assertFalse(SiteAggregator.isLast(session, first));
+		assertTrue(SiteAggregator.isLast(createSession(), first));
+	}
+
+	/**
+	 * Goals bound by the executions of a build plugin
+	 */
+	@Test
+	public void boundGoals() {
+		MavenProject project = createProject("a");
+		assertFalse(SiteAggregator.isBound(project,
+				"com.github.github:site-maven-plugin", "site"));
+
+		Plugin plugin = new Plugin();
+		plugin.setGroupId("com.github.github");
+		plugin.setArtifactId("site-maven-plugin");
+		PluginExecution execution = new PluginExecution();
+		execution.addGoal("site");
+		plugin.addExecution(execution);
+		project.getBuild().addPlugin(plugin);
+		assertTrue(SiteAggregator.isBound(project,
+				"com.github.github:site-maven-plugin", "site"));
+		assertFalse(SiteAggregator.isBound(project,
+				"com.github.github:site-maven-plugin", "join"));
+		assertFalse(SiteAggregator.isBound(project,
+				"com.github.github:other-plugin", "site"));
+	}
+}
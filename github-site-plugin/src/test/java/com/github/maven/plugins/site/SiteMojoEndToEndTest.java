@@ -0,0 +1,873 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static com.github.maven.plugins.site.MockGitHubServer.BLOBS;
+import static com.github.maven.plugins.site.MockGitHubServer.COMMITS;
+import static com.github.maven.plugins.site.MockGitHubServer.REFS;
+import static com.github.maven.plugins.site.MockGitHubServer.TREES;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.github.maven.plugins.core.DeployJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecution.Source;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.eclipse.egit.github.core.client.GsonUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * End-to-end tests of {@link SiteMojo} deploying generated sites through the
+ * real client to a {@link MockGitHubServer}
+ */
+public class SiteMojoEndToEndTest {
+
+	private static final String BRANCH = "refs/heads/gh-pages";
+
+	private MockGitHubServer server;
+
+	private File directory;
+
+	private File site;
+
+	/**
+	 * Start server and create an empty site directory
+	 *
+	 * @throws IOException
+	 */
+	@Before
+	public void setUp() throws IOException {
+		server = new MockGitHubServer().start();
+		directory = File.createTempFile("site", "");
+		assertTrue(directory.delete());
+		site = new File(directory, "site");
+		assertTrue(site.mkdirs());
+	}
+
+	/**
+	 * Stop server and delete files
+	 */
+	@After
+	public void tearDown() {
+		server.stop();
+		delete(directory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+	private static void set(Object mojo, String name, Object value)
+			throws Exception {
+		Field field = mojo.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+	private SiteMojo createMojo(int threads) throws Exception {
+		SiteMojo mojo = new SiteMojo();
+		set(mojo, "host", server.getUrl());
+		set(mojo, "oauth2Token", "token");
+		set(mojo, "repositoryOwner", "owner");
+		set(mojo, "repositoryName", "site");
+		set(mojo, "branch", BRANCH);
+		set(mojo, "message", "Site deploy");
+		set(mojo, "outputDirectory", site);
+		set(mojo, "project", new MavenProject());
+		set(mojo, "settings", new Settings());
+		set(mojo, "threads", threads);
+		set(mojo, "rateLimitPerMinute", 0);
+		set(mojo, "cache", false);
+		set(mojo, "identityCacheHours", 0);
+		set(mojo, "reportFile", new File(directory, "report.json"));
+		return mojo;
+	}
+
+	private static byte[] read(File file) throws IOException {
+		InputStream input = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = input.read(buffer)) != -1)
+				output.write(buffer, 0, count);
+			return output.toByteArray();
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		File parent = file.getParentFile();
+		assertTrue(parent.isDirectory() || parent.mkdirs());
+		OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Generate a site of modules that each repeat the same stylesheet
+	 *
+	 * @param files
+	 * @param size
+	 * @return map of paths to content
+	 * @throws IOException
+	 */
+	private Map<String, byte[]> createSite(int files, int size)
+			throws IOException {
+		Map<String, byte[]> content = new TreeMap<String, byte[]>();
+		byte[] css = "body { margin: 0 }".getBytes("UTF-8");
+		Random random = new Random(files);
+		for (int i = 0; i < files; i++) {
+			String path;
+			byte[] bytes;
+			if (i % 50 == 0) {
+				path = "module" + i / 50 + "/css/site.css";
+				bytes = css;
+			} else {
+				path = "module" + i / 50 + "/page" + i + ".html";
+				bytes = new byte[size];
+				random.nextBytes(bytes);
+			}
+			write(new File(site, path), bytes);
+			content.put(path, bytes);
+		}
+		return content;
+	}
+
+	private void assertDeployed(Map<String, byte[]> expected) {
+		Map<String, byte[]> deployed = server.getFiles(BRANCH);
+		assertEquals(expected.keySet(), deployed.keySet());
+		for (Entry<String, byte[]> file : expected.entrySet())
+			assertArrayEquals(file.getKey(), file.getValue(),
+					deployed.get(file.getKey()));
+	}
+
+	/**
+	 * Files with the same content are uploaded as a single blob and the
+	 * reference is created
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void deploySite() throws Exception {
+		Map<String, byte[]> files = createSite(200, 512);
+		createMojo(4).execute();
+
+		assertDeployed(files);
+		assertEquals(197, server.getRequests("POST", BLOBS));
+		assertEquals(1, server.getRequests("POST", TREES));
+		assertEquals(1, server.getRequests("POST", COMMITS));
+		assertEquals(1, server.getRequests("POST", REFS));
+		assertEquals("Site deploy",
+				server.getCommitMessage(server.getRef(BRANCH)));
+		assertTrue(new File(directory, "report.json").isFile());
+	}
+
+	/**
+	 * Deploying an unchanged site uploads no blobs and fast forwards the
+	 * reference
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void redeployUnchanged() throws Exception {
+		Map<String, byte[]> files = createSite(100, 256);
+		createMojo(4).execute();
+		String first = server.getRef(BRANCH);
+		server.resetRequests();
+
+		createMojo(4).execute();
+		assertDeployed(files);
+		assertEquals(0, server.getRequests("POST", BLOBS));
+		assertEquals(0, server.getRequests("POST", TREES));
+		assertEquals(1, server.getRequests("POST", COMMITS));
+		assertFalse(first.equals(server.getRef(BRANCH)));
+	}
+
+	/**
+	 * Pruning a merged deploy removes files deleted locally
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void mergeAndPrune() throws Exception {
+		Map<String, byte[]> files = createSite(60, 128);
+		createMojo(2).execute();
+
+		String removed = "module0/page1.html";
+		assertTrue(new File(site, removed).delete());
+		files.remove(removed);
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "merge", true);
+		set(mojo, "prune", true);
+		mojo.execute();
+		assertDeployed(files);
+	}
+
+	/**
+	 * Deploying an empty site without merging replaces a non-empty tree with
+	 * an empty tree instead of reusing it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void deployEmptySite() throws Exception {
+		createSite(20, 128);
+		createMojo(2).execute();
+		String first = server.getRef(BRANCH);
+
+		delete(site);
+		assertTrue(site.mkdirs());
+		server.resetRequests();
+		createMojo(2).execute();
+		assertDeployed(new TreeMap<String, byte[]>());
+		assertEquals(1, server.getRequests("POST", TREES));
+		assertFalse(first.equals(server.getRef(BRANCH)));
+	}
+
+	/**
+	 * Dry run plans the requests of a deploy without modifying the repository
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void planDeploy() throws Exception {
+		Map<String, byte[]> files = createSite(60, 128);
+		createMojo(2).execute();
+		String first = server.getRef(BRANCH);
+		server.resetRequests();
+
+		assertTrue(new File(site, "module0/page1.html").delete());
+		write(new File(site, "module0/page2.html"), "changed".getBytes("UTF-8"));
+		write(new File(site, "added.html"), "added".getBytes("UTF-8"));
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "dryRun", true);
+		mojo.execute();
+		assertEquals(first, server.getRef(BRANCH));
+		assertEquals(0, server.getRequests("POST", BLOBS)
+				+ server.getRequests("POST", TREES)
+				+ server.getRequests("POST", COMMITS)
+				+ server.getRequests("POST", REFS));
+
+		Map<?, ?> report = GsonUtils.fromJson(
+				new String(read(new File(directory, "report.json")), "UTF-8"),
+				Map.class);
+		Map<?, ?> counts = (Map<?, ?>) report.get("files");
+		assertEquals(1.0, counts.get("added"));
+		assertEquals(1.0, counts.get("changed"));
+		assertEquals(58.0, counts.get("unchanged"));
+		assertEquals(1.0, counts.get("removed"));
+		Map<?, ?> planned = (Map<?, ?>) report.get("plannedRequests");
+		assertEquals(2.0, planned.get("blob"));
+		assertEquals(1.0, planned.get("tree"));
+		assertEquals(1.0, planned.get("commit"));
+		assertEquals(1.0, planned.get("ref"));
+		assertTrue(report.containsKey("estimatedMillis"));
+
+		createMojo(2).execute();
+		files.remove("module0/page1.html");
+		files.put("module0/page2.html", "changed".getBytes("UTF-8"));
+		files.put("added.html", "added".getBytes("UTF-8"));
+		assertDeployed(files);
+		assertEquals(2, server.getRequests("POST", BLOBS));
+		assertEquals(1, server.getRequests("POST", TREES));
+	}
+
+	/**
+	 * Planning a deploy does not register blobs with the session so that a
+	 * later deploy in the same session still uploads them
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void planThenDeployInSession() throws Exception {
+		Map<String, byte[]> files = createSite(20, 128);
+		MavenProject project = createProject("a");
+		MavenSession session = createSession(project);
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "dryRun", true);
+		mojo.execute();
+		assertNull(server.getRef(BRANCH));
+
+		mojo = createMojo(2);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		mojo.execute();
+		assertDeployed(files);
+		assertEquals(20, server.getRequests("POST", BLOBS));
+	}
+
+	/**
+	 * Planning a deploy neither looks up the committer nor writes the deploy
+	 * and identity caches
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void planWithoutLocalState() throws Exception {
+		createSite(10, 128);
+		File cacheFile = new File(directory, "deploy.cache");
+		File identityFile = new File(directory, "identities");
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "dryRun", true);
+		set(mojo, "cache", true);
+		set(mojo, "cacheFile", cacheFile);
+		set(mojo, "identityCacheHours", 24);
+		set(mojo, "identityCacheFile", identityFile);
+		mojo.execute();
+		assertNull(server.getRef(BRANCH));
+		assertEquals(0, server.getRequests("GET", MockGitHubServer.USER));
+		assertFalse(cacheFile.exists());
+		assertFalse(identityFile.exists());
+
+		set(mojo, "dryRun", false);
+		mojo.execute();
+		assertNotNull(server.getRef(BRANCH));
+		assertEquals(1, server.getRequests("GET", MockGitHubServer.USER));
+		assertTrue(cacheFile.exists());
+		assertTrue(identityFile.exists());
+	}
+
+	/**
+	 * Failed blob requests and secondary rate limits are retried
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void retryFaults() throws Exception {
+		Map<String, byte[]> files = createSite(20, 128);
+		server.fail(BLOBS, 502, 2);
+		createMojo(1).execute();
+		assertDeployed(files);
+		assertEquals(20 + 2, server.getRequests("POST", BLOBS));
+
+		server.resetRequests();
+		files.put("extra.html", "extra".getBytes("UTF-8"));
+		write(new File(site, "extra.html"), files.get("extra.html"));
+		server.fail(BLOBS, 403, 1);
+		createMojo(1).execute();
+		assertDeployed(files);
+		assertEquals(2, server.getRequests("POST", BLOBS));
+	}
+
+	/**
+	 * Faults beyond the retries fail the deploy without moving the reference
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = MojoExecutionException.class)
+	public void failAfterRetries() throws Exception {
+		createSite(5, 64);
+		server.fail(TREES, 500, 100);
+		SiteMojo mojo = createMojo(1);
+		set(mojo, "retries", 0);
+		try {
+			mojo.execute();
+		} finally {
+			assertEquals(null, server.getRef(BRANCH));
+		}
+	}
+
+	/**
+	 * Deploy failing after its blobs were created is resumed without
+	 * creating them again
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void resumeFromJournal() throws Exception {
+		Map<String, byte[]> files = createSite(30, 128);
+		File journal = new File(directory, "github-site.journal");
+		server.fail(TREES, 500, 1);
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "journalFile", journal);
+		set(mojo, "retries", 0);
+		try {
+			mojo.execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertNull(server.getRef(BRANCH));
+		}
+		assertTrue(journal.isFile());
+		assertEquals(30, server.getRequests("POST", BLOBS));
+		server.resetRequests();
+
+		mojo = createMojo(2);
+		set(mojo, "journalFile", journal);
+		mojo.execute();
+		assertDeployed(files);
+		assertEquals(0, server.getRequests("POST", BLOBS));
+		assertFalse(journal.exists());
+	}
+
+	/**
+	 * Deploy stops instead of waiting for an exhausted rate limit and resumes
+	 * once it resets
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void stopOnExhaustedRateLimit() throws Exception {
+		Map<String, byte[]> files = createSite(40, 128);
+		File journal = new File(directory, "github-site.journal");
+		server.setRateLimit(20, 60 * 60 * 1000L);
+		SiteMojo mojo = createMojo(1);
+		set(mojo, "journalFile", journal);
+		set(mojo, "rateLimitWait", 0);
+		try {
+			mojo.execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertNull(server.getRef(BRANCH));
+		}
+		int journaled = new DeployJournal(journal, "owner/site", BRANCH)
+				.load().getBlobs().size();
+		assertTrue(journaled > 0);
+
+		server.setRateLimit(5000, 60 * 60 * 1000L);
+		server.resetRequests();
+		mojo = createMojo(1);
+		set(mojo, "journalFile", journal);
+		mojo.execute();
+		assertDeployed(files);
+		assertEquals(40 - journaled, server.getRequests("POST", BLOBS));
+	}
+
+	private static MavenProject createProject(String artifactId) {
+		MavenProject project = new MavenProject();
+		project.setGroupId("group");
+		project.setArtifactId(artifactId);
+		project.setVersion("1");
+		return project;
+	}
+
+	private static MavenSession createSession(MavenProject... projects) {
+		return new MavenSession(null, new DefaultMavenExecutionRequest(),
+				new DefaultMavenExecutionResult(), Arrays.asList(projects));
+	}
+
+	private SiteMojo createModuleMojo(MavenSession session,
+			MavenProject project) throws Exception {
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "aggregate", true);
+		set(mojo, "path", project.getArtifactId());
+		return mojo;
+	}
+
+	/**
+	 * Modules of an aggregated deploy stage their entries and the last module
+	 * writes them with a single tree, commit, and reference update
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void aggregateModules() throws Exception {
+		Map<String, byte[]> files = createSite(20, 128);
+		MavenProject[] projects = { createProject("a"), createProject("b"),
+				createProject("c") };
+		MavenSession session = createSession(projects);
+		Map<String, byte[]> expected = new TreeMap<String, byte[]>();
+		for (int i = 0; i < projects.length; i++) {
+			createModuleMojo(session, projects[i]).execute();
+			for (Entry<String, byte[]> file : files.entrySet())
+				expected.put(projects[i].getArtifactId() + '/' + file.getKey(),
+						file.getValue());
+			if (i < projects.length - 1) {
+				assertNull(server.getRef(BRANCH));
+				assertEquals(0, server.getRequests("POST", TREES));
+			}
+		}
+		assertDeployed(expected);
+		// Modules share the blobs of files with the same content
+		assertEquals(20, server.getRequests("POST", BLOBS));
+		assertEquals(1, server.getRequests("POST", TREES));
+		assertEquals(1, server.getRequests("POST", COMMITS));
+		assertEquals(1, server.getRequests("POST", REFS));
+	}
+
+	/**
+	 * Dry run of an aggregated deploy plans the blobs of all modules, files
+	 * with the same content in different modules are planned once
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void planAggregatedDeploy() throws Exception {
+		createSite(20, 128);
+		MavenProject[] projects = { createProject("a"), createProject("b"),
+				createProject("c") };
+		MavenSession session = createSession(projects);
+		for (MavenProject project : projects) {
+			SiteMojo mojo = createModuleMojo(session, project);
+			set(mojo, "dryRun", true);
+			mojo.execute();
+		}
+		assertNull(server.getRef(BRANCH));
+		assertEquals(0, server.getRequests("POST", BLOBS)
+				+ server.getRequests("POST", TREES)
+				+ server.getRequests("POST", COMMITS)
+				+ server.getRequests("POST", REFS));
+
+		Map<?, ?> report = GsonUtils.fromJson(
+				new String(read(new File(directory, "report.json")), "UTF-8"),
+				Map.class);
+		Map<?, ?> planned = (Map<?, ?>) report.get("plannedRequests");
+		assertEquals(20.0, planned.get("blob"));
+		assertEquals(1.0, planned.get("tree"));
+	}
+
+	/**
+	 * Modules of an aggregated deploy that do not agree on merging fail before
+	 * writing a tree that mixes merged and complete entries
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void aggregateMixedMerge() throws Exception {
+		createSite(5, 64);
+		createMojo(2).execute();
+		String first = server.getRef(BRANCH);
+		server.resetRequests();
+
+		MavenProject[] projects = { createProject("a"), createProject("b") };
+		MavenSession session = createSession(projects);
+		SiteMojo mojo = createModuleMojo(session, projects[0]);
+		set(mojo, "merge", true);
+		set(mojo, "prune", true);
+		mojo.execute();
+		try {
+			createModuleMojo(session, projects[1]).execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertEquals(first, server.getRef(BRANCH));
+			assertEquals(0, server.getRequests("POST", TREES));
+		}
+	}
+
+	/**
+	 * Skipping the last module fails instead of dropping the staged entries
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void skipLastAggregatedModule() throws Exception {
+		createSite(5, 64);
+		MavenProject first = createProject("a");
+		MavenProject last = createProject("b");
+		MavenSession session = createSession(first, last);
+		createModuleMojo(session, first).execute();
+		SiteMojo mojo = createModuleMojo(session, last);
+		set(mojo, "skip", true);
+		try {
+			mojo.execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertNull(server.getRef(BRANCH));
+		}
+	}
+
+	/**
+	 * Last module deploying without aggregation fails instead of dropping the
+	 * entries staged by the other modules
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = MojoExecutionException.class)
+	public void lastModuleNotAggregated() throws Exception {
+		createSite(5, 64);
+		MavenProject first = createProject("a");
+		MavenProject last = createProject("b");
+		MavenSession session = createSession(first, last);
+		createModuleMojo(session, first).execute();
+		SiteMojo mojo = createModuleMojo(session, last);
+		set(mojo, "aggregate", false);
+		mojo.execute();
+	}
+
+	/**
+	 * Aggregated deploys are rejected by parallel builds before sending any
+	 * request
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void aggregateInParallelBuild() throws Exception {
+		createSite(5, 64);
+		MavenProject project = createProject("a");
+		MavenSession session = createSession(project, createProject("b"));
+		session.setParallel(true);
+		try {
+			createModuleMojo(session, project).execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertEquals(0, server.getRequests());
+		}
+	}
+
+	/**
+	 * Content larger than the memory budget waits for uploads or is read
+	 * again when uploaded
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void deployWithinMemoryBudget() throws Exception {
+		Map<String, byte[]> files = createSite(30, 300 * 1024);
+		SiteMojo mojo = createMojo(2);
+		set(mojo, "maxInFlightMB", 1);
+		mojo.execute();
+		assertDeployed(files);
+
+		server.resetRequests();
+		delete(site);
+		assertTrue(site.mkdirs());
+		files = createSite(10, 4096);
+		mojo = createMojo(2);
+		set(mojo, "maxInFlightMB", 0);
+		mojo.execute();
+		assertDeployed(files);
+		// The style sheet is shared with the first site
+		assertEquals(9, server.getRequests("POST", BLOBS));
+	}
+
+	/**
+	 * Background deploy returns before the upload completes and the join
+	 * goal waits for it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void backgroundDeploy() throws Exception {
+		Map<String, byte[]> files = createSite(50, 256);
+		MavenProject project = new MavenProject();
+		MavenSession session = new MavenSession(null,
+				new DefaultMavenExecutionRequest(),
+				new DefaultMavenExecutionResult(), project);
+		SiteMojo mojo = createMojo(4);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "background", true);
+		mojo.execute();
+		assertEquals(1, BackgroundDeploys.get(session).getStarted());
+		assertSame(BackgroundDeploys.get(session),
+				BackgroundDeploys.get(session.clone()));
+
+		JoinMojo join = new JoinMojo();
+		set(join, "session", session);
+		join.execute();
+		assertDeployed(files);
+		assertEquals(0, BackgroundDeploys.get(session).getStarted());
+	}
+
+	private static MojoExecution createExecution(String goal) {
+		PluginDescriptor plugin = new PluginDescriptor();
+		plugin.setGroupId("com.github.github");
+		plugin.setArtifactId("site-maven-plugin");
+		plugin.setGoalPrefix("github-site");
+		MojoDescriptor descriptor = new MojoDescriptor();
+		descriptor.setGoal(goal);
+		descriptor.setPluginDescriptor(plugin);
+		return new MojoExecution(descriptor, "default", Source.LIFECYCLE);
+	}
+
+	/**
+	 * Background deploy fails before sending any request when no join goal
+	 * would wait for it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void backgroundWithoutJoin() throws Exception {
+		createSite(5, 64);
+		MavenProject project = createProject("a");
+		MavenSession session = createSession(project, createProject("b"));
+		SiteMojo mojo = createMojo(1);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "background", true);
+		set(mojo, "mojoExecution", createExecution("site"));
+		try {
+			mojo.execute();
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertEquals(0, server.getRequests());
+			assertEquals(0, BackgroundDeploys.get(session).getStarted());
+		}
+	}
+
+	/**
+	 * Background deploy starts when a later project binds the join goal or it
+	 * is given on the command line
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void backgroundWithJoin() throws Exception {
+		Map<String, byte[]> files = createSite(5, 64);
+		MavenProject project = createProject("a");
+		MavenProject last = createProject("b");
+		Plugin plugin = new Plugin();
+		plugin.setGroupId("com.github.github");
+		plugin.setArtifactId("site-maven-plugin");
+		PluginExecution execution = new PluginExecution();
+		execution.addGoal("join");
+		plugin.addExecution(execution);
+		last.getBuild().addPlugin(plugin);
+		MavenSession session = createSession(project, last);
+		SiteMojo mojo = createMojo(1);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "background", true);
+		set(mojo, "mojoExecution", createExecution("site"));
+		mojo.execute();
+		assertEquals(1, BackgroundDeploys.get(session).getStarted());
+		JoinMojo join = new JoinMojo();
+		set(join, "session", session);
+		join.execute();
+		assertDeployed(files);
+
+		session = createSession(project);
+		session.getRequest().setGoals(
+				Arrays.asList("deploy", "github-site:join"));
+		set(mojo, "session", session);
+		mojo.execute();
+		assertEquals(1, BackgroundDeploys.get(session).getStarted());
+		set(join, "session", session);
+		join.execute();
+		assertDeployed(files);
+	}
+
+	/**
+	 * Failed background deploy fails the join goal
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = MojoExecutionException.class)
+	public void failBackgroundDeploy() throws Exception {
+		createSite(5, 64);
+		server.fail(TREES, 500, 100);
+		MavenProject project = new MavenProject();
+		MavenSession session = new MavenSession(null,
+				new DefaultMavenExecutionRequest(),
+				new DefaultMavenExecutionResult(), project);
+		SiteMojo mojo = createMojo(1);
+		set(mojo, "project", project);
+		set(mojo, "session", session);
+		set(mojo, "background", true);
+		set(mojo, "retries", 0);
+		mojo.execute();
+
+		JoinMojo join = new JoinMojo();
+		set(join, "session", session);
+		try {
+			join.execute();
+		} finally {
+			assertNull(server.getRef(BRANCH));
+		}
+	}
+
+	/**
+	 * Deploys with rate limit headers and latency upload blobs concurrently,
+	 * but never on more than the configured number of threads
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void rateLimitedWithLatency() throws Exception {
+		int count = 100;
+		Map<String, byte[]> files = createSite(count, 1024);
+		server.setRateLimit(5000, 60 * 60 * 1000L).setLatency(20)
+				.setBandwidth(10 * 1024 * 1024);
+		createMojo(8).execute();
+		assertDeployed(files);
+		assertEquals(count - count / 50 + 1, server.getRequests("POST", BLOBS));
+		assertTrue(server.getMaxConcurrentRequests() > 1);
+		// Each blob request carries less than 2 KB of encoded content
+		assertTrue(server.getMaxBlobBytesInFlight() > 2 * 1024);
+		assertTrue(server.getMaxBlobBytesInFlight() <= 8 * 2 * 1024);
+	}
+
+	/**
+	 * Deploy a site of 10,000 files
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void deployLargeSite() throws Exception {
+		int count = 10000;
+		Map<String, byte[]> files = createSite(count, 1024);
+		createMojo(8).execute();
+
+		assertDeployed(files);
+		assertEquals(count - count / 50 + 1, server.getRequests("POST", BLOBS));
+		assertTrue(server.getRequests("POST", TREES) <= 2);
+		assertEquals(1, server.getRequests("POST", COMMITS));
+		assertEquals(1, server.getRequests("POST", REFS));
+		assertNotNull(server.getRef(BRANCH));
+		// Uploads never run on more than the configured threads
+		assertTrue(server.getMaxBlobBytesInFlight() <= 8 * 2 * 1024);
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2015 GitHub Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS
+ * IN THE SOFTWARE.
+ */
+package com.github.maven.plugins.site;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.github.maven.plugins.core.PathScanner;
+import com.github.maven.plugins.core.egit.DataServiceEgit;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.egit.github.core.RepositoryId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of writing blobs with {@link SiteMojo}
+ */
+public class SiteMojoTest {
+
+	private static final int FILES = 40;
+
+	/**
+	 * Mojo recording the uploads of blobs instead of sending them
+	 */
+	private static class UploadingMojo extends SiteMojo {
+
+		final AtomicInteger started = new AtomicInteger();
+
+		final AtomicInteger active = new AtomicInteger();
+
+		final AtomicInteger maxActive = new AtomicInteger();
+
+		final List<String> completed = Collections
+				.synchronizedList(new ArrayList<String>());
+
+		final AtomicInteger interrupted = new AtomicInteger();
+
+		/**
+		 * Counted down once an upload waits behind the failing upload
+		 */
+		final CountDownLatch waiting = new CountDownLatch(1);
+
+		/**
+		 * Never counted down, uploads waiting on it only end when interrupted
+		 */
+		final CountDownLatch blocked = new CountDownLatch(1);
+
+		/**
+		 * Counted down once no upload is active
+		 */
+		final CountDownLatch idle = new CountDownLatch(1);
+
+		final boolean reverse;
+
+		final boolean failFirst;
+
+		UploadingMojo(File outputDirectory, int threads, boolean reverse,
+				boolean failFirst) throws Exception {
+			this.reverse = reverse;
+			this.failFirst = failFirst;
+			set(this, "outputDirectory", outputDirectory);
+			set(this, "threads", threads);
+		}
+
+		@Override
+		protected String uploadBlob(DataServiceEgit service,
+				RepositoryId repository, PathBlob blob)
+				throws MojoExecutionException {
+			int count = active.incrementAndGet();
+			synchronized (maxActive) {
+				if (count > maxActive.get())
+					maxActive.set(count);
+			}
+			try {
+				if (failFirst)
+					if (started.incrementAndGet() == 1) {
+						// Fail while another upload is in progress
+						waiting.await();
+						throw new MojoExecutionException("Upload failed");
+					} else {
+						waiting.countDown();
+						blocked.await();
+					}
+				else
+					started.incrementAndGet();
+				// Uploads complete in an order unrelated to the paths
+				int index = Integer.parseInt(blob.path.replaceAll("\\D", ""));
+				int delay = (index * 7) % 10;
+				Thread.sleep(5 * (reverse ? 10 - delay : delay + 1));
+				completed.add(blob.path);
+				return blob.sha;
+			} catch (InterruptedException e) {
+				interrupted.incrementAndGet();
+				throw new MojoExecutionException("Interrupted", e);
+			} finally {
+				if (active.decrementAndGet() == 0)
+					idle.countDown();
+			}
+		}
+	}
+
+	private static void set(SiteMojo mojo, String name, Object value)
+			throws Exception {
+		Field field = SiteMojo.class.getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(mojo, value);
+	}
+
+	private File site;
+
+	@Before
+	public void setUp() throws IOException {
+		site = File.createTempFile("site", "");
+		assertTrue(site.delete());
+		for (int i = 0; i < FILES; i++) {
+			File file = new File(site, "module" + (i % 4) + "/page" + i
+					+ ".html");
+			file.getParentFile().mkdirs();
+			OutputStream output = new FileOutputStream(file);
+			try {
+				output.write(("<html>page " + i + "</html>").getBytes("UTF-8"));
+			} finally {
+				output.close();
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		delete(site);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+	private SortedMap<String, String> writeBlobs(SiteMojo mojo)
+			throws MojoExecutionException {
+		return mojo.writeBlobs(null, null, new PathScanner(
+				site.getAbsolutePath(), null, null, 2).scan(),
+				Collections.<String> emptySet(), new AtomicInteger());
+	}
+
+	/**
+	 * Blobs map to the same sorted paths whatever order their uploads
+	 * complete in
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void deterministicTree() throws Exception {
+		UploadingMojo forward = new UploadingMojo(site, 4, false, false);
+		SortedMap<String, String> first = writeBlobs(forward);
+		UploadingMojo reverse = new UploadingMojo(site, 4, true, false);
+		SortedMap<String, String> second = writeBlobs(reverse);
+
+		assertEquals(FILES, first.size());
+		assertEquals(first, second);
+		assertEquals(new ArrayList<String>(first.keySet()),
+				new ArrayList<String>(second.keySet()));
+		List<String> sorted = new ArrayList<String>(first.keySet());
+		Collections.sort(sorted);
+		assertEquals(sorted, new ArrayList<String>(first.keySet()));
+		assertEquals(FILES, forward.completed.size());
+		assertEquals(FILES, reverse.completed.size());
+	}
+
+	/**
+	 * A failed upload fails writing the blobs, interrupts the uploads in
+	 * progress, and cancels the uploads that have not started
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void failedUploadCancelsOthers() throws Exception {
+		UploadingMojo mojo = new UploadingMojo(site, 2, false, true);
+		try {
+			writeBlobs(mojo);
+			fail("Exception not thrown");
+		} catch (MojoExecutionException expected) {
+			assertEquals("Upload failed", expected.getMessage());
+		}
+		// Uploads blocked behind the failure only end when interrupted
+		assertTrue(mojo.idle.await(10, TimeUnit.SECONDS));
+		assertTrue(mojo.interrupted.get() >= 1);
+		assertTrue(mojo.completed.isEmpty());
+	}
+
+	/**
+	 * A single upload thread writes the blobs one at a time and maps them to
+	 * the same paths as concurrent uploads
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void singleThread() throws Exception {
+		UploadingMojo single = new UploadingMojo(site, 1, false, false);
+		SortedMap<String, String> shas = writeBlobs(single);
+		assertEquals(1, single.maxActive.get());
+		assertEquals(FILES, single.completed.size());
+		assertEquals(writeBlobs(new UploadingMojo(site, 4, true, false)),
+				shas);
+	}
+}